@@ -0,0 +1,64 @@
+package com.prescription.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@EnableAsync
+@Slf4j
+public class AsyncConfig {
+
+    public static final String NOTIFICATION_EXECUTOR = "notificationExecutor";
+
+    /**
+     * Sends notifications after the appointment transaction committed. Few threads, because each send
+     * holds one of the pool's database connections. A full queue makes the publisher wait up to
+     * {@code offer-timeout-ms} for room before the notification is dropped and counted. The publisher
+     * never runs the task itself: it is still inside the committed transaction's completion.
+     */
+    @Bean(name = NOTIFICATION_EXECUTOR)
+    public ThreadPoolTaskExecutor notificationExecutor(
+            @Value("${app.notifications.dispatch.threads:2}") int threads,
+            @Value("${app.notifications.dispatch.queue-capacity:1000}") int queueCapacity,
+            @Value("${app.notifications.dispatch.offer-timeout-ms:500}") long offerTimeoutMillis,
+            MeterRegistry meterRegistry) {
+        Counter dropped = Counter.builder("notifications.dispatch.dropped")
+                .description("Notifications dropped because the dispatch queue stayed full")
+                .register(meterRegistry);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("notify-");
+        executor.setRejectedExecutionHandler(waitForRoom(offerTimeoutMillis, dropped));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    static RejectedExecutionHandler waitForRoom(long timeoutMillis, Counter dropped) {
+        return (task, pool) -> {
+            try {
+                if (!pool.isShutdown() && pool.getQueue().offer(task, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Not thrown: the transaction has committed and its caller must not see a failure
+            dropped.increment();
+            log.warn("Notification dispatch queue full for {} ms, dropping a notification", timeoutMillis);
+        };
+    }
+}
@@ -0,0 +1,156 @@
+package com.prescription.config;
+
+import com.prescription.entity.Appointment;
+import com.prescription.util.ScheduleTimeSlots;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Data migrations that ddl-auto=update cannot express, run once the schema is up to date.
+ * Every step is idempotent, so it is safe on each startup.
+ */
+@Component
+@Slf4j
+public class DatabaseMigrationRunner implements ApplicationRunner {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        migrateDoctorHospitalScheduleTimeSlots();
+        addAppointmentOverlapConstraint();
+        migrateMedicineReminders();
+    }
+
+    /**
+     * Moves doctor_hospital_schedules.time_slots ("09:00-10:00,10:00-11:00") into the
+     * slot_start_minutes / slot_end_minutes arrays and normalizes day_of_week to the enum names.
+     * The old column is kept, but no longer required, so a rollback still finds its data.
+     */
+    void migrateDoctorHospitalScheduleTimeSlots() {
+        if (!columnExists("doctor_hospital_schedules", "time_slots")) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE doctor_hospital_schedules ALTER COLUMN time_slots DROP NOT NULL");
+        jdbcTemplate.update("UPDATE doctor_hospital_schedules SET day_of_week = UPPER(TRIM(day_of_week)) " +
+                "WHERE day_of_week <> UPPER(TRIM(day_of_week))");
+
+        List<Object[]> rows = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, time_slots FROM doctor_hospital_schedules " +
+                "WHERE slot_start_minutes IS NULL AND time_slots IS NOT NULL", rs -> {
+            long id = rs.getLong("id");
+            String timeSlots = rs.getString("time_slots");
+            try {
+                int[][] slots = ScheduleTimeSlots.parse(timeSlots);
+                rows.add(new Object[]{id, slots[0], slots[1]});
+            } catch (IllegalArgumentException e) {
+                log.warn("Cannot migrate time slots '{}' of schedule {}: {}", timeSlots, id, e.getMessage());
+            }
+        });
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate("UPDATE doctor_hospital_schedules SET slot_start_minutes = ?, slot_end_minutes = ? " +
+                "WHERE id = ?", rows, 500, (ps, row) -> {
+            ps.setArray(1, toSqlArray(ps.getConnection(), (int[]) row[1]));
+            ps.setArray(2, toSqlArray(ps.getConnection(), (int[]) row[2]));
+            ps.setLong(3, (Long) row[0]);
+        });
+        log.info("Migrated time slots of {} doctor hospital schedules", rows.size());
+    }
+
+    /**
+     * Fills appointments.blocked_until of older rows from the doctor's slot duration and buffer time, then
+     * lets PostgreSQL reject overlapping blocking appointments of a doctor. If existing rows already overlap
+     * the constraint is not added; it is tried again on the next startup once they are resolved.
+     */
+    void addAppointmentOverlapConstraint() {
+        if (!isPostgres()) {
+            return;
+        }
+        int backfilled = jdbcTemplate.update("UPDATE appointments a SET blocked_until = a.scheduled_time + " +
+                "make_interval(mins => COALESCE((SELECT COALESCE(s.slot_duration_minutes, 30) + " +
+                "COALESCE(s.buffer_time_minutes, 5) FROM appointment_settings s WHERE s.doctor_id = a.doctor_user_id), 35)) " +
+                "WHERE a.blocked_until IS NULL");
+        if (backfilled > 0) {
+            log.info("Filled blocked_until of {} appointments", backfilled);
+        }
+
+        Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_constraint " +
+                "WHERE conname = 'appointments_no_overlap'", Integer.class);
+        if (existing != null && existing > 0) {
+            return;
+        }
+        String blockingStatuses = Appointment.BLOCKING_STATUSES.stream()
+                .map(status -> "'" + status.name() + "'")
+                .collect(Collectors.joining(", "));
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS btree_gist");
+            jdbcTemplate.execute("ALTER TABLE appointments ADD CONSTRAINT appointments_no_overlap EXCLUDE USING gist " +
+                    "(doctor_user_id WITH =, tsrange(scheduled_time, blocked_until) WITH &&) " +
+                    "WHERE (status IN (" + blockingStatuses + ") AND blocked_until IS NOT NULL)");
+            log.info("Added appointments_no_overlap exclusion constraint");
+        } catch (DataAccessException e) {
+            log.warn("Cannot add appointments_no_overlap, overlapping appointments must be resolved first: {}",
+                    e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    /**
+     * MEDICINE_REMINDER notifications used to double as their own schedule, matched every minute on
+     * reminder_time. Each becomes a reminder_schedule row firing next at its reminder time; one-off
+     * reminders that already fired (read) are left out.
+     */
+    void migrateMedicineReminders() {
+        if (!isPostgres()) {
+            return;
+        }
+        int migrated = jdbcTemplate.update("INSERT INTO reminder_schedule (user_id, prescription_id, title, message, " +
+                "reminder_time, frequency, interval_minutes, next_fire_at, source_notification_id, created_at) " +
+                "SELECT n.user_id, n.prescription_id, n.title, n.message, n.reminder_time, n.frequency, " +
+                "CASE n.frequency WHEN 'TWICE_DAILY' THEN 720 WHEN 'DAILY' THEN 1440 WHEN 'WEEKLY' THEN 10080 END, " +
+                "CASE WHEN CURRENT_DATE + n.reminder_time > LOCALTIMESTAMP THEN CURRENT_DATE + n.reminder_time " +
+                "ELSE CURRENT_DATE + 1 + n.reminder_time END, n.id, LOCALTIMESTAMP " +
+                "FROM notifications n WHERE n.type = 'MEDICINE_REMINDER' AND n.reminder_time IS NOT NULL " +
+                "AND (n.frequency IN ('TWICE_DAILY', 'DAILY', 'WEEKLY') OR NOT n.\"isread\") " +
+                "AND NOT EXISTS (SELECT 1 FROM reminder_schedule r WHERE r.source_notification_id = n.id)");
+        if (migrated > 0) {
+            log.info("Moved {} medicine reminders to reminder_schedule", migrated);
+        }
+    }
+
+    private boolean isPostgres() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+
+    private boolean columnExists(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns " +
+                "WHERE LOWER(table_name) = ? AND LOWER(column_name) = ?", Integer.class, table, column);
+        return count != null && count > 0;
+    }
+
+    private static Array toSqlArray(Connection connection, int[] values) throws SQLException {
+        Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return connection.createArrayOf("integer", boxed);
+    }
+}
@@ -1,22 +1,128 @@
 package com.prescription.config;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+/**
+ * STOMP over WebSocket for the notification pushes, with one of two brokers:
+ * <ul>
+ *   <li>{@code simple} (default): the in-memory broker. Subscriptions live in this instance only,
+ *   so the backend cannot run as several instances.</li>
+ *   <li>{@code relay}: subscriptions and messages go through an external STOMP broker (RabbitMQ,
+ *   ActiveMQ Artemis). A user destination whose user is connected to another instance is broadcast
+ *   to the other instances through the broker.</li>
+ * </ul>
+ * Both modes size the inbound and outbound channel pools, keep each session's messages in publish order
+ * across the outbound threads, and bound every session's send buffer, so one slow client is disconnected
+ * instead of holding up the others.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
 @CrossOrigin(origins = "*")
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    public static final String SIMPLE_BROKER = "simple";
+    public static final String RELAY_BROKER = "relay";
+
+    private final String brokerMode;
+    private final String relayHost;
+    private final int relayPort;
+    private final String clientLogin;
+    private final String clientPasscode;
+    private final String systemLogin;
+    private final String systemPasscode;
+    private final long heartbeatMillis;
+    private final int inboundThreads;
+    private final int outboundThreads;
+    private final int sendBufferSizeLimit;
+    private final int sendTimeLimitMillis;
+    private final int messageSizeLimit;
+    private final TaskScheduler messageBrokerTaskScheduler;
+
+    public WebSocketConfig(@Value("${app.websocket.broker.mode:simple}") String brokerMode,
+                           @Value("${app.websocket.broker.relay-host:localhost}") String relayHost,
+                           @Value("${app.websocket.broker.relay-port:61613}") int relayPort,
+                           @Value("${app.websocket.broker.client-login:guest}") String clientLogin,
+                           @Value("${app.websocket.broker.client-passcode:guest}") String clientPasscode,
+                           @Value("${app.websocket.broker.system-login:guest}") String systemLogin,
+                           @Value("${app.websocket.broker.system-passcode:guest}") String systemPasscode,
+                           @Value("${app.websocket.broker.heartbeat-ms:10000}") long heartbeatMillis,
+                           @Value("${app.websocket.inbound-threads:4}") int inboundThreads,
+                           @Value("${app.websocket.outbound-threads:4}") int outboundThreads,
+                           @Value("${app.websocket.send-buffer-size-kb:256}") int sendBufferSizeKb,
+                           @Value("${app.websocket.send-time-limit-ms:5000}") int sendTimeLimitMillis,
+                           @Value("${app.websocket.message-size-limit-kb:64}") int messageSizeLimitKb,
+                           @Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler messageBrokerTaskScheduler) {
+        if (!SIMPLE_BROKER.equalsIgnoreCase(brokerMode) && !RELAY_BROKER.equalsIgnoreCase(brokerMode)) {
+            throw new IllegalStateException("app.websocket.broker.mode must be " + SIMPLE_BROKER + " or "
+                    + RELAY_BROKER + ", not " + brokerMode);
+        }
+        this.brokerMode = brokerMode;
+        this.relayHost = relayHost;
+        this.relayPort = relayPort;
+        this.clientLogin = clientLogin;
+        this.clientPasscode = clientPasscode;
+        this.systemLogin = systemLogin;
+        this.systemPasscode = systemPasscode;
+        this.heartbeatMillis = heartbeatMillis;
+        this.inboundThreads = inboundThreads;
+        this.outboundThreads = outboundThreads;
+        this.sendBufferSizeLimit = sendBufferSizeKb * 1024;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.messageSizeLimit = messageSizeLimitKb * 1024;
+        this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue"); // broker
+        if (RELAY_BROKER.equalsIgnoreCase(brokerMode)) {
+            config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(clientLogin)
+                    .setClientPasscode(clientPasscode)
+                    .setSystemLogin(systemLogin)
+                    .setSystemPasscode(systemPasscode)
+                    .setSystemHeartbeatSendInterval(heartbeatMillis)
+                    .setSystemHeartbeatReceiveInterval(heartbeatMillis)
+                    // Sends to users connected to another instance, and the users each instance has
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+        } else {
+            config.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[]{heartbeatMillis, heartbeatMillis})
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+        }
         config.setApplicationDestinationPrefixes("/api");
         config.setUserDestinationPrefix("/user");
+        config.setPreservePublishOrder(true);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor().corePoolSize(inboundThreads).maxPoolSize(inboundThreads);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor().corePoolSize(outboundThreads).maxPoolSize(outboundThreads);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setSendTimeLimit(sendTimeLimitMillis)
+                .setMessageSizeLimit(messageSizeLimit);
     }
 
     @Override
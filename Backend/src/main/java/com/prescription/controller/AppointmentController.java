@@ -1,23 +1,35 @@
 package com.prescription.controller;
 
+import com.prescription.dto.AppointmentHistoryCriteria;
 import com.prescription.dto.AppointmentRequestDTO;
 import com.prescription.dto.AppointmentResponseDTO;
 import com.prescription.dto.AppointmentScheduleDTO;
+import com.prescription.dto.BulkAppointmentResultDTO;
+import com.prescription.dto.BulkRejectRequestDTO;
+import com.prescription.dto.BulkScheduleRequestDTO;
+import com.prescription.dto.DoctorAgendaDTO;
 import com.prescription.dto.DoctorSearchDTO;
+import com.prescription.dto.SlotOccupancyDTO;
 import com.prescription.entity.Appointment;
 import com.prescription.entity.Hospital;
 import com.prescription.entity.User;
+import com.prescription.exception.AppointmentConflictException;
 import com.prescription.repository.AppointmentRepository;
+import com.prescription.service.AppointmentOccupancyService;
 import com.prescription.service.AppointmentService;
+import com.prescription.service.DoctorAgendaService;
 import com.prescription.service.HospitalService;
 import com.prescription.service.UserService;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -41,6 +53,14 @@ public class AppointmentController {
     @Autowired
     private HospitalService hospitalService;
 
+    @Autowired
+    private AppointmentOccupancyService occupancyService;
+
+    @Autowired
+    private DoctorAgendaService agendaService;
+
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     // ============= PATIENT ENDPOINTS =============
 
 
@@ -89,6 +109,10 @@ public class AppointmentController {
             response.put("appointment", convertToResponseDTO(appointment));
             return ResponseEntity.ok(response);
 
+        } catch (AppointmentConflictException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Failed to request appointment: " + e.getMessage());
@@ -100,32 +124,27 @@ public class AppointmentController {
      * Patient gets their appointment history
      */
 
+    /**
+     * Booked time slot labels ("09:00 - 10:00") of a doctor at a hospital on a date
+     */
     @GetMapping("/timeslots")
-    public ResponseEntity<?> getdoctorhospitaltimeslots(@RequestParam(name = "doctorId",required = false) Long doctorid,@RequestParam(name = "hospitalId",required = false) Long hospitalid,@RequestParam(name = "date",required = false)LocalDate local,HttpServletRequest request2) {
-        System.out.println("++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++");
-            User optionalUser = userService.getUserById(doctorid).get();
-        System.out.println(1);
-            Hospital hospital=hospitalService.getHospitalById2(hospitalid);
-        System.out.println(2);
-            List<Appointment> dateandtime = appointmentRepository.findByDoctorAndHospitalAndScheduledTime(
-                    optionalUser,
-                    hospital,
-                    LocalDateTime.of(local, LocalTime.of(10, 0))
-            );
-        System.out.println(3);
-
-
-        List<String> timeslots = dateandtime.stream()
-                .map(Appointment::getDateandtime)
-                .filter(Objects::nonNull) // Ensure no null dateandtime values
-                .collect(Collectors.toList());
-
-        System.out.println(timeslots);
-        System.out.println("++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++");
-
-        return ResponseEntity.ok(timeslots);
-
+    public ResponseEntity<?> getdoctorhospitaltimeslots(@RequestParam(name = "doctorId") Long doctorid,
+                                                        @RequestParam(name = "hospitalId") Long hospitalid,
+                                                        @RequestParam(name = "date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate local) {
+        return ResponseEntity.ok(occupancyService.getBookedLabels(doctorid, hospitalid, local));
+    }
 
+    /**
+     * Every time slot of a doctor's hospital schedule between two dates, with how many appointments it holds
+     */
+    @GetMapping("/occupancy")
+    public ResponseEntity<List<SlotOccupancyDTO>> getOccupancy(
+            @RequestParam Long doctorId,
+            @RequestParam Long hospitalId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return ResponseEntity.ok(occupancyService.getOccupancy(doctorId, hospitalId, startDate,
+                endDate != null ? endDate : startDate));
     }
 
 
@@ -157,6 +176,22 @@ public class AppointmentController {
         }
     }
 
+    /**
+     * Patient's appointment history one page at a time, e.g. ?sort=scheduled&status=COMPLETED&fromDate=2025-01-01&size=20,
+     * then the same query with &cursor=<nextCursor> for the following page
+     */
+    @GetMapping("/patient/page")
+    public ResponseEntity<Map<String, Object>> getPatientAppointmentPage(
+            @ModelAttribute AppointmentHistoryCriteria criteria,
+            @RequestParam(defaultValue = "20") int size,
+            HttpServletRequest request) {
+        Long patientId = (Long) request.getAttribute("userId");
+        if (patientId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(historyPage(patientId, false, criteria, size));
+    }
+
     /**
      * Patient cancels their appointment
      */
@@ -242,6 +277,10 @@ public class AppointmentController {
             response.put("appointment", convertToResponseDTO(appointment));
             return ResponseEntity.ok(response);
 
+        } catch (AppointmentConflictException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error scheduling appointment: " + e.getMessage());
@@ -249,6 +288,60 @@ public class AppointmentController {
         }
     }
 
+    /**
+     * Doctor schedules many pending requests at once; each item reports its own outcome
+     */
+    @PostMapping("/doctor/bulk/schedule")
+    public ResponseEntity<Map<String, Object>> scheduleAppointments(
+            @Valid @RequestBody BulkScheduleRequestDTO bulkRequest,
+            HttpServletRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        Long doctorId = (Long) request.getAttribute("userId");
+        if (doctorId == null) {
+            response.put("success", false);
+            response.put("message", "Unauthorized");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        try {
+            return ResponseEntity.ok(bulkResponse(appointmentService.scheduleAppointments(doctorId, bulkRequest.getItems())));
+        } catch (AppointmentConflictException e) {
+            response.put("success", false);
+            response.put("message", "Another scheduling changed the doctor's appointments, please retry: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error scheduling appointments: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Doctor rejects many pending requests at once; each id reports its own outcome
+     */
+    @PostMapping("/doctor/bulk/reject")
+    public ResponseEntity<Map<String, Object>> rejectAppointments(
+            @Valid @RequestBody BulkRejectRequestDTO bulkRequest,
+            HttpServletRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        Long doctorId = (Long) request.getAttribute("userId");
+        if (doctorId == null) {
+            response.put("success", false);
+            response.put("message", "Unauthorized");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        try {
+            return ResponseEntity.ok(bulkResponse(appointmentService.rejectAppointments(doctorId, bulkRequest.getAppointmentIds())));
+        } catch (AppointmentConflictException e) {
+            response.put("success", false);
+            response.put("message", "Another change reached these appointments first, please retry: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error rejecting appointments: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * Doctor rejects appointment request
      */
@@ -327,6 +420,21 @@ public class AppointmentController {
         }
     }
 
+    /**
+     * Doctor's appointments one page at a time, same parameters as /patient/page
+     */
+    @GetMapping("/doctor/page")
+    public ResponseEntity<Map<String, Object>> getDoctorAppointmentPage(
+            @ModelAttribute AppointmentHistoryCriteria criteria,
+            @RequestParam(defaultValue = "20") int size,
+            HttpServletRequest request) {
+        Long doctorId = (Long) request.getAttribute("userId");
+        if (doctorId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(historyPage(doctorId, true, criteria, size));
+    }
+
     /**
      * Doctor gets appointments by specific date
      */
@@ -345,6 +453,29 @@ public class AppointmentController {
         }
     }
 
+    /**
+     * Doctor's appointments, availability slots and exceptions of one or more days (up to a week)
+     * as one timeline. Answers 304 when If-None-Match carries the agenda's current ETag.
+     */
+    @GetMapping("/doctor/{doctorId}/agenda")
+    public ResponseEntity<DoctorAgendaDTO> getAgenda(
+            @PathVariable Long doctorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "1") int days,
+            WebRequest webRequest) {
+        try {
+            DoctorAgendaDTO agenda = agendaService.getAgenda(doctorId, date, days);
+            if (webRequest.checkNotModified(agenda.getEtag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(agenda.getEtag()).build();
+            }
+            return ResponseEntity.ok().eTag(agenda.getEtag()).body(agenda);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     /**
      * Doctor marks appointment as completed
      */
@@ -469,9 +600,50 @@ public class AppointmentController {
             dto.setPatient(patientInfo);
         }
 
+        // Set hospital information
+        if (appointment.getHospital() != null) {
+            Map<String, Object> hospitalInfo = new HashMap<>();
+            hospitalInfo.put("id", appointment.getHospital().getId());
+            hospitalInfo.put("name", appointment.getHospital().getName());
+            hospitalInfo.put("address", appointment.getHospital().getAddress());
+            hospitalInfo.put("city", appointment.getHospital().getCity());
+            dto.setHospital(hospitalInfo);
+        }
+
         return dto;
     }
 
+    /**
+     * One keyset page of a user's appointment history, with the cursor of the next page
+     */
+    private Map<String, Object> historyPage(Long userId, boolean asDoctor, AppointmentHistoryCriteria criteria, int size) {
+        Slice<Appointment> page = appointmentService.getAppointmentHistory(userId, asDoctor, criteria,
+                Math.min(Math.max(size, 1), MAX_HISTORY_PAGE_SIZE));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("appointments", page.getContent().stream()
+                .map(this::convertToResponseDTO)
+                .collect(Collectors.toList()));
+        response.put("size", page.getSize());
+        response.put("hasNext", page.hasNext());
+        response.put("nextCursor", AppointmentService.nextHistoryCursor(page, criteria.getSort()));
+        return response;
+    }
+
+    /**
+     * Per-item results of a bulk operation with the succeeded and failed counts
+     */
+    private Map<String, Object> bulkResponse(List<BulkAppointmentResultDTO> results) {
+        long succeeded = results.stream().filter(BulkAppointmentResultDTO::isSuccess).count();
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("results", results);
+        response.put("succeeded", succeeded);
+        response.put("failed", results.size() - succeeded);
+        return response;
+    }
+
     /**
      * Convert User (Doctor) entity to Search DTO
      */
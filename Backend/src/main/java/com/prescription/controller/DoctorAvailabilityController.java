@@ -2,18 +2,25 @@
 
 package com.prescription.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.prescription.dto.*;
 import com.prescription.entity.*;
+import com.prescription.exception.SlotBookingConflictException;
 import com.prescription.service.DoctorAvailabilityService;
 import com.prescription.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
@@ -31,6 +38,12 @@ public class DoctorAvailabilityController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_STREAM_LIMIT = 500;
+
     // ============= TEMPLATE MANAGEMENT =============
 
     @PostMapping("/templates")
@@ -305,6 +318,10 @@ public class DoctorAvailabilityController {
             response.put("slot", availabilityService.convertToSlotDTO(slot));
             return ResponseEntity.ok(response);
 
+        } catch (SlotBookingConflictException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         } catch (IllegalStateException e) {
             response.put("success", false);
             response.put("message", e.getMessage());
@@ -403,10 +420,12 @@ public class DoctorAvailabilityController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
 
-            availabilityService.regenerateAllSlots(doctorId);
+            SlotGenerationResult result = availabilityService.regenerateAllSlots(doctorId);
 
             response.put("success", true);
             response.put("message", "All slots regenerated successfully");
+            response.put("slotsGenerated", result.getSlotsGenerated());
+            response.put("elapsedMillis", result.getElapsedMillis());
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
@@ -433,12 +452,9 @@ public class DoctorAvailabilityController {
                 endDate = LocalDate.now().plusDays(30); // 30 days from now
             }
 
-            List<DoctorAvailabilitySlot> slots = availabilityService.getDoctorAvailableSlots(doctorId, startDate, endDate);
-            // Filter only available slots for public access
-            List<DoctorAvailabilitySlotDTO> availableSlots = slots.stream()
-                    .filter(slot -> slot.getSlotStatus() == DoctorAvailabilitySlot.SlotStatus.AVAILABLE)
-                    .map(availabilityService::convertToSlotDTO)
-                    .collect(Collectors.toList());
+            // Only available slots are exposed publicly
+            List<DoctorAvailabilitySlotDTO> availableSlots =
+                    availabilityService.getPublicAvailableSlots(doctorId, startDate, endDate);
 
             return ResponseEntity.ok(availableSlots);
 
@@ -452,12 +468,9 @@ public class DoctorAvailabilityController {
             @PathVariable Long doctorId,
             @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
         try {
-            List<DoctorAvailabilitySlot> slots = availabilityService.getDoctorSlotsForDate(doctorId, date);
-            // Filter only available slots for public access
-            List<DoctorAvailabilitySlotDTO> availableSlots = slots.stream()
-                    .filter(slot -> slot.getSlotStatus() == DoctorAvailabilitySlot.SlotStatus.AVAILABLE)
-                    .map(availabilityService::convertToSlotDTO)
-                    .collect(Collectors.toList());
+            // Only available slots are exposed publicly
+            List<DoctorAvailabilitySlotDTO> availableSlots =
+                    availabilityService.getPublicAvailableSlots(doctorId, date, date);
 
             return ResponseEntity.ok(availableSlots);
 
@@ -465,4 +478,48 @@ public class DoctorAvailabilityController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
\ No newline at end of file
+
+    // Earliest free slots across doctors, e.g. ?specialization=cardio&fromDate=2025-01-02&toDate=2025-01-02&dayStart=08:00&dayEnd=12:00
+    @GetMapping("/public/search")
+    public ResponseEntity<Map<String, Object>> searchAvailableSlots(
+            @ModelAttribute SlotSearchCriteria criteria,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Slice<SlotSearchResultDTO> slots = availabilityService.searchAvailableSlots(
+                    criteria, Math.max(page, 0), Math.min(Math.max(size, 1), MAX_SEARCH_PAGE_SIZE));
+
+            response.put("success", true);
+            response.put("slots", slots.getContent());
+            response.put("page", slots.getNumber());
+            response.put("size", slots.getSize());
+            response.put("hasNext", slots.hasNext());
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error searching slots: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Same search written as newline-delimited JSON while rows are read, for the first {@code limit} results
+    @GetMapping(value = "/public/search/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAvailableSlots(
+            @ModelAttribute SlotSearchCriteria criteria,
+            @RequestParam(defaultValue = "100") int limit) {
+        int boundedLimit = Math.min(Math.max(limit, 1), MAX_SEARCH_STREAM_LIMIT);
+        StreamingResponseBody body = outputStream -> availabilityService.streamAvailableSlots(criteria, boundedLimit, slot -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(slot));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+}
@@ -6,9 +6,11 @@ import com.prescription.repository.DoctorHospitalScheduleRepository;
 import com.prescription.service.DoctorHospitalScheduleService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalTime;
 import java.util.List;
 
 @RestController
@@ -30,6 +32,15 @@ public class DoctorHospitalScheduleController {
         return ResponseEntity.ok(schedules);
     }
 
+    // Which doctors are at a hospital on a given day and time, e.g. ?hospitalId=3&dayOfWeek=MONDAY&time=10:00
+    @GetMapping("/at")
+    public ResponseEntity<List<DoctorHospitalScheduleDto>> getSchedulesAtHospitalAt(
+            @RequestParam Long hospitalId,
+            @RequestParam String dayOfWeek,
+            @RequestParam @DateTimeFormat(pattern = "HH:mm") LocalTime time) {
+        return ResponseEntity.ok(scheduleService.getSchedulesAtHospitalAt(hospitalId, dayOfWeek, time));
+    }
+
     @PostMapping
     public ResponseEntity<DoctorHospitalScheduleDto> createSchedule(
             HttpServletRequest request, @RequestBody DoctorHospitalScheduleDto scheduleDto) {
@@ -0,0 +1,31 @@
+package com.prescription.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One item of a doctor's agenda: an appointment, an availability slot or an availability exception.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgendaEntryDTO {
+
+    // Also the order of entries starting at the same time
+    public enum Kind {
+        EXCEPTION, SLOT, APPOINTMENT
+    }
+
+    private Kind kind;
+    private Long id;
+    private LocalDateTime start;
+    private LocalDateTime end;     // null for appointments without a blocked range
+    private String status;         // appointment or slot status, exception type
+    private String title;          // patient name for appointments, reason for exceptions
+    private Long patientId;
+    private String type;           // appointment type
+    private Long hospitalId;
+}
@@ -0,0 +1,19 @@
+package com.prescription.dto;
+
+import com.prescription.entity.Appointment;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class AppointmentHistoryCriteria {
+    private String sort;                        // "created" (default) or "scheduled", newest first either way
+    private List<Appointment.Status> status;    // any of these, null for every status
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate fromDate;                 // scheduled on or after, null for no lower bound
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate toDate;                   // scheduled on or before, null for no upper bound
+    private String cursor;                      // nextCursor of the previous page, null for the first page
+}
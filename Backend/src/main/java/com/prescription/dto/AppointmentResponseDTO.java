@@ -23,4 +23,5 @@ public class AppointmentResponseDTO {
     private LocalDateTime updatedAt;
     private Map<String, Object> doctor;
     private Map<String, Object> patient;
+    private Map<String, Object> hospital;
 }
@@ -0,0 +1,38 @@
+package com.prescription.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentStatisticsDTO {
+    private long totalAppointments;
+    private long pendingRequests;
+    private long scheduledAppointments;
+    private long completedAppointments;
+    private long cancelledAppointments;
+    private long todaysAppointments;
+    private long thisWeekAppointments;
+    private long newPatients;
+    private long totalUniquePatients;
+
+    // Shape the dashboard reads from /appointments/doctor/{doctorId}/stats
+    public Map<String, Object> toMap() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalAppointments", totalAppointments);
+        stats.put("pendingRequests", pendingRequests);
+        stats.put("scheduledAppointments", scheduledAppointments);
+        stats.put("completedAppointments", completedAppointments);
+        stats.put("cancelledAppointments", cancelledAppointments);
+        stats.put("todaysAppointments", todaysAppointments);
+        stats.put("thisWeekAppointments", thisWeekAppointments);
+        stats.put("newPatients", newPatients);
+        stats.put("totalUniquePatients", totalUniquePatients);
+        return stats;
+    }
+}
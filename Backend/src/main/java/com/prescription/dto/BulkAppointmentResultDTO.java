@@ -0,0 +1,23 @@
+package com.prescription.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAppointmentResultDTO {
+
+    public enum Outcome {
+        SCHEDULED, REJECTED, NOT_FOUND, NOT_PENDING, DUPLICATE, INVALID_TIME, CONFLICT
+    }
+
+    private Long appointmentId;
+    private Outcome outcome;
+    private String message;
+
+    public boolean isSuccess() {
+        return outcome == Outcome.SCHEDULED || outcome == Outcome.REJECTED;
+    }
+}
@@ -0,0 +1,15 @@
+package com.prescription.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkRejectRequestDTO {
+
+    @NotEmpty(message = "At least one appointment is required")
+    @Size(max = 500, message = "At most 500 appointments per request")
+    private List<Long> appointmentIds;
+}
@@ -0,0 +1,30 @@
+package com.prescription.dto;
+
+import com.prescription.entity.Appointment;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class BulkScheduleRequestDTO {
+
+    @NotEmpty(message = "At least one appointment is required")
+    @Size(max = 500, message = "At most 500 appointments per request")
+    @Valid
+    private List<Item> items;
+
+    @Data
+    public static class Item {
+        @NotNull(message = "Appointment id is required")
+        private Long appointmentId;
+        private LocalDateTime scheduledTime;    // null keeps the requested time
+        private Appointment.Type type;          // null keeps the requested type
+        private String location;
+        private String notes;
+    }
+}
@@ -0,0 +1,22 @@
+package com.prescription.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorAgendaDTO {
+    private Long doctorId;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private List<AgendaEntryDTO> entries;  // ordered by start time
+
+    @JsonIgnore
+    private String etag;                   // sent as the ETag header, changes with any entry
+}
@@ -0,0 +1,18 @@
+package com.prescription.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotGenerationResult {
+    private int slotsGenerated;
+    private int slotsRemoved;
+    private long elapsedMillis;
+
+    public SlotGenerationResult(int slotsGenerated, long elapsedMillis) {
+        this(slotsGenerated, 0, elapsedMillis);
+    }
+}
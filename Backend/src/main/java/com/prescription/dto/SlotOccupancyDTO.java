@@ -0,0 +1,20 @@
+package com.prescription.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotOccupancyDTO {
+    private LocalDate date;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private String label;          // "09:00 - 10:00", the format appointments store in dateandtime
+    private boolean booked;
+    private int appointmentCount;  // active (not cancelled) appointments starting in the slot
+}
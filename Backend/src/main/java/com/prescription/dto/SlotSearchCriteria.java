@@ -0,0 +1,21 @@
+package com.prescription.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+public class SlotSearchCriteria {
+    private String specialization;  // matched case-insensitively as a substring, null for any
+    private Long hospitalId;        // doctor must work there on the slot's weekday, null for any
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate fromDate;     // defaults to today
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate toDate;       // defaults to fromDate + 30 days
+    @DateTimeFormat(pattern = "HH:mm")
+    private LocalTime dayStart;     // time-of-day window, e.g. 08:00-12:00 for "morning"
+    @DateTimeFormat(pattern = "HH:mm")
+    private LocalTime dayEnd;
+}
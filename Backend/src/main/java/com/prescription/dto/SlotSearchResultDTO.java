@@ -0,0 +1,22 @@
+package com.prescription.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotSearchResultDTO {
+    private Long slotId;
+    private Long doctorId;
+    private String doctorName;
+    private String specialization;
+    private String institute;
+    private LocalDate slotDate;
+    private LocalTime startTime;
+    private LocalTime endTime;
+}
@@ -8,16 +8,38 @@ import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 
 // Appointment Entity
 @Data
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+        @Index(name = "idx_appointment_doctor_hospital_time", columnList = "doctor_user_id, hospital_id, scheduled_time"),
+        @Index(name = "idx_appointment_doctor_patient", columnList = "doctor_user_id, patient_user_id"),
+        @Index(name = "idx_appointment_doctor_created_id", columnList = "doctor_user_id, created_at, id"),
+        @Index(name = "idx_appointment_doctor_time_id", columnList = "doctor_user_id, scheduled_time, id"),
+        @Index(name = "idx_appointment_patient_created_id", columnList = "patient_user_id, created_at, id"),
+        @Index(name = "idx_appointment_patient_time_id", columnList = "patient_user_id, scheduled_time, id")
+})
 @EntityListeners(AuditingEntityListener.class)
+// Doctor, patient and hospital summaries shown in appointment lists, fetched with the rows
+@NamedEntityGraph(name = Appointment.SUMMARY_GRAPH, attributeNodes = {
+        @NamedAttributeNode("doctor"),
+        @NamedAttributeNode("patient"),
+        @NamedAttributeNode("hospital")
+})
 public class Appointment {
 
+    public static final String SUMMARY_GRAPH = "Appointment.summary";
+
+    // Statuses that keep the doctor busy; no two of them may overlap (appointments_no_overlap)
+    public static final Set<Status> BLOCKING_STATUSES = EnumSet.of(Status.SCHEDULED, Status.CONFIRMED);
+
     // Getters and Setters
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -48,6 +70,14 @@ public class Appointment {
     @JoinColumn(name = "patient_user_id", nullable = false)
     private User patient;
 
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private long version; // Bumped on every change, status transitions compare and set on the status instead
+
+    // Until when the doctor is busy with this appointment: slot duration plus buffer time
+    @Column(name = "blocked_until")
+    private LocalDateTime blockedUntil;
+
     @Column(name = "followup_date")
     private LocalDateTime followupDate;
 
@@ -83,6 +113,34 @@ public class Appointment {
         REQUESTED, SCHEDULED, CONFIRMED, COMPLETED, CANCELLED
     }
 
+    // Every allowed status change: the statuses an action may start from and the one it leads to
+    public enum Transition {
+        SCHEDULE(Status.SCHEDULED, Status.REQUESTED),
+        REJECT(Status.CANCELLED, Status.REQUESTED),
+        CANCEL_BY_PATIENT(Status.CANCELLED, Status.REQUESTED, Status.SCHEDULED),
+        COMPLETE(Status.COMPLETED, Status.SCHEDULED, Status.CONFIRMED);
+
+        private final Status target;
+        private final Set<Status> sources;
+
+        Transition(Status target, Status... sources) {
+            this.target = target;
+            this.sources = Collections.unmodifiableSet(EnumSet.copyOf(Arrays.asList(sources)));
+        }
+
+        public Status getTarget() {
+            return target;
+        }
+
+        public Set<Status> getSources() {
+            return sources;
+        }
+
+        public boolean allowsFrom(Status status) {
+            return sources.contains(status);
+        }
+    }
+
     public enum Type {
         IN_PERSON, VIDEO, PHONE
     }
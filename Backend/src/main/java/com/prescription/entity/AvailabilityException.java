@@ -7,7 +7,9 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "availability_exceptions")
+@Table(name = "availability_exceptions", indexes = {
+        @Index(name = "idx_availability_exception_doctor_date", columnList = "doctor_id, exception_date")
+})
 @Data
 public class AvailabilityException {
     @Id
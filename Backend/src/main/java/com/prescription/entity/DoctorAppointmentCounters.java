@@ -0,0 +1,45 @@
+package com.prescription.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model behind the doctor dashboard: appointment counts kept up to date in the same
+ * transaction as every appointment change, and repaired by the nightly reconciliation.
+ */
+@Entity
+@Table(name = "doctor_appointment_counters")
+@Data
+public class DoctorAppointmentCounters {
+    @Id
+    @Column(name = "doctor_id")
+    private Long doctorId;
+
+    @Column(name = "total", nullable = false)
+    private long total;
+
+    @Column(name = "requested", nullable = false)
+    private long requested;
+
+    // SCHEDULED and CONFIRMED
+    @Column(name = "scheduled", nullable = false)
+    private long scheduled;
+
+    @Column(name = "completed", nullable = false)
+    private long completed;
+
+    @Column(name = "cancelled", nullable = false)
+    private long cancelled;
+
+    @Column(name = "unique_patients", nullable = false)
+    private long uniquePatients;
+
+    // Patients whose first appointment with the doctor is still requested or scheduled
+    @Column(name = "new_patients", nullable = false)
+    private long newPatients;
+
+    @Column(name = "reconciled_at")
+    private LocalDateTime reconciledAt;
+}
@@ -8,7 +8,12 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "doctor_availability_slots")
+@Table(name = "doctor_availability_slots", indexes = {
+        // Earliest-free-slot search across doctors
+        @Index(name = "idx_slot_status_date_time", columnList = "slot_status, slot_date, start_time"),
+        // A doctor's slots of a day or week, e.g. for the agenda
+        @Index(name = "idx_slot_doctor_date_time", columnList = "doctor_id, slot_date, start_time")
+})
 @Data
 public class DoctorAvailabilitySlot {
     @Id
@@ -35,6 +40,10 @@ public class DoctorAvailabilitySlot {
     @Column(name = "generated_from_template_id")
     private Long generatedFromTemplateId; // Reference to the template that created this slot
 
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private long version; // Bumped on every status change, used for conditional booking
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -1,16 +1,23 @@
 package com.prescription.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.prescription.util.ScheduleTimeSlots;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
+import java.time.DayOfWeek;
+
 @Entity
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
-@Table(name = "doctor_hospital_schedules")
+@Table(name = "doctor_hospital_schedules", indexes = {
+        @Index(name = "idx_dhs_hospital_day", columnList = "hospital_id, day_of_week"),
+        @Index(name = "idx_dhs_doctor_hospital_day", columnList = "doctor_id, hospital_id, day_of_week")
+})
 @EntityListeners(AuditingEntityListener.class)
 public class DoctorHospitalSchedule {
     @Id
@@ -23,9 +30,39 @@ public class DoctorHospitalSchedule {
     @Column(name = "hospital_id", nullable = false)
     private Long hospitalId;
 
+    @Enumerated(EnumType.STRING)
     @Column(name = "day_of_week", nullable = false)
-    private String dayOfWeek; // e.g., "MONDAY", "TUESDAY"
+    private DayOfWeek dayOfWeek; // Stored as "MONDAY", "TUESDAY", ...
+
+    // Time slots as minute of day, sorted by start; slot i is [slotStartMinutes[i], slotEndMinutes[i])
+    @JsonIgnore
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "slot_start_minutes")
+    private int[] slotStartMinutes;
+
+    @JsonIgnore
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "slot_end_minutes")
+    private int[] slotEndMinutes;
+
+    public DoctorHospitalSchedule(Long id, Long doctorId, Long hospitalId, DayOfWeek dayOfWeek, String timeSlots) {
+        this.id = id;
+        this.doctorId = doctorId;
+        this.hospitalId = hospitalId;
+        this.dayOfWeek = dayOfWeek;
+        setTimeSlots(timeSlots);
+    }
+
+    /**
+     * Time slots in the API format, e.g. "09:00-10:00,10:00-11:00".
+     */
+    public String getTimeSlots() {
+        return ScheduleTimeSlots.format(slotStartMinutes, slotEndMinutes);
+    }
 
-    @Column(name = "time_slots", nullable = false)
-    private String timeSlots; // e.g., "09:00,09:30,10:00"
-}
\ No newline at end of file
+    public void setTimeSlots(String timeSlots) {
+        int[][] slots = ScheduleTimeSlots.parse(timeSlots);
+        this.slotStartMinutes = slots[0];
+        this.slotEndMinutes = slots[1];
+    }
+}
@@ -0,0 +1,100 @@
+package com.prescription.entity;
+
+import com.prescription.util.MedicationRecurrence;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * A medicine reminder and when it fires next. The scheduler only searches next_fire_at: due rows are
+ * claimed with FOR UPDATE SKIP LOCKED and moved on to their next occurrence in the same transaction.
+ */
+@Entity
+@Table(name = "reminder_schedule",
+        indexes = @Index(name = "idx_reminder_schedule_next_fire", columnList = "next_fire_at"))
+@Data
+public class ReminderSchedule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "prescription_id")
+    private Long prescriptionId;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(columnDefinition = "TEXT")
+    private String message;
+
+    @Column(name = "reminder_time")
+    private LocalTime reminderTime;
+
+    @Column(name = "frequency")
+    private String frequency;
+
+    // Null fires once
+    @Column(name = "interval_minutes")
+    private Integer intervalMinutes;
+
+    // Null once the schedule has ended
+    @Column(name = "next_fire_at")
+    private LocalDateTime nextFireAt;
+
+    // Exclusive, null repeats indefinitely
+    @Column(name = "ends_at")
+    private LocalDateTime endsAt;
+
+    @Column(name = "last_fired_at")
+    private LocalDateTime lastFiredAt;
+
+    // The MEDICINE_REMINDER notification a migrated schedule was created from
+    @Column(name = "source_notification_id")
+    private UUID sourceNotificationId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    // Frequencies of MEDICINE_REMINDER notifications, anything else fires once
+    public static Integer intervalMinutesOf(String frequency) {
+        if (frequency == null) {
+            return null;
+        }
+        return switch (frequency) {
+            case "TWICE_DAILY" -> 12 * 60;
+            case "DAILY" -> 24 * 60;
+            case "WEEKLY" -> 7 * 24 * 60;
+            default -> null;
+        };
+    }
+
+    /**
+     * The remaining doses: from the next fire time every interval, until the end of the course.
+     */
+    public MedicationRecurrence recurrence() {
+        return new MedicationRecurrence(nextFireAt,
+                intervalMinutes != null && intervalMinutes > 0 ? Duration.ofMinutes(intervalMinutes) : null, endsAt);
+    }
+
+    /**
+     * The first occurrence strictly after {@code after}, skipping every missed one at once,
+     * or null when there is none before the schedule ends.
+     */
+    public LocalDateTime nextOccurrenceAfter(LocalDateTime after) {
+        return nextFireAt != null ? recurrence().nextAfter(after) : null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.prescription.event;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Appointment events of one bulk operation, dispatched together after it commits.
+ */
+@Value
+public class AppointmentBatchEvent {
+    List<AppointmentEvent> events;
+}
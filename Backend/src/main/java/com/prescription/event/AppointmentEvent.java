@@ -0,0 +1,53 @@
+package com.prescription.event;
+
+import com.prescription.entity.Appointment;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Something happened to an appointment. Published inside the changing transaction and carrying
+ * a snapshot of what listeners need, so they can run after commit on another thread without
+ * touching lazy entity state.
+ */
+@Value
+public class AppointmentEvent {
+
+    public enum Kind {
+        REQUESTED, SCHEDULED, CANCELLED_BY_PATIENT, REJECTED
+    }
+
+    Kind kind;
+    Long appointmentId;
+    Long doctorId;
+    String doctorName;
+    Long patientId;
+    String patientName;
+    LocalDateTime scheduledTime;
+    LocalDateTime followupDate;
+    String location;
+    String notes;
+
+    public static AppointmentEvent requested(Appointment appointment) {
+        return of(Kind.REQUESTED, appointment, null);
+    }
+
+    public static AppointmentEvent scheduled(Appointment appointment, String location) {
+        return of(Kind.SCHEDULED, appointment, location);
+    }
+
+    public static AppointmentEvent cancelledByPatient(Appointment appointment) {
+        return of(Kind.CANCELLED_BY_PATIENT, appointment, null);
+    }
+
+    public static AppointmentEvent rejected(Appointment appointment) {
+        return of(Kind.REJECTED, appointment, null);
+    }
+
+    private static AppointmentEvent of(Kind kind, Appointment appointment, String location) {
+        return new AppointmentEvent(kind, appointment.getId(),
+                appointment.getDoctor().getId(), appointment.getDoctor().getName(),
+                appointment.getPatient().getId(), appointment.getPatient().getName(),
+                appointment.getScheduledTime(), appointment.getFollowupDate(), location, appointment.getNotes());
+    }
+}
@@ -0,0 +1,19 @@
+package com.prescription.exception;
+
+/**
+ * Thrown when an appointment would overlap another scheduled appointment of the same doctor,
+ * including the slot duration and buffer time the doctor keeps between appointments.
+ */
+public class AppointmentConflictException extends RuntimeException {
+
+    private final Long appointmentId;
+
+    public AppointmentConflictException(Long appointmentId, String message) {
+        super(message);
+        this.appointmentId = appointmentId;
+    }
+
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+}
@@ -0,0 +1,19 @@
+package com.prescription.exception;
+
+/**
+ * Thrown to the losing side of a concurrent slot booking: the slot was taken
+ * by someone else, or kept changing until the retry budget ran out.
+ */
+public class SlotBookingConflictException extends RuntimeException {
+
+    private final Long slotId;
+
+    public SlotBookingConflictException(Long slotId, String message) {
+        super(message);
+        this.slotId = slotId;
+    }
+
+    public Long getSlotId() {
+        return slotId;
+    }
+}
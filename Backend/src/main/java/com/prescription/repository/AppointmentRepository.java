@@ -1,10 +1,16 @@
 package com.prescription.repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
+import com.prescription.dto.AppointmentStatisticsDTO;
 import com.prescription.entity.Hospital;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -14,36 +20,180 @@ import com.prescription.entity.Appointment;
 import com.prescription.entity.User;
 
 @Repository
-public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+public interface AppointmentRepository extends JpaRepository<Appointment, Long>, AppointmentTransitionRepository {
+
+    // Lists rendered with their doctor, patient and hospital load them in the same select (Appointment.SUMMARY_GRAPH)
 
     // Existing methods
+    @EntityGraph(Appointment.SUMMARY_GRAPH)
     List<Appointment> findByDoctorAndStatus(User doctor, Appointment.Status status);
 
+    @EntityGraph(Appointment.SUMMARY_GRAPH)
     List<Appointment> findByPatientAndStatus(User patient, Appointment.Status status);
 
     List<Appointment> findByDoctorAndHospitalAndScheduledTime(User doctor, Hospital hospital,LocalDateTime scheduledTime);
 
     List<Appointment> findByDoctorAndStatusIn(User doctor, List<Appointment.Status> statuses);
 
+    @Query("SELECT a.scheduledTime FROM Appointment a WHERE a.doctor.id = :doctorId AND a.hospital.id = :hospitalId " +
+            "AND a.scheduledTime >= :start AND a.scheduledTime < :end AND a.status <> :excludedStatus " +
+            "ORDER BY a.scheduledTime")
+    List<LocalDateTime> findScheduledTimesForOccupancy(@Param("doctorId") Long doctorId,
+                                                       @Param("hospitalId") Long hospitalId,
+                                                       @Param("start") LocalDateTime start,
+                                                       @Param("end") LocalDateTime end,
+                                                       @Param("excludedStatus") Appointment.Status excludedStatus);
+
+    /**
+     * Dashboard counters of a doctor in a single pass over their appointments. A new patient is one
+     * whose first appointment with the doctor is still requested or scheduled.
+     */
+    @Query("SELECT new com.prescription.dto.AppointmentStatisticsDTO(" +
+            "COUNT(a), " +
+            "COUNT(a) FILTER (WHERE a.status = :requested), " +
+            "COUNT(a) FILTER (WHERE a.status IN (:scheduled, :confirmed)), " +
+            "COUNT(a) FILTER (WHERE a.status = :completed), " +
+            "COUNT(a) FILTER (WHERE a.status = :cancelled), " +
+            "COUNT(a) FILTER (WHERE CAST(a.scheduledTime AS LocalDate) = :today), " +
+            "COUNT(a) FILTER (WHERE CAST(a.scheduledTime AS LocalDate) BETWEEN :weekStart AND :weekEnd), " +
+            "COUNT(a) FILTER (WHERE a.status IN (:requested, :scheduled) AND NOT EXISTS (" +
+            "SELECT 1 FROM Appointment earlier WHERE earlier.doctor.id = :doctorId " +
+            "AND earlier.patient.id = a.patient.id AND earlier.id < a.id)), " +
+            "COUNT(DISTINCT a.patient.id)) " +
+            "FROM Appointment a WHERE a.doctor.id = :doctorId")
+    AppointmentStatisticsDTO aggregateStatistics(@Param("doctorId") Long doctorId,
+                                                 @Param("today") LocalDate today,
+                                                 @Param("weekStart") LocalDate weekStart,
+                                                 @Param("weekEnd") LocalDate weekEnd,
+                                                 @Param("requested") Appointment.Status requested,
+                                                 @Param("scheduled") Appointment.Status scheduled,
+                                                 @Param("confirmed") Appointment.Status confirmed,
+                                                 @Param("completed") Appointment.Status completed,
+                                                 @Param("cancelled") Appointment.Status cancelled);
+
+    // Whether another blocking appointment of the doctor overlaps [start, end)
+    @Query("SELECT COUNT(a) > 0 FROM Appointment a WHERE a.doctor.id = :doctorId AND a.id <> :appointmentId " +
+            "AND a.status IN :statuses AND a.scheduledTime < :end AND a.blockedUntil > :start")
+    boolean existsOverlapping(@Param("doctorId") Long doctorId,
+                              @Param("appointmentId") Long appointmentId,
+                              @Param("start") LocalDateTime start,
+                              @Param("end") LocalDateTime end,
+                              @Param("statuses") Collection<Appointment.Status> statuses);
+
+    // Blocking appointments of the doctor overlapping [from, to), for checking many candidates at once
+    @Query("SELECT a FROM Appointment a WHERE a.doctor.id = :doctorId AND a.status IN :statuses " +
+            "AND a.scheduledTime < :to AND a.blockedUntil > :from")
+    List<Appointment> findBlockingBetween(@Param("doctorId") Long doctorId,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to,
+                                          @Param("statuses") Collection<Appointment.Status> statuses);
+
+    @EntityGraph(Appointment.SUMMARY_GRAPH)
+    List<Appointment> findByDoctorIdAndIdIn(Long doctorId, Collection<Long> ids);
+
+    // How many of these appointments are the first their patient had with the doctor
+    @Query("SELECT COUNT(a) FROM Appointment a WHERE a.id IN :ids AND NOT EXISTS (SELECT 1 FROM Appointment earlier " +
+            "WHERE earlier.doctor.id = a.doctor.id AND earlier.patient.id = a.patient.id AND earlier.id < a.id)")
+    long countFirstWithDoctor(@Param("ids") Collection<Long> ids);
+
+    // Whether the patient had an appointment with the doctor before this one
+    boolean existsByDoctorIdAndPatientIdAndIdLessThan(Long doctorId, Long patientId, Long appointmentId);
+
+    long countByDoctorIdAndScheduledTimeGreaterThanEqualAndScheduledTimeLessThan(Long doctorId, LocalDateTime from,
+                                                                                 LocalDateTime to);
+
+    @Query("SELECT DISTINCT a.doctor.id FROM Appointment a")
+    List<Long> findDistinctDoctorIds();
+
+    // Strictly after (afterTime, afterId) in descending order; the redundant <= bounds the index scan
+    String AFTER_CREATED = "a.createdAt <= :afterTime AND (a.createdAt < :afterTime OR a.id < :afterId) ";
+    String AFTER_SCHEDULED = "a.scheduledTime <= :afterTime AND (a.scheduledTime < :afterTime OR a.id < :afterId) ";
+
+    String HISTORY_PAGE =
+            "SELECT a FROM Appointment a JOIN FETCH a.doctor JOIN FETCH a.patient JOIN FETCH a.hospital " +
+            "WHERE a.status IN :statuses AND a.scheduledTime >= :from AND a.scheduledTime < :to ";
+
+    /*
+     * Appointment history pages, newest first. Each page continues strictly after the (time, id) of the
+     * previous page's last row, so it is an index range scan on (user, time, id) however deep it goes.
+     * Pass every status, a far-past/far-future date range and a far-future cursor for no filter or the first page.
+     */
+    @Query(HISTORY_PAGE + "AND a.patient.id = :userId AND " + AFTER_CREATED +
+            "ORDER BY a.createdAt DESC, a.id DESC")
+    Slice<Appointment> findPatientHistoryByCreatedAt(@Param("userId") Long patientId,
+                                                     @Param("statuses") Collection<Appointment.Status> statuses,
+                                                     @Param("from") LocalDateTime from,
+                                                     @Param("to") LocalDateTime to,
+                                                     @Param("afterTime") LocalDateTime afterTime,
+                                                     @Param("afterId") Long afterId,
+                                                     Pageable pageable);
+
+    @Query(HISTORY_PAGE + "AND a.patient.id = :userId AND " + AFTER_SCHEDULED +
+            "ORDER BY a.scheduledTime DESC, a.id DESC")
+    Slice<Appointment> findPatientHistoryByScheduledTime(@Param("userId") Long patientId,
+                                                         @Param("statuses") Collection<Appointment.Status> statuses,
+                                                         @Param("from") LocalDateTime from,
+                                                         @Param("to") LocalDateTime to,
+                                                         @Param("afterTime") LocalDateTime afterTime,
+                                                         @Param("afterId") Long afterId,
+                                                         Pageable pageable);
+
+    @Query(HISTORY_PAGE + "AND a.doctor.id = :userId AND " + AFTER_CREATED +
+            "ORDER BY a.createdAt DESC, a.id DESC")
+    Slice<Appointment> findDoctorHistoryByCreatedAt(@Param("userId") Long doctorId,
+                                                    @Param("statuses") Collection<Appointment.Status> statuses,
+                                                    @Param("from") LocalDateTime from,
+                                                    @Param("to") LocalDateTime to,
+                                                    @Param("afterTime") LocalDateTime afterTime,
+                                                    @Param("afterId") Long afterId,
+                                                    Pageable pageable);
+
+    @Query(HISTORY_PAGE + "AND a.doctor.id = :userId AND " + AFTER_SCHEDULED +
+            "ORDER BY a.scheduledTime DESC, a.id DESC")
+    Slice<Appointment> findDoctorHistoryByScheduledTime(@Param("userId") Long doctorId,
+                                                        @Param("statuses") Collection<Appointment.Status> statuses,
+                                                        @Param("from") LocalDateTime from,
+                                                        @Param("to") LocalDateTime to,
+                                                        @Param("afterTime") LocalDateTime afterTime,
+                                                        @Param("afterId") Long afterId,
+                                                        Pageable pageable);
+
     // New methods for enhanced functionality
     List<Appointment> findByDoctor(User doctor);
 
+    @EntityGraph(Appointment.SUMMARY_GRAPH)
     List<Appointment> findByPatient(User patient);
     // ...existing code...
     List<Appointment> findByScheduledTimeBetweenAndStatus(LocalDateTime start, LocalDateTime end, Appointment.Status status);
 
+    @EntityGraph(Appointment.SUMMARY_GRAPH)
+    List<Appointment> findByIdIn(Collection<Long> ids);
+
+    @EntityGraph(Appointment.SUMMARY_GRAPH)
     List<Appointment> findByDoctorOrderByCreatedAtDesc(User doctor);
 
+    @EntityGraph(Appointment.SUMMARY_GRAPH)
     List<Appointment> findByPatientOrderByCreatedAtDesc(User patient);
 
+    @EntityGraph(Appointment.SUMMARY_GRAPH)
     List<Appointment> findByDoctorAndStatusOrderByCreatedAtDesc(User doctor, Appointment.Status status);
 
+    @EntityGraph(Appointment.SUMMARY_GRAPH)
     List<Appointment> findByDoctorAndStatusInOrderByScheduledTimeAsc(User doctor, List<Appointment.Status> statuses);
 
     List<Appointment> findByDoctorAndScheduledTimeBetween(User doctor, LocalDateTime start, LocalDateTime end);
 
+    @EntityGraph(Appointment.SUMMARY_GRAPH)
     List<Appointment> findByDoctorAndScheduledTimeBetweenOrderByScheduledTimeAsc(User doctor, LocalDateTime start, LocalDateTime end);
 
+    // Agenda order: by time, then id so equal times always come back the same way
+    @EntityGraph(Appointment.SUMMARY_GRAPH)
+    @Query("SELECT a FROM Appointment a WHERE a.doctor.id = :doctorId " +
+            "AND a.scheduledTime >= :from AND a.scheduledTime < :to ORDER BY a.scheduledTime, a.id")
+    List<Appointment> findAgenda(@Param("doctorId") Long doctorId,
+                                 @Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to);
+
     @Query("SELECT a FROM Appointment a WHERE a.doctor = :doctor AND a.scheduledTime BETWEEN :startDate AND :endDate ORDER BY a.scheduledTime ASC")
     List<Appointment> findByDoctorAndDateRange(@Param("doctor") User doctor,
                                                @Param("startDate") LocalDateTime startDate,
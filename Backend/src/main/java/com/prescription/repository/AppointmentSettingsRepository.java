@@ -5,6 +5,8 @@ import com.prescription.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,6 +14,7 @@ public interface AppointmentSettingsRepository extends JpaRepository<Appointment
 
     Optional<AppointmentSettings> findByDoctor(User doctor);
     Optional<AppointmentSettings> findByDoctorId(Long doctorId);
+    List<AppointmentSettings> findByDoctorIdIn(Collection<Long> doctorIds);
     boolean existsByDoctorId(Long doctorId);
     void deleteByDoctorId(Long doctorId);
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.prescription.repository;
+
+import com.prescription.entity.Appointment;
+
+import java.time.LocalDateTime;
+
+/**
+ * Status transitions of {@link AppointmentRepository} that are written and read back in one statement.
+ */
+public interface AppointmentTransitionRepository {
+
+    /**
+     * Applies a transition to an appointment of the user with a single conditional UPDATE on
+     * {@code status IN (sources)}, so of concurrent changes only one succeeds. Non-null notes replace the
+     * stored ones in the same statement. Returns the status the appointment left and a detached snapshot of
+     * it after the change, or null when it is not the user's or not in a status the transition starts from.
+     * The persistence context is flushed before and cleared after, like the other bulk updates.
+     */
+    Transitioned transition(Long appointmentId, Long userId, boolean asDoctor, Appointment.Transition transition,
+                            String notes, LocalDateTime now);
+
+    /**
+     * An applied transition. The appointment carries the ids and names of its doctor and patient, the hospital
+     * id and its own columns; it is not managed and has no lazy state.
+     */
+    record Transitioned(Appointment.Status previousStatus, Appointment appointment) {
+    }
+}
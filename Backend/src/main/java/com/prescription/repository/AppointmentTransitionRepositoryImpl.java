@@ -0,0 +1,102 @@
+package com.prescription.repository;
+
+import com.prescription.entity.Appointment;
+import com.prescription.entity.Hospital;
+import com.prescription.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class AppointmentTransitionRepositoryImpl implements AppointmentTransitionRepository {
+
+    // In both statements %s is the owner column, doctor_user_id or patient_user_id
+
+    // The CTE locks the row and reads its status before the UPDATE changes it, RETURNING hands both back
+    private static final String POSTGRES_TRANSITION = "WITH previous AS (SELECT id, status FROM appointments " +
+            "WHERE id = :id AND %s = :userId AND status IN (:sources) FOR UPDATE) " +
+            "UPDATE appointments a SET status = :target, version = a.version + 1, updated_at = :now, " +
+            "notes = COALESCE(:notes, a.notes) " +
+            "FROM previous, users d, users p " +
+            "WHERE a.id = previous.id AND d.id = a.doctor_user_id AND p.id = a.patient_user_id " +
+            "RETURNING previous.status AS previous_status, a.doctor_user_id, d.name AS doctor_name, " +
+            "a.patient_user_id, p.name AS patient_name, a.hospital_id, a.scheduled_time, a.followup_date, a.notes";
+
+    // H2, used by the tests, has no UPDATE ... RETURNING; OLD TABLE yields the updated rows as they were before
+    private static final String H2_TRANSITION = "SELECT o.status AS previous_status, o.doctor_user_id, " +
+            "d.name AS doctor_name, o.patient_user_id, p.name AS patient_name, o.hospital_id, o.scheduled_time, " +
+            "o.followup_date, COALESCE(:notes, o.notes) AS notes " +
+            "FROM OLD TABLE (UPDATE appointments SET status = :target, version = version + 1, updated_at = :now, " +
+            "notes = COALESCE(:notes, notes) " +
+            "WHERE id = :id AND %s = :userId AND status IN (:sources)) o " +
+            "JOIN users d ON d.id = o.doctor_user_id JOIN users p ON p.id = o.patient_user_id";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Boolean postgres;
+
+    @Override
+    public Transitioned transition(Long appointmentId, Long userId, boolean asDoctor, Appointment.Transition transition,
+                                   String notes, LocalDateTime now) {
+        String sql = (isPostgres() ? POSTGRES_TRANSITION : H2_TRANSITION)
+                .formatted(asDoctor ? "doctor_user_id" : "patient_user_id");
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("id", appointmentId)
+                .addValue("userId", userId)
+                .addValue("sources", transition.getSources().stream().map(Enum::name).toList())
+                .addValue("target", transition.getTarget().name())
+                .addValue("now", now)
+                .addValue("notes", notes, Types.VARCHAR);
+
+        entityManager.flush();
+        List<Transitioned> rows = jdbcTemplate.query(sql, parameters, (rs, rowNum) -> {
+            Appointment appointment = snapshot(rs);
+            appointment.setId(appointmentId);
+            appointment.setStatus(transition.getTarget());
+            return new Transitioned(Appointment.Status.valueOf(rs.getString("previous_status")), appointment);
+        });
+        entityManager.clear();
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static Appointment snapshot(ResultSet rs) throws SQLException {
+        User doctor = new User();
+        doctor.setId(rs.getLong("doctor_user_id"));
+        doctor.setName(rs.getString("doctor_name"));
+        User patient = new User();
+        patient.setId(rs.getLong("patient_user_id"));
+        patient.setName(rs.getString("patient_name"));
+        Hospital hospital = new Hospital();
+        hospital.setId(rs.getLong("hospital_id"));
+
+        Appointment appointment = new Appointment();
+        appointment.setDoctor(doctor);
+        appointment.setPatient(patient);
+        appointment.setHospital(hospital);
+        appointment.setScheduledTime(rs.getObject("scheduled_time", LocalDateTime.class));
+        appointment.setFollowupDate(rs.getObject("followup_date", LocalDateTime.class));
+        appointment.setNotes(rs.getString("notes"));
+        return appointment;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            String product = jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        return postgres;
+    }
+}
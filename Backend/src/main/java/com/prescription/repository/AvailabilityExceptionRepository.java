@@ -6,15 +6,20 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface AvailabilityExceptionRepository extends JpaRepository<AvailabilityException, Long> {
 
     List<AvailabilityException> findByDoctorAndExceptionDateBetween(User doctor, LocalDate startDate, LocalDate endDate);
 
-    Optional<AvailabilityException> findByDoctorAndExceptionDate(User doctor, LocalDate exceptionDate);
+    List<AvailabilityException> findByDoctorIdInAndExceptionDateBetween(Collection<Long> doctorIds, LocalDate startDate, LocalDate endDate);
+
+    List<AvailabilityException> findByDoctorIdAndExceptionDateBetween(Long doctorId, LocalDate startDate, LocalDate endDate);
+
+    // A day can carry several exceptions, e.g. two CUSTOM_HOURS ranges or a partial UNAVAILABLE block
+    List<AvailabilityException> findByDoctorAndExceptionDate(User doctor, LocalDate exceptionDate);
 
     List<AvailabilityException> findByDoctorOrderByExceptionDateDesc(User doctor);
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,6 +18,13 @@ public interface AvailabilityTemplateRepository extends JpaRepository<Availabili
 
     List<AvailabilityTemplate> findByDoctorOrderByPriorityDesc(User doctor);
 
+    @Query("SELECT DISTINCT at.doctor.id FROM AvailabilityTemplate at WHERE at.isActive = true ORDER BY at.doctor.id")
+    List<Long> findDoctorIdsWithActiveTemplates();
+
+    @Query("SELECT at FROM AvailabilityTemplate at JOIN FETCH at.doctor WHERE at.doctor.id IN :doctorIds AND at.isActive = true " +
+            "ORDER BY at.priority DESC")
+    List<AvailabilityTemplate> findActiveByDoctorIds(@Param("doctorIds") Collection<Long> doctorIds);
+
     @Query("SELECT at FROM AvailabilityTemplate at WHERE at.doctor = :doctor AND at.isActive = true " +
             "AND ((at.scheduleType = 'DAILY') OR " +
             "(at.scheduleType = 'WEEKLY') OR " +
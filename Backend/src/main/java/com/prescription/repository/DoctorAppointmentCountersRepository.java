@@ -0,0 +1,40 @@
+package com.prescription.repository;
+
+import com.prescription.entity.DoctorAppointmentCounters;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DoctorAppointmentCountersRepository extends JpaRepository<DoctorAppointmentCounters, Long> {
+
+    // Creates the zero row a first increment can work on; a row created concurrently is left alone
+    @Modifying
+    @Query(value = "INSERT INTO doctor_appointment_counters (doctor_id, total, requested, scheduled, completed, " +
+            "cancelled, unique_patients, new_patients) VALUES (:doctorId, 0, 0, 0, 0, 0, 0, 0) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("doctorId") Long doctorId);
+
+    // Relative update, so concurrent changes of the same doctor add up instead of overwriting each other
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE DoctorAppointmentCounters c SET c.total = c.total + :total, " +
+            "c.requested = c.requested + :requested, c.scheduled = c.scheduled + :scheduled, " +
+            "c.completed = c.completed + :completed, c.cancelled = c.cancelled + :cancelled, " +
+            "c.uniquePatients = c.uniquePatients + :uniquePatients, c.newPatients = c.newPatients + :newPatients " +
+            "WHERE c.doctorId = :doctorId")
+    int addDeltas(@Param("doctorId") Long doctorId,
+                  @Param("total") long total,
+                  @Param("requested") long requested,
+                  @Param("scheduled") long scheduled,
+                  @Param("completed") long completed,
+                  @Param("cancelled") long cancelled,
+                  @Param("uniquePatients") long uniquePatients,
+                  @Param("newPatients") long newPatients);
+
+    @Query("SELECT c.doctorId FROM DoctorAppointmentCounters c")
+    List<Long> findAllDoctorIds();
+}
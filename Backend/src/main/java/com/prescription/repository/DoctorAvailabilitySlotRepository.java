@@ -1,16 +1,26 @@
 package com.prescription.repository;
 
+import com.prescription.dto.SlotSearchResultDTO;
 import com.prescription.entity.DoctorAvailabilitySlot;
 import com.prescription.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DoctorAvailabilitySlotRepository extends JpaRepository<DoctorAvailabilitySlot, Long> {
@@ -20,6 +30,9 @@ public interface DoctorAvailabilitySlotRepository extends JpaRepository<DoctorAv
 
     List<DoctorAvailabilitySlot> findByDoctorAndSlotDateOrderByStartTimeAsc(User doctor, LocalDate slotDate);
 
+    List<DoctorAvailabilitySlot> findByDoctorIdAndSlotDateBetweenOrderBySlotDateAscStartTimeAscIdAsc(
+            Long doctorId, LocalDate startDate, LocalDate endDate);
+
     @Query("SELECT das FROM DoctorAvailabilitySlot das WHERE das.doctor = :doctor " +
             "AND das.slotDate = :date AND das.startTime = :startTime AND das.endTime = :endTime")
     List<DoctorAvailabilitySlot> findConflictingSlots(@Param("doctor") User doctor,
@@ -29,10 +42,97 @@ public interface DoctorAvailabilitySlotRepository extends JpaRepository<DoctorAv
 
     void deleteByDoctorAndGeneratedFromTemplateId(User doctor, Long templateId);
 
+    @Query("SELECT MAX(das.slotDate) FROM DoctorAvailabilitySlot das WHERE das.generatedFromTemplateId = :templateId")
+    Optional<LocalDate> findLastSlotDateByTemplateId(@Param("templateId") Long templateId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM DoctorAvailabilitySlot das WHERE das.id IN :ids AND das.slotStatus = 'AVAILABLE'")
+    int deleteAvailableByIdIn(@Param("ids") Collection<Long> ids);
+
     List<DoctorAvailabilitySlot> findByDoctorAndSlotStatusOrderBySlotDateAscStartTimeAsc(
             User doctor, DoctorAvailabilitySlot.SlotStatus status);
 
     Optional<DoctorAvailabilitySlot> findByDoctorAndSlotDateAndStartTimeAndSlotStatus(
             User doctor, LocalDate slotDate, LocalTime startTime, DoctorAvailabilitySlot.SlotStatus slotStatus);
     List<DoctorAvailabilitySlot> findByDoctorAndSlotDateAndSlotStatus(User doctor, LocalDate slotDate, DoctorAvailabilitySlot.SlotStatus status);
-}
\ No newline at end of file
+
+    List<DoctorAvailabilitySlot> findByDoctorIdInAndSlotDateBetween(Collection<Long> doctorIds, LocalDate startDate, LocalDate endDate);
+
+    List<DoctorAvailabilitySlot> findByDoctorIdAndSlotStatusAndSlotDateBetween(
+            Long doctorId, DoctorAvailabilitySlot.SlotStatus slotStatus, LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT das.slotStatus AS slotStatus, das.version AS version FROM DoctorAvailabilitySlot das WHERE das.id = :id")
+    Optional<SlotState> findStateById(@Param("id") Long id);
+
+    @Query("SELECT das.doctor.id AS doctorId, MAX(das.slotDate) AS lastSlotDate FROM DoctorAvailabilitySlot das " +
+            "WHERE das.doctor.id IN :doctorIds GROUP BY das.doctor.id")
+    List<LastSlotDate> findLastSlotDatesByDoctorIdIn(@Param("doctorIds") Collection<Long> doctorIds);
+
+    /**
+     * Moves a slot from one status to another only if nobody changed it since {@code version} was read.
+     * Returns the number of updated rows, i.e. 1 for the winner and 0 otherwise.
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE DoctorAvailabilitySlot das SET das.slotStatus = :newStatus, das.version = das.version + 1, " +
+            "das.updatedAt = :now WHERE das.id = :id AND das.slotStatus = :expectedStatus AND das.version = :version")
+    int compareAndSetStatus(@Param("id") Long id,
+                            @Param("expectedStatus") DoctorAvailabilitySlot.SlotStatus expectedStatus,
+                            @Param("newStatus") DoctorAvailabilitySlot.SlotStatus newStatus,
+                            @Param("version") long version,
+                            @Param("now") LocalDateTime now);
+
+    interface SlotState {
+        DoctorAvailabilitySlot.SlotStatus getSlotStatus();
+
+        long getVersion();
+    }
+
+    interface LastSlotDate {
+        Long getDoctorId();
+
+        LocalDate getLastSlotDate();
+    }
+
+    String SEARCH_AVAILABLE_SLOTS =
+            "SELECT new com.prescription.dto.SlotSearchResultDTO(das.id, d.userId, u.name, d.specialization, d.institute, " +
+            "das.slotDate, das.startTime, das.endTime) " +
+            "FROM DoctorAvailabilitySlot das JOIN das.doctor u JOIN Doctor d ON d.userId = u.id " +
+            "WHERE das.slotStatus = 'AVAILABLE' " +
+            "AND LOWER(d.specialization) LIKE LOWER(CONCAT('%', :specialization, '%')) " +
+            "AND (das.slotDate > :fromDate OR (das.slotDate = :fromDate AND das.startTime >= :notBefore)) " +
+            "AND das.slotDate <= :toDate " +
+            "AND das.startTime >= :dayStart AND das.startTime < :dayEnd " +
+            "AND (:hospitalId = -1 OR EXISTS (SELECT 1 FROM DoctorHospitalSchedule dhs " +
+            "WHERE dhs.doctorId = d.userId AND dhs.hospitalId = :hospitalId AND dhs.dayOfWeek = " +
+            "CASE EXTRACT(DAY OF WEEK FROM das.slotDate) WHEN 1 THEN java.time.DayOfWeek.SUNDAY " +
+            "WHEN 2 THEN java.time.DayOfWeek.MONDAY WHEN 3 THEN java.time.DayOfWeek.TUESDAY " +
+            "WHEN 4 THEN java.time.DayOfWeek.WEDNESDAY WHEN 5 THEN java.time.DayOfWeek.THURSDAY " +
+            "WHEN 6 THEN java.time.DayOfWeek.FRIDAY ELSE java.time.DayOfWeek.SATURDAY END)) " +
+            "ORDER BY das.slotDate, das.startTime, das.id";
+
+    /**
+     * Free slots of all doctors matching a specialization (and optionally working at a hospital on that weekday),
+     * earliest first. Pass an empty specialization to match every doctor and -1 for any hospital.
+     * Slots of {@code fromDate} only count from {@code notBefore} on, and only slots starting in
+     * [{@code dayStart}, {@code dayEnd}) are returned.
+     */
+    @Query(SEARCH_AVAILABLE_SLOTS)
+    Slice<SlotSearchResultDTO> searchAvailableSlots(@Param("specialization") String specialization,
+                                                    @Param("hospitalId") Long hospitalId,
+                                                    @Param("fromDate") LocalDate fromDate,
+                                                    @Param("notBefore") LocalTime notBefore,
+                                                    @Param("toDate") LocalDate toDate,
+                                                    @Param("dayStart") LocalTime dayStart,
+                                                    @Param("dayEnd") LocalTime dayEnd,
+                                                    Pageable pageable);
+
+    @Query(SEARCH_AVAILABLE_SLOTS)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    Stream<SlotSearchResultDTO> streamAvailableSlots(@Param("specialization") String specialization,
+                                                     @Param("hospitalId") Long hospitalId,
+                                                     @Param("fromDate") LocalDate fromDate,
+                                                     @Param("notBefore") LocalTime notBefore,
+                                                     @Param("toDate") LocalDate toDate,
+                                                     @Param("dayStart") LocalTime dayStart,
+                                                     @Param("dayEnd") LocalTime dayEnd);
+}
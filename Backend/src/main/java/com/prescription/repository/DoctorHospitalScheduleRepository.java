@@ -2,14 +2,32 @@ package com.prescription.repository;
 
 import com.prescription.entity.DoctorHospitalSchedule;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.DayOfWeek;
 import java.util.List;
 
 @Repository
 public interface DoctorHospitalScheduleRepository extends JpaRepository<DoctorHospitalSchedule, Long> {
-    List<DoctorHospitalSchedule> findByDoctorIdAndHospitalIdAndDayOfWeek(Long doctorId, Long hospitalId, String dayOfWeek);
+    List<DoctorHospitalSchedule> findByDoctorIdAndHospitalIdAndDayOfWeek(Long doctorId, Long hospitalId, DayOfWeek dayOfWeek);
     List<DoctorHospitalSchedule> findByDoctorId(Long doctorId);
     List<DoctorHospitalSchedule> findByDoctorIdAndHospitalId(Long doctorId, Long hospitalId);
-    List<DoctorHospitalSchedule> findByDoctorIdAndDayOfWeek(Long doctorId, String dayOfWeek);
-}
\ No newline at end of file
+    List<DoctorHospitalSchedule> findByDoctorIdAndDayOfWeek(Long doctorId, DayOfWeek dayOfWeek);
+
+    /**
+     * Schedules at a hospital on a weekday with a time slot covering the given minute of day.
+     * The (hospital_id, day_of_week) index narrows the rows, the slot arrays are checked in SQL.
+     * PostgreSQL only: it unnests the arrays of each row.
+     */
+    @Query(value = "SELECT dhs.* FROM doctor_hospital_schedules dhs " +
+            "WHERE dhs.hospital_id = :hospitalId AND dhs.day_of_week = :#{#dayOfWeek.name()} " +
+            "AND EXISTS (SELECT 1 FROM unnest(dhs.slot_start_minutes, dhs.slot_end_minutes) AS slot(start_minute, end_minute) " +
+            "WHERE slot.start_minute <= :minute AND (:minute < slot.end_minute OR slot.start_minute = :minute)) " +
+            "ORDER BY dhs.doctor_id",
+            nativeQuery = true)
+    List<DoctorHospitalSchedule> findByHospitalIdAndDayOfWeekCoveringMinute(@Param("hospitalId") Long hospitalId,
+                                                                           @Param("dayOfWeek") DayOfWeek dayOfWeek,
+                                                                           @Param("minute") int minute);
+}
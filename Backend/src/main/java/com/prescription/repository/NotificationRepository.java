@@ -4,7 +4,9 @@ import com.prescription.entity.Notification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -14,9 +16,9 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
     List<Notification> findByUserIdAndIsReadFalseOrderByCreatedAtDesc(Long userId);
     long countByUserIdAndIsReadFalse(Long userId);
     List<Notification> findByAppointmentIdOrderByCreatedAtDesc(Long appointmentId);
+    List<Notification> findByAppointmentIdInAndTypeAndCreatedAtGreaterThanEqual(
+            Collection<Long> appointmentIds, Notification.NotificationType type, LocalDateTime createdAt);
     List<Notification> findByPrescriptionIdOrderByCreatedAtDesc(Long prescriptionId);
     List<Notification> findByPrescriptionIdAndReminderTimeAndType(Long prescriptionId, LocalTime reminderTime, Notification.NotificationType type);
-    
-    // Efficient query for scheduled reminders
-    List<Notification> findByTypeAndReminderTime(Notification.NotificationType type, LocalTime reminderTime);
+
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.prescription.repository;
+
+import com.prescription.entity.ReminderSchedule;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ReminderScheduleRepository extends JpaRepository<ReminderSchedule, Long> {
+
+    // FOR UPDATE SKIP LOCKED (lock timeout -2): rows another instance is firing are passed over, not waited for
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r FROM ReminderSchedule r WHERE r.nextFireAt <= :now ORDER BY r.nextFireAt, r.id")
+    List<ReminderSchedule> claimDue(@Param("now") LocalDateTime now, Pageable page);
+}
@@ -0,0 +1,71 @@
+package com.prescription.service;
+
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.DoctorAppointmentCountersRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Nightly repair of the doctor_appointment_counters read model. Each doctor is recomputed from
+ * their appointments in a short transaction of its own, so the row lock is held only briefly.
+ */
+@Component
+@Slf4j
+public class AppointmentCounterReconciler {
+
+    private final AppointmentRepository appointmentRepository;
+    private final DoctorAppointmentCountersRepository countersRepository;
+    private final DoctorAppointmentCounterService counterService;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter driftCounter;
+
+    public AppointmentCounterReconciler(AppointmentRepository appointmentRepository,
+                                        DoctorAppointmentCountersRepository countersRepository,
+                                        DoctorAppointmentCounterService counterService,
+                                        PlatformTransactionManager transactionManager,
+                                        MeterRegistry meterRegistry) {
+        this.appointmentRepository = appointmentRepository;
+        this.countersRepository = countersRepository;
+        this.counterService = counterService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.driftCounter = Counter.builder("appointments.counters.drift")
+                .description("Doctors whose dashboard counters had to be repaired")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Recomputes the counters of every doctor with appointments or a counters row.
+     * Returns the number of doctors whose counters had drifted.
+     */
+    @Scheduled(cron = "${app.appointments.counters.reconcile-cron:0 45 3 * * *}")
+    public int reconcileAll() {
+        Set<Long> doctorIds = new TreeSet<>(appointmentRepository.findDistinctDoctorIds());
+        doctorIds.addAll(countersRepository.findAllDoctorIds());
+
+        int drifted = 0;
+        int failed = 0;
+        for (Long doctorId : doctorIds) {
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> counterService.reconcile(doctorId)))) {
+                    drifted++;
+                    log.warn("Appointment counters of doctor {} had drifted and were repaired", doctorId);
+                }
+            } catch (Exception e) {
+                failed++;
+                log.error("Reconciling appointment counters of doctor {} failed", doctorId, e);
+            }
+        }
+
+        driftCounter.increment(drifted);
+        log.info("Reconciled appointment counters of {} doctors: {} repaired, {} failed", doctorIds.size(), drifted, failed);
+        return drifted;
+    }
+}
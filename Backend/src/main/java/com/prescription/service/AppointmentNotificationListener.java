@@ -0,0 +1,101 @@
+package com.prescription.service;
+
+import com.prescription.config.AsyncConfig;
+import com.prescription.entity.Notification;
+import com.prescription.event.AppointmentBatchEvent;
+import com.prescription.event.AppointmentEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Tells doctors and patients about appointment changes once the change has committed,
+ * on the notification executor instead of the booking request's thread and connection.
+ */
+@Component
+@Slf4j
+public class AppointmentNotificationListener {
+
+    private final NotificationService notificationService;
+
+    public AppointmentNotificationListener(NotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
+    @Async(AsyncConfig.NOTIFICATION_EXECUTOR)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAppointmentEvent(AppointmentEvent event) {
+        dispatch(event);
+    }
+
+    // A whole bulk operation is one task on the executor and one transaction, so its notification
+    // rows go out as JDBC batches at commit
+    @Async(AsyncConfig.NOTIFICATION_EXECUTOR)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAppointmentBatch(AppointmentBatchEvent batch) {
+        batch.getEvents().forEach(this::dispatch);
+    }
+
+    private void dispatch(AppointmentEvent event) {
+        try {
+            switch (event.getKind()) {
+                case REQUESTED -> notifyRequested(event);
+                case SCHEDULED -> notifyScheduled(event);
+                case CANCELLED_BY_PATIENT -> notifyCancelledByPatient(event);
+                case REJECTED -> notifyRejected(event);
+            }
+        } catch (Exception e) {
+            log.error("Failed to send {} notifications of appointment {}", event.getKind(), event.getAppointmentId(), e);
+        }
+    }
+
+    private void notifyRequested(AppointmentEvent event) {
+        String date = event.getScheduledTime().toLocalDate().toString();
+        String time = event.getScheduledTime().toLocalTime().toString();
+
+        // Notify the patient about appointment request
+        send(event.getPatientId(), event, Notification.NotificationType.APPOINTMENT_CONFIRMATION,
+                String.format("Your appointment request with Dr. %s for %s at %s has been submitted and is pending confirmation.",
+                        event.getDoctorName(), date, time));
+
+        // Notify the doctor about new appointment request
+        send(event.getDoctorId(), event, Notification.NotificationType.APPOINTMENT_CONFIRMATION,
+                String.format("New appointment request from %s for %s at %s. Please review and confirm.",
+                        event.getPatientName(), date, time));
+    }
+
+    private void notifyScheduled(AppointmentEvent event) {
+        send(event.getPatientId(), event, Notification.NotificationType.APPOINTMENT_CONFIRMATION,
+                String.format("Your appointment has been confirmed for %s. Location: %s. Notes: %s",
+                        event.getScheduledTime().toString(),
+                        event.getLocation() != null ? event.getLocation() : "TBD",
+                        event.getNotes() != null ? event.getNotes() : "None"));
+    }
+
+    private void notifyCancelledByPatient(AppointmentEvent event) {
+        // Notify doctor about cancellation
+        send(event.getDoctorId(), event, Notification.NotificationType.APPOINTMENT_CANCELLATION,
+                String.format("Appointment scheduled for %s has been cancelled by the patient.",
+                        event.getScheduledTime() != null ? event.getScheduledTime().toString() : "TBD"));
+
+        // Notify patient about cancellation confirmation
+        send(event.getPatientId(), event, Notification.NotificationType.APPOINTMENT_CANCELLATION,
+                "Your appointment has been successfully cancelled.");
+    }
+
+    private void notifyRejected(AppointmentEvent event) {
+        send(event.getPatientId(), event, Notification.NotificationType.APPOINTMENT_CANCELLATION,
+                String.format("Your appointment request for %s has been declined by Dr. %s. Please contact the clinic for alternative options.",
+                        event.getFollowupDate() != null ? event.getFollowupDate().toString() : "the requested time",
+                        event.getDoctorName()));
+    }
+
+    private void send(Long userId, AppointmentEvent event, Notification.NotificationType type, String details) {
+        notificationService.sendAppointmentNotification(userId, event.getAppointmentId(), type, details);
+    }
+}
@@ -0,0 +1,188 @@
+package com.prescription.service;
+
+import com.prescription.dto.SlotOccupancyDTO;
+import com.prescription.entity.Appointment;
+import com.prescription.entity.DoctorHospitalSchedule;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.DoctorHospitalScheduleRepository;
+import com.prescription.util.AfterCommit;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Booked/free state of a doctor's hospital time slots per day.
+ * Slots come from the doctor's {@link DoctorHospitalSchedule} for the weekday, bookings from one range
+ * query over appointments.scheduled_time. Days are cached per (doctor, hospital, date) and dropped
+ * when an appointment or schedule of that doctor changes.
+ */
+@Service
+@Slf4j
+public class AppointmentOccupancyService {
+
+    public static final int MAX_RANGE_DAYS = 62;
+    private static final int MAX_CACHED_DAYS = 10_000;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorHospitalScheduleRepository scheduleRepository;
+
+    private final ConcurrentHashMap<DayKey, List<SlotOccupancyDTO>> cache = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation so a day read before it is not cached after it
+    private final AtomicLong generation = new AtomicLong();
+
+    @Transactional(readOnly = true)
+    public List<SlotOccupancyDTO> getOccupancy(Long doctorId, Long hospitalId, LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date is before start date");
+        }
+        if (startDate.plusDays(MAX_RANGE_DAYS).isBefore(endDate)) {
+            throw new IllegalArgumentException("Date range cannot exceed " + MAX_RANGE_DAYS + " days");
+        }
+
+        Map<LocalDate, List<SlotOccupancyDTO>> days = new TreeMap<>();
+        LocalDate firstMiss = null;
+        LocalDate lastMiss = null;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            List<SlotOccupancyDTO> cached = cache.get(new DayKey(doctorId, hospitalId, date));
+            if (cached != null) {
+                days.put(date, cached);
+            } else {
+                firstMiss = firstMiss == null ? date : firstMiss;
+                lastMiss = date;
+            }
+        }
+        if (firstMiss != null) {
+            days.putAll(load(doctorId, hospitalId, firstMiss, lastMiss));
+        }
+
+        List<SlotOccupancyDTO> result = new ArrayList<>();
+        days.values().forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * Labels ("09:00 - 10:00") of the booked slots on a date, the shape /appointments/timeslots returns.
+     */
+    @Transactional(readOnly = true)
+    public List<String> getBookedLabels(Long doctorId, Long hospitalId, LocalDate date) {
+        List<String> labels = new ArrayList<>();
+        for (SlotOccupancyDTO slot : getOccupancy(doctorId, hospitalId, date, date)) {
+            if (slot.isBooked()) {
+                labels.add(slot.getLabel());
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Drops the cached day of an appointment once the surrounding transaction commits.
+     */
+    public void invalidate(Appointment appointment) {
+        if (appointment.getDoctor() == null || appointment.getHospital() == null || appointment.getScheduledTime() == null) {
+            return;
+        }
+        DayKey key = new DayKey(appointment.getDoctor().getId(), appointment.getHospital().getId(),
+                appointment.getScheduledTime().toLocalDate());
+        AfterCommit.run(() -> {
+            generation.incrementAndGet();
+            cache.remove(key);
+        });
+    }
+
+    /**
+     * Drops every cached day of a doctor at a hospital, e.g. after their schedule changed.
+     */
+    public void invalidate(Long doctorId, Long hospitalId) {
+        AfterCommit.run(() -> {
+            generation.incrementAndGet();
+            cache.keySet().removeIf(key -> key.doctorId.equals(doctorId) && key.hospitalId.equals(hospitalId));
+        });
+    }
+
+    private Map<LocalDate, List<SlotOccupancyDTO>> load(Long doctorId, Long hospitalId, LocalDate startDate, LocalDate endDate) {
+        long readGeneration = generation.get();
+
+        Map<DayOfWeek, DoctorHospitalSchedule> schedules = new EnumMap<>(DayOfWeek.class);
+        for (DoctorHospitalSchedule schedule : scheduleRepository.findByDoctorIdAndHospitalId(doctorId, hospitalId)) {
+            schedules.putIfAbsent(schedule.getDayOfWeek(), schedule);
+        }
+
+        Map<LocalDate, List<Integer>> bookedMinutes = new HashMap<>();
+        for (LocalDateTime scheduledTime : appointmentRepository.findScheduledTimesForOccupancy(doctorId, hospitalId,
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay(), Appointment.Status.CANCELLED)) {
+            bookedMinutes.computeIfAbsent(scheduledTime.toLocalDate(), date -> new ArrayList<>())
+                    .add(scheduledTime.getHour() * 60 + scheduledTime.getMinute());
+        }
+
+        Map<LocalDate, List<SlotOccupancyDTO>> days = new HashMap<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            List<SlotOccupancyDTO> slots = buildDay(date, schedules.get(date.getDayOfWeek()),
+                    bookedMinutes.getOrDefault(date, Collections.emptyList()));
+            days.put(date, slots);
+        }
+
+        if (generation.get() == readGeneration) {
+            if (cache.size() + days.size() > MAX_CACHED_DAYS) {
+                evict();
+            }
+            days.forEach((date, slots) -> cache.put(new DayKey(doctorId, hospitalId, date), slots));
+        }
+        return days;
+    }
+
+    private static List<SlotOccupancyDTO> buildDay(LocalDate date, DoctorHospitalSchedule schedule, List<Integer> bookedMinutes) {
+        if (schedule == null || schedule.getSlotStartMinutes() == null) {
+            return Collections.emptyList();
+        }
+        int[] starts = schedule.getSlotStartMinutes();
+        int[] ends = schedule.getSlotEndMinutes();
+        List<SlotOccupancyDTO> slots = new ArrayList<>(starts.length);
+        for (int i = 0; i < starts.length; i++) {
+            int count = 0;
+            for (int minute : bookedMinutes) {
+                if (starts[i] == ends[i] ? minute == starts[i] : minute >= starts[i] && minute < ends[i]) {
+                    count++;
+                }
+            }
+            LocalTime startTime = toTime(starts[i]);
+            LocalTime endTime = toTime(ends[i]);
+            String label = starts[i] == ends[i] ? startTime.toString() : startTime + " - " + endTime;
+            slots.add(new SlotOccupancyDTO(date, startTime, endTime, label, count > 0, count));
+        }
+        return Collections.unmodifiableList(slots);
+    }
+
+    private void evict() {
+        LocalDate today = LocalDate.now();
+        cache.keySet().removeIf(key -> key.date.isBefore(today));
+        if (cache.size() > MAX_CACHED_DAYS / 2) {
+            log.debug("Occupancy cache full, clearing {} days", cache.size());
+            cache.clear();
+        }
+    }
+
+    private static LocalTime toTime(int minuteOfDay) {
+        return minuteOfDay >= 1440 ? LocalTime.MAX.withSecond(0).withNano(0) : LocalTime.of(minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    @Value
+    private static class DayKey {
+        Long doctorId;
+        Long hospitalId;
+        LocalDate date;
+    }
+}
@@ -0,0 +1,271 @@
+package com.prescription.service;
+
+import com.prescription.entity.Appointment;
+import com.prescription.entity.Notification;
+import com.prescription.event.AppointmentBatchEvent;
+import com.prescription.event.AppointmentEvent;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.NotificationRepository;
+import com.prescription.util.HierarchicalTimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sends APPOINTMENT_REMINDER notifications to patients at fixed offsets before their scheduled and
+ * confirmed appointments. Only the reminders due within the next {@code app.appointments.reminders.window}
+ * are held in memory, in a timing wheel; the following window is read from the database before the
+ * current one runs out, and changes committed meanwhile are added from their appointment events.
+ * After a restart the first tick also loads the reminders that fell due while the application was down,
+ * up to {@code app.appointments.reminders.max-lateness} ago, and sends those not already sent before it stopped.
+ * Every reminder is checked against the appointment just before sending, so a cancelled or moved
+ * appointment gets no stale reminder.
+ */
+@Component
+@Slf4j
+public class AppointmentReminderScheduler {
+
+    private static final List<Appointment.Status> REMINDED_STATUSES =
+            List.of(Appointment.Status.SCHEDULED, Appointment.Status.CONFIRMED);
+    private static final int WHEEL_SIZE = 60;
+
+    private final AppointmentRepository appointmentRepository;
+    private final NotificationService notificationService;
+    private final NotificationRepository notificationRepository;
+    private final List<Duration> offsets;
+    private final Duration window;
+    private final Duration maxLateness;
+    private final long tickMillis;
+
+    private final Counter sentCounter;
+
+    // Guarded by this
+    private HierarchicalTimingWheel<Reminder> wheel;
+    private final Set<Reminder> pending = new HashSet<>();
+    private LocalDateTime loadedUntil;
+    // Reminders due before the first tick may have been sent before the restart
+    private LocalDateTime startedAt;
+
+    public AppointmentReminderScheduler(AppointmentRepository appointmentRepository,
+                                        NotificationService notificationService,
+                                        NotificationRepository notificationRepository,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${app.appointments.reminders.offsets:24h,1h}") List<Duration> offsets,
+                                        @Value("${app.appointments.reminders.window:1h}") Duration window,
+                                        @Value("${app.appointments.reminders.max-lateness:1h}") Duration maxLateness,
+                                        @Value("${app.appointments.reminders.tick-ms:1000}") long tickMillis) {
+        this.appointmentRepository = appointmentRepository;
+        this.notificationService = notificationService;
+        this.notificationRepository = notificationRepository;
+        this.offsets = List.copyOf(offsets);
+        this.window = window;
+        this.maxLateness = maxLateness;
+        this.tickMillis = tickMillis;
+
+        this.sentCounter = Counter.builder("appointments.reminders.sent")
+                .description("Appointment reminders sent to patients")
+                .register(meterRegistry);
+        meterRegistry.gauge("appointments.reminders.pending", this, AppointmentReminderScheduler::pendingReminders);
+    }
+
+    @Scheduled(fixedDelayString = "${app.appointments.reminders.tick-ms:1000}",
+            initialDelayString = "${app.appointments.reminders.initial-delay-ms:10000}")
+    public void tick() {
+        tick(LocalDateTime.now());
+    }
+
+    /**
+     * Loads the next window when needed and sends every reminder due by {@code now}.
+     * Returns the number of reminders sent.
+     */
+    public int tick(LocalDateTime now) {
+        LocalDateTime catchUpFrom = null;
+        synchronized (this) {
+            if (wheel == null) {
+                // The wheel starts in the past so the missed reminders are still due on it
+                catchUpFrom = now.minus(maxLateness);
+                wheel = new HierarchicalTimingWheel<>(tickMillis, WHEEL_SIZE, toMillis(catchUpFrom));
+                loadedUntil = now;
+                startedAt = now;
+            }
+        }
+        if (catchUpFrom != null) {
+            loadWindow(catchUpFrom, now);
+        }
+
+        LocalDateTime from;
+        LocalDateTime to = null;
+        List<Reminder> due = new ArrayList<>();
+        synchronized (this) {
+            wheel.advance(toMillis(now), reminder -> {
+                pending.remove(reminder);
+                due.add(reminder);
+            });
+            from = loadedUntil;
+            if (loadedUntil.isBefore(now.plus(window))) {
+                // Claimed before reading, so events committed during the load are added as well
+                to = loadedUntil.plus(window);
+                loadedUntil = to;
+            }
+        }
+
+        if (to != null) {
+            loadWindow(from, to);
+        }
+        return send(due);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAppointmentEvent(AppointmentEvent event) {
+        schedule(event);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAppointmentBatch(AppointmentBatchEvent batch) {
+        batch.getEvents().forEach(this::schedule);
+    }
+
+    public synchronized int pendingReminders() {
+        return pending.size();
+    }
+
+    private void schedule(AppointmentEvent event) {
+        // Requests are not reminded of, the reminder comes once the doctor schedules them
+        if (event.getKind() != AppointmentEvent.Kind.SCHEDULED) {
+            return;
+        }
+        if (event.getScheduledTime() == null) {
+            return;
+        }
+        synchronized (this) {
+            if (wheel == null) {
+                // Not started yet, the first load reads it from the database
+                return;
+            }
+            for (Duration offset : offsets) {
+                add(new Reminder(event.getAppointmentId(), event.getScheduledTime(), offset));
+            }
+        }
+    }
+
+    private void loadWindow(LocalDateTime from, LocalDateTime to) {
+        int loaded = 0;
+        for (Duration offset : offsets) {
+            // Between is inclusive, stop just short of the next window
+            LocalDateTime start = from.plus(offset);
+            LocalDateTime end = to.plus(offset).minus(1, ChronoUnit.MICROS);
+            for (Appointment.Status status : REMINDED_STATUSES) {
+                List<Appointment> appointments = appointmentRepository.findByScheduledTimeBetweenAndStatus(start, end, status);
+                synchronized (this) {
+                    for (Appointment appointment : appointments) {
+                        if (add(new Reminder(appointment.getId(), appointment.getScheduledTime(), offset))) {
+                            loaded++;
+                        }
+                    }
+                }
+            }
+        }
+        log.debug("Loaded {} appointment reminders due between {} and {}", loaded, from, to);
+    }
+
+    // Keeps reminders falling due before the loaded horizon, later ones come with their window
+    private boolean add(Reminder reminder) {
+        LocalDateTime fireAt = reminder.fireAt();
+        if (!fireAt.isBefore(loadedUntil) || pending.contains(reminder)) {
+            return false;
+        }
+        if (!wheel.add(toMillis(fireAt), reminder)) {
+            return false;
+        }
+        pending.add(reminder);
+        return true;
+    }
+
+    private int send(List<Reminder> due) {
+        if (due.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Appointment> appointments = appointmentRepository
+                .findByIdIn(due.stream().map(Reminder::appointmentId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Appointment::getId, Function.identity()));
+
+        Set<Reminder> alreadySent = sentBeforeRestart(due);
+
+        int sent = 0;
+        for (Reminder reminder : due) {
+            Appointment appointment = appointments.get(reminder.appointmentId());
+            // Cancelled, completed or moved since the reminder was scheduled
+            if (appointment == null || !REMINDED_STATUSES.contains(appointment.getStatus())
+                    || !reminder.scheduledTime().equals(appointment.getScheduledTime())
+                    || alreadySent.contains(reminder)) {
+                continue;
+            }
+            try {
+                notificationService.sendAppointmentNotification(appointment.getPatient().getId(), appointment.getId(),
+                        Notification.NotificationType.APPOINTMENT_REMINDER, describe(appointment));
+                sentCounter.increment();
+                sent++;
+            } catch (Exception e) {
+                log.error("Failed to send reminder of appointment {}", appointment.getId(), e);
+            }
+        }
+        return sent;
+    }
+
+    // A caught-up reminder was sent before the restart when a reminder notification exists since it fell due
+    private Set<Reminder> sentBeforeRestart(List<Reminder> due) {
+        LocalDateTime restart;
+        synchronized (this) {
+            restart = startedAt;
+        }
+        List<Reminder> caughtUp = due.stream().filter(reminder -> reminder.fireAt().isBefore(restart)).toList();
+        if (caughtUp.isEmpty()) {
+            return Set.of();
+        }
+
+        LocalDateTime earliest = Collections.min(caughtUp.stream().map(Reminder::fireAt).toList());
+        Map<Long, List<LocalDateTime>> sentAt = notificationRepository.findByAppointmentIdInAndTypeAndCreatedAtGreaterThanEqual(
+                        caughtUp.stream().map(Reminder::appointmentId).collect(Collectors.toSet()),
+                        Notification.NotificationType.APPOINTMENT_REMINDER, earliest)
+                .stream()
+                .collect(Collectors.groupingBy(Notification::getAppointmentId,
+                        Collectors.mapping(Notification::getCreatedAt, Collectors.toList())));
+        return caughtUp.stream()
+                .filter(reminder -> sentAt.getOrDefault(reminder.appointmentId(), List.of()).stream()
+                        .anyMatch(time -> !time.isBefore(reminder.fireAt())))
+                .collect(Collectors.toSet());
+    }
+
+    private static String describe(Appointment appointment) {
+        String details = String.format("Dr. %s on %s at %s", appointment.getDoctor().getName(),
+                appointment.getScheduledTime().toLocalDate(), appointment.getScheduledTime().toLocalTime());
+        if (appointment.getHospital() != null && appointment.getHospital().getName() != null) {
+            details += ", " + appointment.getHospital().getName();
+        }
+        return details;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    record Reminder(Long appointmentId, LocalDateTime scheduledTime, Duration offset) {
+        LocalDateTime fireAt() {
+            return scheduledTime.minus(offset);
+        }
+    }
+}
@@ -1,22 +1,46 @@
 package com.prescription.service;
 
+import com.prescription.dto.AppointmentHistoryCriteria;
+import com.prescription.dto.AppointmentStatisticsDTO;
+import com.prescription.dto.BulkAppointmentResultDTO;
+import com.prescription.dto.BulkAppointmentResultDTO.Outcome;
+import com.prescription.dto.BulkScheduleRequestDTO;
 import com.prescription.entity.Appointment;
+import com.prescription.entity.AppointmentSettings;
+import com.prescription.entity.DoctorAppointmentCounters;
 import com.prescription.entity.Hospital;
 import com.prescription.entity.User;
+import com.prescription.event.AppointmentBatchEvent;
+import com.prescription.event.AppointmentEvent;
+import com.prescription.exception.AppointmentConflictException;
 import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.AppointmentSettingsRepository;
 import com.prescription.repository.HospitalRepository;
 import com.prescription.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
+import com.prescription.util.AfterCommit;
+import com.prescription.util.IntervalTree;
+import com.prescription.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import com.prescription.service.NotificationService;
-import com.prescription.entity.Notification;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -29,10 +53,35 @@ public class AppointmentService {
     private UserRepository userRepository;
 
     @Autowired
-    private NotificationService notificationService;
+    private ApplicationEventPublisher eventPublisher;
     @Autowired
     private HospitalRepository hospitalRepository;
 
+    @Autowired
+    private AppointmentSettingsRepository appointmentSettingsRepository;
+
+    @Autowired
+    private AppointmentOccupancyService occupancyService;
+
+    @Autowired
+    private DoctorAppointmentCounterService counterService;
+
+    @Value("${app.appointments.stats.cache-ttl-ms:30000}")
+    private long statisticsTtlMillis;
+
+    private final ConcurrentHashMap<Long, CachedStatistics> statisticsCache = new ConcurrentHashMap<>();
+
+    // AppointmentSettings defaults, for doctors without settings
+    private static final int DEFAULT_SLOT_DURATION_MINUTES = 30;
+    private static final int DEFAULT_BUFFER_TIME_MINUTES = 5;
+
+    // PostgreSQL exclusion_violation, raised by appointments_no_overlap
+    private static final String EXCLUSION_VIOLATION = "23P01";
+
+    // Bounds of an unfiltered history, inside what every database can store
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+
     // Existing methods from previous implementation...
 
     // Additional methods for the controller
@@ -61,168 +110,333 @@ public class AppointmentService {
         return appointmentRepository.findByDoctorAndStatus(doctor, status);
     }
 
-    public boolean cancelAppointmentByPatient(Long appointmentId, Long patientId) {
-        Optional<Appointment> appointmentOpt = appointmentRepository.findById(appointmentId);
-        if (appointmentOpt.isPresent()) {
-            Appointment appointment = appointmentOpt.get();
-            if (appointment.getPatient().getId().equals(patientId) &&
-                    (appointment.getStatus() == Appointment.Status.REQUESTED ||
-                            appointment.getStatus() == Appointment.Status.SCHEDULED)) {
-                appointment.setStatus(Appointment.Status.CANCELLED);
-                appointmentRepository.save(appointment);
-
-                // Send cancellation notifications
-                try {
-                    String cancellationMessage = String.format("Appointment scheduled for %s has been cancelled by the patient.",
-                            appointment.getScheduledTime() != null ? appointment.getScheduledTime().toString() : "TBD");
-
-                    // Notify doctor about cancellation
-                    notificationService.sendAppointmentNotification(
-                            appointment.getDoctor().getId(),
-                            appointmentId,
-                            Notification.NotificationType.APPOINTMENT_CANCELLATION,
-                            cancellationMessage
-                    );
-
-                    // Notify patient about cancellation confirmation
-                    notificationService.sendAppointmentNotification(
-                            patientId,
-                            appointmentId,
-                            Notification.NotificationType.APPOINTMENT_CANCELLATION,
-                            "Your appointment has been successfully cancelled."
-                    );
-                } catch (Exception e) {
-                    System.err.println("Failed to send cancellation notifications: " + e.getMessage());
-                }
+    /**
+     * One page of a patient's or doctor's appointments, newest first by creation or scheduled time,
+     * continuing after the criteria's cursor.
+     */
+    @Transactional(readOnly = true)
+    public Slice<Appointment> getAppointmentHistory(Long userId, boolean asDoctor, AppointmentHistoryCriteria criteria,
+                                                    int size) {
+        boolean bySchedule = isScheduledSort(criteria.getSort());
+        Collection<Appointment.Status> statuses = criteria.getStatus() == null || criteria.getStatus().isEmpty()
+                ? EnumSet.allOf(Appointment.Status.class) : criteria.getStatus();
+        // Null filters and the first page become sentinels so the query never binds untyped nulls
+        LocalDateTime from = criteria.getFromDate() != null ? criteria.getFromDate().atStartOfDay() : HISTORY_START;
+        LocalDateTime to = criteria.getToDate() != null ? criteria.getToDate().plusDays(1).atStartOfDay() : HISTORY_END;
+        KeysetCursor after = criteria.getCursor() != null && !criteria.getCursor().isBlank()
+                ? KeysetCursor.decode(criteria.getCursor()) : new KeysetCursor(HISTORY_END, Long.MAX_VALUE);
+        PageRequest page = PageRequest.of(0, size);
+
+        if (asDoctor) {
+            return bySchedule
+                    ? appointmentRepository.findDoctorHistoryByScheduledTime(userId, statuses, from, to, after.getTime(), after.getId(), page)
+                    : appointmentRepository.findDoctorHistoryByCreatedAt(userId, statuses, from, to, after.getTime(), after.getId(), page);
+        }
+        return bySchedule
+                ? appointmentRepository.findPatientHistoryByScheduledTime(userId, statuses, from, to, after.getTime(), after.getId(), page)
+                : appointmentRepository.findPatientHistoryByCreatedAt(userId, statuses, from, to, after.getTime(), after.getId(), page);
+    }
+
+    /**
+     * Cursor continuing after the last appointment of a history page, null when there is no next page.
+     */
+    public static String nextHistoryCursor(Slice<Appointment> page, String sort) {
+        if (!page.hasNext() || page.getContent().isEmpty()) {
+            return null;
+        }
+        Appointment last = page.getContent().get(page.getContent().size() - 1);
+        LocalDateTime time = isScheduledSort(sort) ? last.getScheduledTime() : last.getCreatedAt();
+        return new KeysetCursor(time, last.getId()).encode();
+    }
+
+    /**
+     * End of the time a doctor's appointment starting at {@code start} keeps them busy:
+     * their slot duration plus buffer time.
+     */
+    private LocalDateTime blockedUntil(Long doctorId, LocalDateTime start) {
+        return start.plusMinutes(blockedMinutes(doctorId));
+    }
+
+    private int blockedMinutes(Long doctorId) {
+        Optional<AppointmentSettings> settings = appointmentSettingsRepository.findByDoctorId(doctorId);
+        int slotMinutes = settings.map(AppointmentSettings::getSlotDurationMinutes).orElse(DEFAULT_SLOT_DURATION_MINUTES);
+        int bufferMinutes = settings.map(AppointmentSettings::getBufferTimeMinutes).orElse(DEFAULT_BUFFER_TIME_MINUTES);
+        return slotMinutes + bufferMinutes;
+    }
+
+    // Flushes right away so an appointments_no_overlap violation or a stale version surfaces here as a conflict
+    private Appointment saveWithoutConflict(Appointment appointment) {
+        return withoutConflict(appointment.getId(), () -> appointmentRepository.saveAndFlush(appointment));
+    }
 
-                return true;
+    private <T> T withoutConflict(Long appointmentId, Supplier<T> write) {
+        try {
+            return write.get();
+        } catch (OptimisticLockingFailureException e) {
+            throw new AppointmentConflictException(appointmentId,
+                    "Appointment was changed by someone else, reload it and try again");
+        } catch (DataIntegrityViolationException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof SQLException sqlException && EXCLUSION_VIOLATION.equals(sqlException.getSQLState())) {
+                    throw new AppointmentConflictException(appointmentId,
+                            "Doctor has a conflicting appointment at this time");
+                }
             }
+            throw e;
         }
-        return false;
+    }
+
+    private static boolean isScheduledSort(String sort) {
+        if (sort == null || sort.isBlank() || sort.equalsIgnoreCase("created")) {
+            return false;
+        }
+        if (sort.equalsIgnoreCase("scheduled")) {
+            return true;
+        }
+        throw new IllegalArgumentException("Unknown sort '" + sort + "', expected created or scheduled");
+    }
+
+    public boolean cancelAppointmentByPatient(Long appointmentId, Long patientId) {
+        Appointment appointment = transition(appointmentId, patientId, false,
+                Appointment.Transition.CANCEL_BY_PATIENT, null);
+        if (appointment == null) {
+            return false;
+        }
+
+        eventPublisher.publishEvent(AppointmentEvent.cancelledByPatient(appointment));
+
+        return true;
     }
 
     public boolean rejectAppointment(Long appointmentId, Long doctorId) {
-        Optional<Appointment> appointmentOpt = appointmentRepository.findById(appointmentId);
-        if (appointmentOpt.isPresent()) {
-            Appointment appointment = appointmentOpt.get();
-            if (appointment.getDoctor().getId().equals(doctorId) &&
-                    appointment.getStatus() == Appointment.Status.REQUESTED) {
-                appointment.setStatus(Appointment.Status.CANCELLED);
-                appointmentRepository.save(appointment);
-
-                // Send rejection notification to patient
-                try {
-                    String rejectionMessage = String.format("Your appointment request for %s has been declined by Dr. %s. Please contact the clinic for alternative options.",
-                            appointment.getFollowupDate() != null ? appointment.getFollowupDate().toString() : "the requested time",
-                            appointment.getDoctor().getName());
-                    notificationService.sendAppointmentNotification(
-                            appointment.getPatient().getId(),
-                            appointmentId,
-                            Notification.NotificationType.APPOINTMENT_CANCELLATION,
-                            rejectionMessage
-                    );
-                } catch (Exception e) {
-                    System.err.println("Failed to send rejection notification: " + e.getMessage());
-                }
+        Appointment appointment = transition(appointmentId, doctorId, true, Appointment.Transition.REJECT, null);
+        if (appointment == null) {
+            return false;
+        }
 
-                return true;
-            }
+        eventPublisher.publishEvent(AppointmentEvent.rejected(appointment));
+
+        return true;
+    }
+
+    /**
+     * Applies a transition to an appointment of the user with one conditional UPDATE that also returns what
+     * the counters, caches and events need, so nothing is read before or after. Returns a detached snapshot of
+     * the changed appointment, or null when it is not the user's or not in a status the transition starts from.
+     */
+    private Appointment transition(Long appointmentId, Long userId, boolean asDoctor,
+                                   Appointment.Transition transition, String notes) {
+        AppointmentRepository.Transitioned transitioned = appointmentRepository.transition(appointmentId, userId,
+                asDoctor, transition, notes, LocalDateTime.now());
+        if (transitioned == null) {
+            return null;
         }
-        return false;
+        Appointment appointment = transitioned.appointment();
+        counterService.recordStatusChange(appointment, transitioned.previousStatus());
+        appointmentChanged(appointment);
+        return appointment;
     }
 
-    public boolean completeAppointment(Long appointmentId, Long doctorId, String notes) {
-        Optional<Appointment> appointmentOpt = appointmentRepository.findById(appointmentId);
-        if (appointmentOpt.isPresent()) {
-            Appointment appointment = appointmentOpt.get();
-            if (appointment.getDoctor().getId().equals(doctorId) &&
-                    (appointment.getStatus() == Appointment.Status.SCHEDULED ||
-                            appointment.getStatus() == Appointment.Status.CONFIRMED)) {
-                appointment.setStatus(Appointment.Status.COMPLETED);
-                if (notes != null && !notes.trim().isEmpty()) {
-                    appointment.setNotes(notes);
-                }
-                appointmentRepository.save(appointment);
-                return true;
+    /**
+     * Schedules many of a doctor's pending requests at once, reporting an outcome per item. Items are checked
+     * against the doctor's existing appointments with one query and against each other in memory, accepted
+     * ones are written in JDBC batches and their notifications go out as one batch after commit. A concurrent
+     * scheduling that slips past the check, or a concurrent change of one of the appointments, fails the whole
+     * batch with an {@link AppointmentConflictException}.
+     */
+    public List<BulkAppointmentResultDTO> scheduleAppointments(Long doctorId, List<BulkScheduleRequestDTO.Item> items) {
+        Map<Long, Appointment> appointments = loadForDoctor(doctorId,
+                items.stream().map(BulkScheduleRequestDTO.Item::getAppointmentId).toList());
+        int blockedMinutes = blockedMinutes(doctorId);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<BulkAppointmentResultDTO> results = new ArrayList<>(items.size());
+        Map<BulkScheduleRequestDTO.Item, LocalDateTime> candidates = new LinkedHashMap<>();
+        Set<Long> seen = new HashSet<>();
+        for (BulkScheduleRequestDTO.Item item : items) {
+            Appointment appointment = appointments.get(item.getAppointmentId());
+            Outcome rejected = checkPending(item.getAppointmentId(), appointment, seen, Appointment.Transition.SCHEDULE);
+            LocalDateTime start = appointment != null && item.getScheduledTime() == null
+                    ? appointment.getScheduledTime() : item.getScheduledTime();
+            if (rejected == null && !start.isAfter(now)) {
+                rejected = Outcome.INVALID_TIME;
+            }
+            if (rejected != null) {
+                results.add(new BulkAppointmentResultDTO(item.getAppointmentId(), rejected, describe(rejected)));
+            } else {
+                candidates.put(item, start);
+                results.add(null);
             }
         }
-        return false;
-    }
 
-    public Map<String, Object> getAppointmentStatistics(Long doctorId) {
-        User doctor = userRepository.findById(doctorId)
-                .orElseThrow(() -> new EntityNotFoundException("Doctor not found"));
+        // Every blocking appointment the candidates could touch, in one query
+        IntervalTree<Long> busy = IntervalTree.<Long>builder().build();
+        if (!candidates.isEmpty()) {
+            LocalDateTime from = Collections.min(candidates.values());
+            LocalDateTime to = Collections.max(candidates.values()).plusMinutes(blockedMinutes);
+            IntervalTree.Builder<Long> builder = IntervalTree.builder();
+            for (Appointment existing : appointmentRepository.findBlockingBetween(doctorId, from, to,
+                    Appointment.BLOCKING_STATUSES)) {
+                builder.add(epochSecond(existing.getScheduledTime()), epochSecond(existing.getBlockedUntil()), existing.getId());
+            }
+            busy = builder.build();
+        }
 
-        Map<String, Object> stats = new HashMap<>();
-
-        // Get all appointments for the doctor
-        List<Appointment> allAppointments = appointmentRepository.findByDoctor(doctor);
-
-        // Calculate statistics
-        long totalAppointments = allAppointments.size();
-        long pendingRequests = allAppointments.stream()
-                .filter(apt -> apt.getStatus() == Appointment.Status.REQUESTED)
-                .count();
-        long scheduledAppointments = allAppointments.stream()
-                .filter(apt -> apt.getStatus() == Appointment.Status.SCHEDULED ||
-                        apt.getStatus() == Appointment.Status.CONFIRMED)
-                .count();
-        long completedAppointments = allAppointments.stream()
-                .filter(apt -> apt.getStatus() == Appointment.Status.COMPLETED)
-                .count();
-        long cancelledAppointments = allAppointments.stream()
-                .filter(apt -> apt.getStatus() == Appointment.Status.CANCELLED)
-                .count();
-
-        // Today's appointments
-        LocalDate today = LocalDate.now();
-        LocalDateTime startOfDay = today.atStartOfDay();
-        LocalDateTime endOfDay = today.atTime(23, 59, 59);
-
-        long todaysAppointments = allAppointments.stream()
-                .filter(apt -> apt.getScheduledTime() != null &&
-                        apt.getScheduledTime().isAfter(startOfDay) &&
-                        apt.getScheduledTime().isBefore(endOfDay))
-                .count();
-
-        // This week's appointments
-        LocalDateTime startOfWeek = today.atStartOfDay().minusDays(today.getDayOfWeek().getValue() - 1);
-        LocalDateTime endOfWeek = startOfWeek.plusDays(6).withHour(23).withMinute(59).withSecond(59);
-
-        long thisWeekAppointments = allAppointments.stream()
-                .filter(apt -> apt.getScheduledTime() != null &&
-                        apt.getScheduledTime().isAfter(startOfWeek) &&
-                        apt.getScheduledTime().isBefore(endOfWeek))
-                .count();
-
-        // New patients (first-time appointments)
-        Set<Long> uniquePatients = new HashSet<>();
-        long newPatients = 0;
-        for (Appointment apt : allAppointments) {
-            if (apt.getPatient() != null) {
-                Long patientId = apt.getPatient().getId();
-                if (!uniquePatients.contains(patientId)) {
-                    uniquePatients.add(patientId);
-                    if (apt.getStatus() == Appointment.Status.REQUESTED ||
-                            apt.getStatus() == Appointment.Status.SCHEDULED) {
-                        newPatients++;
+        TreeMap<LocalDateTime, LocalDateTime> accepted = new TreeMap<>();
+        List<Appointment> scheduled = new ArrayList<>();
+        List<AppointmentEvent> events = new ArrayList<>();
+        int index = 0;
+        for (BulkScheduleRequestDTO.Item item : items) {
+            if (results.get(index) == null) {
+                LocalDateTime start = candidates.get(item);
+                LocalDateTime end = start.plusMinutes(blockedMinutes);
+                if (busy.overlaps(epochSecond(start), epochSecond(end)) || overlapsAccepted(accepted, start, end)) {
+                    results.set(index, new BulkAppointmentResultDTO(item.getAppointmentId(), Outcome.CONFLICT,
+                            describe(Outcome.CONFLICT)));
+                } else {
+                    accepted.put(start, end);
+                    Appointment appointment = appointments.get(item.getAppointmentId());
+                    // The appointment leaves the day it was requested for
+                    appointmentChanged(appointment);
+                    appointment.setScheduledTime(start);
+                    appointment.setBlockedUntil(end);
+                    if (item.getType() != null) {
+                        appointment.setType(item.getType());
                     }
+                    appointment.setNotes(item.getNotes());
+                    appointment.setStatus(Appointment.Status.SCHEDULED);
+                    scheduled.add(appointment);
+                    events.add(AppointmentEvent.scheduled(appointment, item.getLocation()));
+                    results.set(index, new BulkAppointmentResultDTO(item.getAppointmentId(), Outcome.SCHEDULED,
+                            describe(Outcome.SCHEDULED)));
                 }
             }
+            index++;
         }
 
-        // Populate stats map
-        stats.put("totalAppointments", totalAppointments);
-        stats.put("pendingRequests", pendingRequests);
-        stats.put("scheduledAppointments", scheduledAppointments);
-        stats.put("completedAppointments", completedAppointments);
-        stats.put("cancelledAppointments", cancelledAppointments);
-        stats.put("todaysAppointments", todaysAppointments);
-        stats.put("thisWeekAppointments", thisWeekAppointments);
-        stats.put("newPatients", newPatients);
-        stats.put("totalUniquePatients", uniquePatients.size());
+        if (!scheduled.isEmpty()) {
+            withoutConflict(null, () -> {
+                appointmentRepository.saveAllAndFlush(scheduled);
+                return null;
+            });
+            counterService.recordStatusChanges(doctorId, scheduled, Appointment.Status.REQUESTED, Appointment.Status.SCHEDULED);
+            scheduled.forEach(this::appointmentChanged);
+            eventPublisher.publishEvent(new AppointmentBatchEvent(events));
+        }
+        return results;
+    }
 
-        return stats;
+    /**
+     * Rejects many of a doctor's pending requests at once, reporting an outcome per id.
+     */
+    public List<BulkAppointmentResultDTO> rejectAppointments(Long doctorId, List<Long> appointmentIds) {
+        Map<Long, Appointment> appointments = loadForDoctor(doctorId, appointmentIds);
+
+        List<BulkAppointmentResultDTO> results = new ArrayList<>(appointmentIds.size());
+        List<Appointment> rejected = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (Long appointmentId : appointmentIds) {
+            Appointment appointment = appointments.get(appointmentId);
+            Outcome outcome = checkPending(appointmentId, appointment, seen, Appointment.Transition.REJECT);
+            if (outcome == null) {
+                appointment.setStatus(Appointment.Status.CANCELLED);
+                rejected.add(appointment);
+                outcome = Outcome.REJECTED;
+            }
+            results.add(new BulkAppointmentResultDTO(appointmentId, outcome, describe(outcome)));
+        }
+
+        if (!rejected.isEmpty()) {
+            withoutConflict(null, () -> appointmentRepository.saveAllAndFlush(rejected));
+            counterService.recordStatusChanges(doctorId, rejected, Appointment.Status.REQUESTED, Appointment.Status.CANCELLED);
+            rejected.forEach(this::appointmentChanged);
+            eventPublisher.publishEvent(new AppointmentBatchEvent(rejected.stream()
+                    .map(AppointmentEvent::rejected)
+                    .toList()));
+        }
+        return results;
+    }
+
+    // The doctor's own appointments among the ids, with what their notifications need
+    private Map<Long, Appointment> loadForDoctor(Long doctorId, List<Long> appointmentIds) {
+        return appointmentRepository.findByDoctorIdAndIdIn(doctorId, new HashSet<>(appointmentIds)).stream()
+                .collect(Collectors.toMap(Appointment::getId, Function.identity()));
+    }
+
+    // Why a bulk item cannot be acted on, null when the transition applies to an appointment of the doctor seen for the first time
+    private static Outcome checkPending(Long appointmentId, Appointment appointment, Set<Long> seen,
+                                        Appointment.Transition transition) {
+        if (!seen.add(appointmentId)) {
+            return Outcome.DUPLICATE;
+        }
+        if (appointment == null) {
+            return Outcome.NOT_FOUND;
+        }
+        return transition.allowsFrom(appointment.getStatus()) ? null : Outcome.NOT_PENDING;
+    }
+
+    private static boolean overlapsAccepted(TreeMap<LocalDateTime, LocalDateTime> accepted, LocalDateTime start,
+                                            LocalDateTime end) {
+        Map.Entry<LocalDateTime, LocalDateTime> before = accepted.floorEntry(start);
+        Map.Entry<LocalDateTime, LocalDateTime> after = accepted.ceilingEntry(start);
+        return (before != null && before.getValue().isAfter(start)) || (after != null && after.getKey().isBefore(end));
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static String describe(Outcome outcome) {
+        return switch (outcome) {
+            case SCHEDULED -> "Appointment scheduled successfully";
+            case REJECTED -> "Appointment request rejected";
+            case NOT_FOUND -> "Appointment not found";
+            case NOT_PENDING -> "Appointment is not in pending status";
+            case DUPLICATE -> "Appointment appears more than once in the request";
+            case INVALID_TIME -> "Scheduled time must be in the future";
+            case CONFLICT -> "Doctor has a conflicting appointment at this time";
+        };
+    }
+
+    public boolean completeAppointment(Long appointmentId, Long doctorId, String notes) {
+        return transition(appointmentId, doctorId, true, Appointment.Transition.COMPLETE,
+                notes != null && !notes.trim().isEmpty() ? notes : null) != null;
+    }
+
+    /**
+     * Dashboard counters of a doctor: the maintained counters row plus two index range counts
+     * for today and this week, cached for a short while.
+     */
+    public Map<String, Object> getAppointmentStatistics(Long doctorId) {
+        long now = System.currentTimeMillis();
+        CachedStatistics cached = statisticsCache.get(doctorId);
+        if (cached != null && cached.getExpiresAt() > now) {
+            return cached.getStatistics().toMap();
+        }
+        if (!userRepository.existsById(doctorId)) {
+            throw new EntityNotFoundException("Doctor not found");
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate startOfWeek = today.minusDays(today.getDayOfWeek().getValue() - 1);
+        DoctorAppointmentCounters counters = counterService.getCounters(doctorId);
+        AppointmentStatisticsDTO statistics = new AppointmentStatisticsDTO(
+                counters.getTotal(),
+                counters.getRequested(),
+                counters.getScheduled(),
+                counters.getCompleted(),
+                counters.getCancelled(),
+                appointmentRepository.countByDoctorIdAndScheduledTimeGreaterThanEqualAndScheduledTimeLessThan(
+                        doctorId, today.atStartOfDay(), today.plusDays(1).atStartOfDay()),
+                appointmentRepository.countByDoctorIdAndScheduledTimeGreaterThanEqualAndScheduledTimeLessThan(
+                        doctorId, startOfWeek.atStartOfDay(), startOfWeek.plusDays(7).atStartOfDay()),
+                counters.getNewPatients(),
+                counters.getUniquePatients());
+
+        if (statisticsTtlMillis > 0) {
+            statisticsCache.put(doctorId, new CachedStatistics(statistics, now + statisticsTtlMillis));
+        }
+        return statistics.toMap();
     }
 
     public boolean updateAppointmentNotes(Long appointmentId, String notes) {
@@ -251,37 +465,18 @@ public class AppointmentService {
 
         Hospital hospital=hospitalRepository.getById(hospitalId);
         Appointment appointment = new Appointment(LocalDateTime.of(appointmentDate, appointmentTime), type, doctor, patient,hospital,dateandtime);
+        appointment.setBlockedUntil(blockedUntil(doctorId, appointment.getScheduledTime()));
         appointment.setNotes(reason);
         appointment.setFollowupDate(LocalDateTime.of(appointmentDate, appointmentTime));
         appointment.setCreatedAt(LocalDateTime.now());
         appointment.setUpdatedAt(LocalDateTime.now());
 
-        Appointment savedAppointment = appointmentRepository.save(appointment);
+        Appointment savedAppointment = saveWithoutConflict(appointment);
+        counterService.recordCreated(savedAppointment);
+        appointmentChanged(savedAppointment);
 
-        // Send notifications after successful booking
-        try {
-            // Notify the patient about appointment request
-            String patientMessage = String.format("Your appointment request with Dr. %s for %s at %s has been submitted and is pending confirmation.",
-                    doctor.getName(), appointmentDate.toString(), appointmentTime.toString());
-            notificationService.sendAppointmentNotification(
-                    patientId,
-                    savedAppointment.getId(),
-                    Notification.NotificationType.APPOINTMENT_CONFIRMATION,
-                    patientMessage
-            );
-
-            // Notify the doctor about new appointment request
-            String doctorMessage = String.format("New appointment request from %s for %s at %s. Please review and confirm.",
-                    patient.getName(), appointmentDate.toString(), appointmentTime.toString());
-            notificationService.sendAppointmentNotification(
-                    doctorId,
-                    savedAppointment.getId(),
-                    Notification.NotificationType.APPOINTMENT_CONFIRMATION,
-                    doctorMessage
-            );
-        } catch (Exception e) {
-            System.err.println("Failed to send appointment booking notifications: " + e.getMessage());
-        }
+        // Notifications go out once the booking has committed
+        eventPublisher.publishEvent(AppointmentEvent.requested(savedAppointment));
 
         return savedAppointment;
     }
@@ -300,43 +495,33 @@ public class AppointmentService {
                 .orElseThrow(() -> new EntityNotFoundException("Appointment not found"));
 
         // Validate that the appointment is in the correct status
-        if (appointment.getStatus() != Appointment.Status.REQUESTED) {
+        if (!Appointment.Transition.SCHEDULE.allowsFrom(appointment.getStatus())) {
             throw new IllegalStateException("Appointment is not in pending status");
         }
 
-        // Check for scheduling conflicts
-        List<Appointment> conflictingAppointments = appointmentRepository
-                .findByDoctorAndScheduledTimeBetween(
-                        appointment.getDoctor(),
-                        scheduledTime.minusMinutes(30),
-                        scheduledTime.plusMinutes(30)
-                );
-
-        if (!conflictingAppointments.isEmpty()) {
-            throw new IllegalStateException("Doctor has a conflicting appointment at this time");
+        // Early answer for the common case; appointments_no_overlap decides races between schedulers
+        Long doctorId = appointment.getDoctor().getId();
+        LocalDateTime blockedUntil = blockedUntil(doctorId, scheduledTime);
+        if (appointmentRepository.existsOverlapping(doctorId, appointmentId, scheduledTime, blockedUntil,
+                Appointment.BLOCKING_STATUSES)) {
+            throw new AppointmentConflictException(appointmentId, "Doctor has a conflicting appointment at this time");
         }
 
+        // The appointment leaves the day it was requested for
+        appointmentChanged(appointment);
         appointment.setScheduledTime(scheduledTime);
+        appointment.setBlockedUntil(blockedUntil);
         appointment.setType(type);
 
         appointment.setNotes(notes);
-        appointment.setStatus(Appointment.Status.SCHEDULED);
+        Appointment.Status previousStatus = appointment.getStatus();
+        appointment.setStatus(Appointment.Transition.SCHEDULE.getTarget());
 
-        Appointment savedAppointment = appointmentRepository.save(appointment);
+        Appointment savedAppointment = saveWithoutConflict(appointment);
+        counterService.recordStatusChange(savedAppointment, previousStatus);
+        appointmentChanged(savedAppointment);
 
-        // Send confirmation notification to patient
-        try {
-            String confirmationMessage = String.format("Your appointment has been confirmed for %s. Location: %s. Notes: %s",
-                    scheduledTime.toString(), location != null ? location : "TBD", notes != null ? notes : "None");
-            notificationService.sendAppointmentNotification(
-                    appointment.getPatient().getId(),
-                    appointmentId,
-                    Notification.NotificationType.APPOINTMENT_CONFIRMATION,
-                    confirmationMessage
-            );
-        } catch (Exception e) {
-            System.err.println("Failed to send appointment confirmation notification: " + e.getMessage());
-        }
+        eventPublisher.publishEvent(AppointmentEvent.scheduled(savedAppointment, location));
 
         return savedAppointment;
     }
@@ -364,4 +549,19 @@ public class AppointmentService {
         return appointmentRepository.findByDoctorAndScheduledTimeBetweenOrderByScheduledTimeAsc(
                 doctor, startOfDay, endOfDay);
     }
+
+    // Drops cached views of the appointment's doctor once the change is committed
+    private void appointmentChanged(Appointment appointment) {
+        occupancyService.invalidate(appointment);
+        if (appointment.getDoctor() != null) {
+            Long doctorId = appointment.getDoctor().getId();
+            AfterCommit.run(() -> statisticsCache.remove(doctorId));
+        }
+    }
+
+    @lombok.Value
+    private static class CachedStatistics {
+        AppointmentStatisticsDTO statistics;
+        long expiresAt;
+    }
 }
@@ -0,0 +1,211 @@
+package com.prescription.service;
+
+import com.prescription.dto.DoctorAvailabilitySlotDTO;
+import com.prescription.entity.AppointmentSettings;
+import com.prescription.entity.DoctorAvailabilitySlot;
+import com.prescription.repository.AppointmentSettingsRepository;
+import com.prescription.repository.DoctorAvailabilitySlotRepository;
+import com.prescription.util.AfterCommit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory index of free slots per doctor.
+ * Each doctor gets one bitset per day over the advance-booking window, with one bit per
+ * slot of {@code slotDurationMinutes} counted from midnight. A set bit means the slot is AVAILABLE.
+ * A slot stored as ending at 23:59 ends at midnight. Doctors whose slots are not aligned to that grid
+ * are not indexed and callers fall back to the database; that is remembered until the next invalidate.
+ */
+@Component
+@Slf4j
+public class AvailabilityBitmapIndex {
+
+    @Autowired
+    private DoctorAvailabilitySlotRepository slotRepository;
+
+    @Autowired
+    private AppointmentSettingsRepository settingsRepository;
+
+    private final ConcurrentHashMap<Long, DoctorBitmap> bitmaps = new ConcurrentHashMap<>();
+
+    // Bumped on every change so a bitmap built from an older read is never cached
+    private final ConcurrentHashMap<Long, AtomicLong> modificationCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Free slots of a doctor between two dates (inclusive), or null when the index cannot answer
+     * (range outside the booking window or slots not aligned to the slot grid).
+     */
+    public List<DoctorAvailabilitySlotDTO> findFreeSlots(Long doctorId, LocalDate startDate, LocalDate endDate) {
+        DoctorBitmap bitmap = getOrBuild(doctorId);
+        if (bitmap == null || !bitmap.covers(startDate, endDate)) {
+            return null;
+        }
+        return bitmap.freeSlots(startDate, endDate);
+    }
+
+    public void markBooked(DoctorAvailabilitySlot slot) {
+        AfterCommit.run(() -> update(slot, false));
+    }
+
+    public void markAvailable(DoctorAvailabilitySlot slot) {
+        AfterCommit.run(() -> update(slot, true));
+    }
+
+    /**
+     * Drops the doctor's bitmap, e.g. after slots were regenerated or settings changed.
+     * It is rebuilt on the next lookup.
+     */
+    public void invalidate(Long doctorId) {
+        AfterCommit.run(() -> {
+            counter(doctorId).incrementAndGet();
+            bitmaps.remove(doctorId);
+        });
+    }
+
+    private void update(DoctorAvailabilitySlot slot, boolean available) {
+        Long doctorId = slot.getDoctor().getId();
+        counter(doctorId).incrementAndGet();
+        DoctorBitmap bitmap = bitmaps.get(doctorId);
+        if (bitmap != null && !bitmap.set(slot, available)) {
+            bitmaps.remove(doctorId);
+        }
+    }
+
+    private DoctorBitmap getOrBuild(Long doctorId) {
+        LocalDate today = LocalDate.now();
+        DoctorBitmap bitmap = bitmaps.get(doctorId);
+        if (bitmap != null && bitmap.firstDay.equals(today)) {
+            return bitmap.indexable ? bitmap : null;
+        }
+
+        long modificationCount = counter(doctorId).get();
+        AppointmentSettings settings = settingsRepository.findByDoctorId(doctorId).orElse(null);
+        int slotDuration = settings != null && settings.getSlotDurationMinutes() != null
+                ? settings.getSlotDurationMinutes() : 30;
+        int bookingDays = settings != null && settings.getAdvanceBookingDays() != null
+                ? settings.getAdvanceBookingDays() : 30;
+
+        DoctorBitmap built = new DoctorBitmap(today, bookingDays + 1, slotDuration);
+        List<DoctorAvailabilitySlot> slots = slotRepository.findByDoctorIdAndSlotStatusAndSlotDateBetween(
+                doctorId, DoctorAvailabilitySlot.SlotStatus.AVAILABLE, today, today.plusDays(bookingDays));
+        for (DoctorAvailabilitySlot slot : slots) {
+            if (!built.set(slot, true)) {
+                log.debug("Slots of doctor {} are not aligned to {} minutes, not indexing", doctorId, slotDuration);
+                built = DoctorBitmap.notIndexable(today, slotDuration);
+                break;
+            }
+        }
+
+        if (counter(doctorId).get() == modificationCount) {
+            bitmaps.put(doctorId, built);
+        }
+        return built.indexable ? built : null;
+    }
+
+    private AtomicLong counter(Long doctorId) {
+        return modificationCounts.computeIfAbsent(doctorId, id -> new AtomicLong());
+    }
+
+    private static final class DoctorBitmap {
+        private static final int MIDNIGHT = 1440;
+        private static final LocalTime END_OF_DAY = LocalTime.of(23, 59);
+
+        private final LocalDate firstDay;
+        private final int days;
+        private final int slotDuration;
+        private final int slotsPerDay;
+        private final int wordsPerDay;
+        private final long[] words;
+        private final long[] slotIds;
+        // 0 for slots not generated from a template
+        private final long[] templateIds;
+        private final boolean indexable;
+
+        DoctorBitmap(LocalDate firstDay, int days, int slotDuration) {
+            this(firstDay, days, slotDuration, true);
+        }
+
+        private DoctorBitmap(LocalDate firstDay, int days, int slotDuration, boolean indexable) {
+            this.firstDay = firstDay;
+            this.days = days;
+            this.slotDuration = slotDuration;
+            this.slotsPerDay = MIDNIGHT / slotDuration;
+            this.wordsPerDay = (slotsPerDay + 63) / 64;
+            this.words = new long[days * wordsPerDay];
+            this.slotIds = new long[days * slotsPerDay];
+            this.templateIds = new long[days * slotsPerDay];
+            this.indexable = indexable;
+        }
+
+        // Cached in place of a bitmap so the doctor's slots are not read again on every lookup
+        static DoctorBitmap notIndexable(LocalDate firstDay, int slotDuration) {
+            return new DoctorBitmap(firstDay, 0, slotDuration, false);
+        }
+
+        boolean covers(LocalDate startDate, LocalDate endDate) {
+            return !startDate.isBefore(firstDay) && !endDate.isAfter(firstDay.plusDays(days - 1L));
+        }
+
+        /**
+         * Returns false when the slot does not fit the grid, in which case the bitmap must not be used.
+         */
+        synchronized boolean set(DoctorAvailabilitySlot slot, boolean available) {
+            int day = (int) (slot.getSlotDate().toEpochDay() - firstDay.toEpochDay());
+            if (day < 0 || day >= days) {
+                return true;
+            }
+            int startMinute = slot.getStartTime().toSecondOfDay() / 60;
+            int endMinute = slot.getEndTime().equals(END_OF_DAY) ? MIDNIGHT : slot.getEndTime().toSecondOfDay() / 60;
+            int bit = startMinute / slotDuration;
+            if (startMinute % slotDuration != 0 || endMinute - startMinute != slotDuration || bit >= slotsPerDay) {
+                return false;
+            }
+            int word = day * wordsPerDay + (bit >>> 6);
+            if (available) {
+                words[word] |= 1L << (bit & 63);
+                slotIds[day * slotsPerDay + bit] = slot.getId();
+                templateIds[day * slotsPerDay + bit] = slot.getGeneratedFromTemplateId() != null
+                        ? slot.getGeneratedFromTemplateId() : 0;
+            } else {
+                words[word] &= ~(1L << (bit & 63));
+            }
+            return true;
+        }
+
+        synchronized List<DoctorAvailabilitySlotDTO> freeSlots(LocalDate startDate, LocalDate endDate) {
+            List<DoctorAvailabilitySlotDTO> result = new ArrayList<>();
+            int fromDay = (int) (startDate.toEpochDay() - firstDay.toEpochDay());
+            int toDay = (int) (endDate.toEpochDay() - firstDay.toEpochDay());
+            for (int day = fromDay; day <= toDay; day++) {
+                LocalDate date = firstDay.plusDays(day);
+                for (int w = 0; w < wordsPerDay; w++) {
+                    long word = words[day * wordsPerDay + w];
+                    while (word != 0) {
+                        int bit = (w << 6) + Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+
+                        DoctorAvailabilitySlotDTO dto = new DoctorAvailabilitySlotDTO();
+                        dto.setId(slotIds[day * slotsPerDay + bit]);
+                        dto.setSlotDate(date);
+                        dto.setStartTime(LocalTime.ofSecondOfDay(bit * slotDuration * 60L));
+                        int endMinute = (bit + 1) * slotDuration;
+                        dto.setEndTime(endMinute == MIDNIGHT ? END_OF_DAY : LocalTime.ofSecondOfDay(endMinute * 60L));
+                        dto.setSlotStatus(DoctorAvailabilitySlot.SlotStatus.AVAILABLE);
+                        long templateId = templateIds[day * slotsPerDay + bit];
+                        dto.setGeneratedFromTemplateId(templateId != 0 ? templateId : null);
+                        result.add(dto);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
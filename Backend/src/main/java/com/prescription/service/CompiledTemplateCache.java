@@ -0,0 +1,35 @@
+package com.prescription.service;
+
+import com.prescription.entity.AvailabilityTemplate;
+import com.prescription.util.CompiledTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled date rules of availability templates, by template id.
+ * Entries are dropped when a template is updated or deleted, and a template whose rule no longer
+ * matches its entry is recompiled anyway.
+ */
+@Component
+public class CompiledTemplateCache {
+
+    private final ConcurrentHashMap<Long, CompiledTemplate> compiled = new ConcurrentHashMap<>();
+
+    public CompiledTemplate get(AvailabilityTemplate template) {
+        if (template.getId() == null) {
+            return CompiledTemplate.compile(template);
+        }
+        CompiledTemplate cached = compiled.get(template.getId());
+        if (cached != null && cached.isCompiledFrom(template)) {
+            return cached;
+        }
+        CompiledTemplate fresh = CompiledTemplate.compile(template);
+        compiled.put(template.getId(), fresh);
+        return fresh;
+    }
+
+    public void invalidate(Long templateId) {
+        compiled.remove(templateId);
+    }
+}
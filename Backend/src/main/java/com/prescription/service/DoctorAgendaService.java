@@ -0,0 +1,127 @@
+package com.prescription.service;
+
+import com.prescription.dto.AgendaEntryDTO;
+import com.prescription.dto.DoctorAgendaDTO;
+import com.prescription.entity.Appointment;
+import com.prescription.entity.AvailabilityException;
+import com.prescription.entity.DoctorAvailabilitySlot;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.AvailabilityExceptionRepository;
+import com.prescription.repository.DoctorAvailabilitySlotRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.util.SortedMerge;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A doctor's appointments, availability slots and availability exceptions of a day or week as one
+ * timeline. Each source is read in start order with a single query and the three are k-way merged.
+ * The agenda carries an ETag computed from its entries, so clients can revalidate unchanged days.
+ */
+@Service
+@Transactional(readOnly = true)
+public class DoctorAgendaService {
+
+    public static final int MAX_AGENDA_DAYS = 7;
+
+    private static final Comparator<AgendaEntryDTO> AGENDA_ORDER = Comparator.comparing(AgendaEntryDTO::getStart)
+            .thenComparing(AgendaEntryDTO::getKind)
+            .thenComparing(AgendaEntryDTO::getId);
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorAvailabilitySlotRepository slotRepository;
+
+    @Autowired
+    private AvailabilityExceptionRepository exceptionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    public DoctorAgendaDTO getAgenda(Long doctorId, LocalDate startDate, int days) {
+        if (days < 1 || days > MAX_AGENDA_DAYS) {
+            throw new IllegalArgumentException("Days must be between 1 and " + MAX_AGENDA_DAYS);
+        }
+        if (!userRepository.existsById(doctorId)) {
+            throw new EntityNotFoundException("Doctor not found");
+        }
+        LocalDate endDate = startDate.plusDays(days - 1);
+
+        List<AgendaEntryDTO> appointments = new ArrayList<>();
+        for (Appointment appointment : appointmentRepository.findAgenda(doctorId,
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay())) {
+            appointments.add(toEntry(appointment));
+        }
+
+        List<AgendaEntryDTO> slots = new ArrayList<>();
+        for (DoctorAvailabilitySlot slot : slotRepository.findByDoctorIdAndSlotDateBetweenOrderBySlotDateAscStartTimeAscIdAsc(
+                doctorId, startDate, endDate)) {
+            if (slot.getSlotDate() != null && slot.getStartTime() != null) {
+                slots.add(toEntry(slot));
+            }
+        }
+
+        // Whole-day exceptions have no times in the table, so these few are sorted here
+        List<AgendaEntryDTO> exceptions = new ArrayList<>();
+        for (AvailabilityException exception : exceptionRepository.findByDoctorIdAndExceptionDateBetween(
+                doctorId, startDate, endDate)) {
+            if (exception.getExceptionDate() != null) {
+                exceptions.add(toEntry(exception));
+            }
+        }
+        exceptions.sort(AGENDA_ORDER);
+
+        List<AgendaEntryDTO> entries = SortedMerge.merge(List.of(exceptions, slots, appointments), AGENDA_ORDER);
+        return new DoctorAgendaDTO(doctorId, startDate, endDate, entries, etag(doctorId, startDate, endDate, entries));
+    }
+
+    private static AgendaEntryDTO toEntry(Appointment appointment) {
+        return new AgendaEntryDTO(AgendaEntryDTO.Kind.APPOINTMENT, appointment.getId(),
+                appointment.getScheduledTime(), appointment.getBlockedUntil(), appointment.getStatus().name(),
+                appointment.getPatient().getName(), appointment.getPatient().getId(),
+                appointment.getType() != null ? appointment.getType().name() : null,
+                appointment.getHospital() != null ? appointment.getHospital().getId() : null);
+    }
+
+    private static AgendaEntryDTO toEntry(DoctorAvailabilitySlot slot) {
+        LocalDateTime start = slot.getSlotDate().atTime(slot.getStartTime());
+        LocalDateTime end = null;
+        if (slot.getEndTime() != null) {
+            // A slot ending before it starts runs past midnight
+            end = slot.getSlotDate().plusDays(slot.getEndTime().isBefore(slot.getStartTime()) ? 1 : 0)
+                    .atTime(slot.getEndTime());
+        }
+        return new AgendaEntryDTO(AgendaEntryDTO.Kind.SLOT, slot.getId(), start, end,
+                slot.getSlotStatus() != null ? slot.getSlotStatus().name() : null, null, null, null, null);
+    }
+
+    private static AgendaEntryDTO toEntry(AvailabilityException exception) {
+        LocalDate date = exception.getExceptionDate();
+        LocalDateTime start = exception.getStartTime() != null ? date.atTime(exception.getStartTime()) : date.atStartOfDay();
+        LocalDateTime end = exception.getEndTime() != null ? date.atTime(exception.getEndTime()) : date.plusDays(1).atStartOfDay();
+        return new AgendaEntryDTO(AgendaEntryDTO.Kind.EXCEPTION, exception.getId(), start, end,
+                exception.getExceptionType() != null ? exception.getExceptionType().name() : null,
+                exception.getReason(), null, null, null);
+    }
+
+    private static String etag(Long doctorId, LocalDate startDate, LocalDate endDate, List<AgendaEntryDTO> entries) {
+        StringBuilder content = new StringBuilder();
+        content.append(doctorId).append('|').append(startDate).append('|').append(endDate);
+        for (AgendaEntryDTO entry : entries) {
+            content.append('\n').append(entry);
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -0,0 +1,160 @@
+package com.prescription.service;
+
+import com.prescription.dto.AppointmentStatisticsDTO;
+import com.prescription.entity.Appointment;
+import com.prescription.entity.DoctorAppointmentCounters;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.DoctorAppointmentCountersRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Maintains the doctor_appointment_counters read model. Every appointment change applies its
+ * delta in the caller's transaction with a relative UPDATE; a doctor without a counters row yet
+ * is counted from scratch instead. {@link #reconcile(Long)} recomputes a row from the appointments.
+ */
+@Service
+@Slf4j
+@Transactional
+public class DoctorAppointmentCounterService {
+
+    @Autowired
+    private DoctorAppointmentCountersRepository countersRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Counts a newly saved appointment.
+     */
+    public void recordCreated(Appointment appointment) {
+        apply(appointment, null, appointment.getStatus());
+    }
+
+    /**
+     * Moves a saved appointment from its previous status to its current one.
+     */
+    public void recordStatusChange(Appointment appointment, Appointment.Status previousStatus) {
+        if (previousStatus != appointment.getStatus()) {
+            apply(appointment, previousStatus, appointment.getStatus());
+        }
+    }
+
+    /**
+     * Moves saved appointments of one doctor from one status to another with a single counters update.
+     */
+    public void recordStatusChanges(Long doctorId, Collection<Appointment> appointments,
+                                    Appointment.Status from, Appointment.Status to) {
+        if (appointments.isEmpty() || from == to) {
+            return;
+        }
+        long count = appointments.size();
+        long[] byStatus = new long[4];
+        addToBucket(byStatus, from, -count);
+        addToBucket(byStatus, to, count);
+        int openChange = isOpen(to) - isOpen(from);
+        long newPatients = openChange == 0 ? 0 : openChange * appointmentRepository.countFirstWithDoctor(
+                appointments.stream().map(Appointment::getId).toList());
+
+        int updated = countersRepository.addDeltas(doctorId, 0,
+                byStatus[0], byStatus[1], byStatus[2], byStatus[3], 0, newPatients);
+        if (updated == 0) {
+            reconcile(doctorId);
+        }
+    }
+
+    /**
+     * Counters of a doctor, counted from the appointments the first time they are asked for.
+     */
+    public DoctorAppointmentCounters getCounters(Long doctorId) {
+        return countersRepository.findById(doctorId).orElseGet(() -> {
+            reconcile(doctorId);
+            return countersRepository.findById(doctorId).orElseThrow();
+        });
+    }
+
+    /**
+     * Recomputes a doctor's counters from their appointments while holding the row lock, so no
+     * delta can be applied in between. Returns true when the stored counters had drifted.
+     */
+    public boolean reconcile(Long doctorId) {
+        countersRepository.insertIfAbsent(doctorId);
+        // Refresh, deltas applied earlier in this transaction bypassed any managed instance
+        DoctorAppointmentCounters counters = entityManager.find(DoctorAppointmentCounters.class, doctorId);
+        entityManager.refresh(counters, LockModeType.PESSIMISTIC_WRITE);
+
+        // Day and week ranges are not stored, any dates do
+        LocalDate today = LocalDate.now();
+        AppointmentStatisticsDTO actual = appointmentRepository.aggregateStatistics(doctorId, today, today, today,
+                Appointment.Status.REQUESTED, Appointment.Status.SCHEDULED, Appointment.Status.CONFIRMED,
+                Appointment.Status.COMPLETED, Appointment.Status.CANCELLED);
+
+        boolean drifted = counters.getTotal() != actual.getTotalAppointments()
+                || counters.getRequested() != actual.getPendingRequests()
+                || counters.getScheduled() != actual.getScheduledAppointments()
+                || counters.getCompleted() != actual.getCompletedAppointments()
+                || counters.getCancelled() != actual.getCancelledAppointments()
+                || counters.getUniquePatients() != actual.getTotalUniquePatients()
+                || counters.getNewPatients() != actual.getNewPatients();
+
+        counters.setTotal(actual.getTotalAppointments());
+        counters.setRequested(actual.getPendingRequests());
+        counters.setScheduled(actual.getScheduledAppointments());
+        counters.setCompleted(actual.getCompletedAppointments());
+        counters.setCancelled(actual.getCancelledAppointments());
+        counters.setUniquePatients(actual.getTotalUniquePatients());
+        counters.setNewPatients(actual.getNewPatients());
+        counters.setReconciledAt(LocalDateTime.now());
+        entityManager.flush();
+        entityManager.detach(counters);
+        return drifted;
+    }
+
+    private void apply(Appointment appointment, Appointment.Status from, Appointment.Status to) {
+        Long doctorId = appointment.getDoctor().getId();
+        Long patientId = appointment.getPatient().getId();
+        boolean firstForPatient = !appointmentRepository.existsByDoctorIdAndPatientIdAndIdLessThan(
+                doctorId, patientId, appointment.getId());
+
+        long[] byStatus = new long[4];
+        addToBucket(byStatus, from, -1);
+        addToBucket(byStatus, to, 1);
+        long newPatients = firstForPatient ? isOpen(to) - (from != null ? isOpen(from) : 0) : 0;
+        long uniquePatients = from == null && firstForPatient ? 1 : 0;
+
+        int updated = countersRepository.addDeltas(doctorId, from == null ? 1 : 0,
+                byStatus[0], byStatus[1], byStatus[2], byStatus[3], uniquePatients, newPatients);
+        if (updated == 0) {
+            // No row yet: count everything, including this change, from the appointments
+            reconcile(doctorId);
+        }
+    }
+
+    private static void addToBucket(long[] byStatus, Appointment.Status status, long delta) {
+        if (status == null) {
+            return;
+        }
+        switch (status) {
+            case REQUESTED -> byStatus[0] += delta;
+            case SCHEDULED, CONFIRMED -> byStatus[1] += delta;
+            case COMPLETED -> byStatus[2] += delta;
+            case CANCELLED -> byStatus[3] += delta;
+        }
+    }
+
+    private static int isOpen(Appointment.Status status) {
+        return status == Appointment.Status.REQUESTED || status == Appointment.Status.SCHEDULED ? 1 : 0;
+    }
+}
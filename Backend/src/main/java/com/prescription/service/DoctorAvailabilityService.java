@@ -4,17 +4,32 @@ import com.prescription.dto.AvailabilityTemplateDTO;
 import com.prescription.dto.AvailabilityExceptionDTO;
 import com.prescription.dto.DoctorAvailabilitySlotDTO;
 import com.prescription.dto.AppointmentSettingsDTO;
+import com.prescription.dto.SlotGenerationResult;
+import com.prescription.dto.SlotSearchCriteria;
+import com.prescription.dto.SlotSearchResultDTO;
 import com.prescription.entity.*;
+import com.prescription.exception.SlotBookingConflictException;
 import com.prescription.repository.*;
 import com.prescription.util.AvailabilityUtil;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -35,6 +50,24 @@ public class DoctorAvailabilityService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private SlotGenerationEngine slotGenerationEngine;
+
+    @Autowired
+    private AvailabilityBitmapIndex availabilityIndex;
+
+    @Autowired
+    private CompiledTemplateCache compiledTemplates;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.slots.booking.max-attempts:3}")
+    private int bookingMaxAttempts;
+
+    @Value("${app.slots.booking.backoff-millis:10}")
+    private long bookingBackoffMillis;
+
     // ============= TEMPLATE MANAGEMENT =============
 
     public AvailabilityTemplate createTemplate(Long doctorId, AvailabilityTemplateDTO dto) {
@@ -87,7 +120,7 @@ public class DoctorAvailabilityService {
         System.out.println(6);
 
         // Generate slots for the next 30 days
-        generateSlotsForTemplate(savedTemplate, LocalDate.now(), LocalDate.now().plusDays(30));
+        generateSlotsForTemplates(doctor, List.of(savedTemplate), LocalDate.now(), LocalDate.now().plusDays(30));
         System.out.println(7);
 
         return savedTemplate;
@@ -129,10 +162,16 @@ public class DoctorAvailabilityService {
         }
 
         AvailabilityTemplate savedTemplate = templateRepository.save(template);
+        compiledTemplates.invalidate(templateId);
 
-        // Regenerate slots
-        slotRepository.deleteByDoctorAndGeneratedFromTemplateId(template.getDoctor(), templateId);
-        generateSlotsForTemplate(savedTemplate, LocalDate.now(), LocalDate.now().plusDays(30));
+        // Apply only the slot-level difference, over the 30 day window or as far as the template was materialized
+        LocalDate today = LocalDate.now();
+        LocalDate endDate = slotRepository.findLastSlotDateByTemplateId(templateId)
+                .filter(lastDate -> lastDate.isAfter(today.plusDays(30)))
+                .orElse(today.plusDays(30));
+        AppointmentSettings settings = getOrCreateSettings(template.getDoctor().getId());
+        slotGenerationEngine.reconcileTemplate(template.getDoctor(), savedTemplate,
+                settings.getSlotDurationMinutes(), today, endDate);
 
         return savedTemplate;
     }
@@ -143,6 +182,8 @@ public class DoctorAvailabilityService {
 
         // Delete associated slots
         slotRepository.deleteByDoctorAndGeneratedFromTemplateId(template.getDoctor(), templateId);
+        availabilityIndex.invalidate(template.getDoctor().getId());
+        compiledTemplates.invalidate(templateId);
 
         templateRepository.delete(template);
     }
@@ -211,16 +252,123 @@ public class DoctorAvailabilityService {
         return slotRepository.findByDoctorAndSlotDateOrderByStartTimeAsc(doctor, date);
     }
 
+    /**
+     * Free slots for patients, answered from the in-memory bitmap index when possible.
+     */
+    public List<DoctorAvailabilitySlotDTO> getPublicAvailableSlots(Long doctorId, LocalDate startDate, LocalDate endDate) {
+        List<DoctorAvailabilitySlotDTO> indexed = availabilityIndex.findFreeSlots(doctorId, startDate, endDate);
+        if (indexed != null) {
+            return indexed;
+        }
+
+        List<DoctorAvailabilitySlotDTO> availableSlots = new ArrayList<>();
+        for (DoctorAvailabilitySlot slot : getDoctorAvailableSlots(doctorId, startDate, endDate)) {
+            if (slot.getSlotStatus() == DoctorAvailabilitySlot.SlotStatus.AVAILABLE) {
+                availableSlots.add(convertToSlotDTO(slot));
+            }
+        }
+        return availableSlots;
+    }
+
+    /**
+     * Earliest free slots across all doctors matching the criteria, one page at a time.
+     */
+    @Transactional(readOnly = true)
+    public Slice<SlotSearchResultDTO> searchAvailableSlots(SlotSearchCriteria criteria, int page, int size) {
+        SlotSearchCriteria c = normalizeSearchCriteria(criteria);
+        return slotRepository.searchAvailableSlots(c.getSpecialization(), c.getHospitalId(), c.getFromDate(),
+                notBefore(c.getFromDate()), c.getToDate(), c.getDayStart(), c.getDayEnd(),
+                PageRequest.of(page, size));
+    }
+
+    /**
+     * Same search as {@link #searchAvailableSlots}, handing the first {@code limit} results to the consumer
+     * as they are read from the database. Returns the number of results written.
+     */
+    @Transactional(readOnly = true)
+    public int streamAvailableSlots(SlotSearchCriteria criteria, int limit, Consumer<SlotSearchResultDTO> consumer) {
+        SlotSearchCriteria c = normalizeSearchCriteria(criteria);
+        int[] written = {0};
+        try (Stream<SlotSearchResultDTO> results = slotRepository.streamAvailableSlots(c.getSpecialization(),
+                c.getHospitalId(), c.getFromDate(), notBefore(c.getFromDate()), c.getToDate(), c.getDayStart(), c.getDayEnd())) {
+            results.limit(limit).forEach(result -> {
+                consumer.accept(result);
+                written[0]++;
+            });
+        }
+        return written[0];
+    }
+
+    // Null criteria become match-all sentinels so the query never binds untyped nulls
+    private SlotSearchCriteria normalizeSearchCriteria(SlotSearchCriteria criteria) {
+        SlotSearchCriteria c = new SlotSearchCriteria();
+        LocalDate today = LocalDate.now();
+        c.setSpecialization(criteria.getSpecialization() != null ? criteria.getSpecialization().trim() : "");
+        c.setHospitalId(criteria.getHospitalId() != null ? criteria.getHospitalId() : -1L);
+        c.setFromDate(criteria.getFromDate() != null && criteria.getFromDate().isAfter(today) ? criteria.getFromDate() : today);
+        c.setToDate(criteria.getToDate() != null ? criteria.getToDate() : c.getFromDate().plusDays(30));
+        c.setDayStart(criteria.getDayStart() != null ? criteria.getDayStart() : LocalTime.MIN);
+        c.setDayEnd(criteria.getDayEnd() != null ? criteria.getDayEnd() : LocalTime.MAX);
+        return c;
+    }
+
+    // Slots earlier today are already past
+    private static LocalTime notBefore(LocalDate fromDate) {
+        return fromDate.equals(LocalDate.now()) ? LocalTime.now().withNano(0) : LocalTime.MIN;
+    }
+
+    /**
+     * Books a slot with a conditional update on (status, version) instead of read-check-save,
+     * so two concurrent bookings can never both win. When the update misses because the slot
+     * changed but is still available, it is retried up to {@code app.slots.booking.max-attempts} times.
+     * Every attempt is its own transaction, so the backoff between them holds no connection.
+     * Called inside a caller's transaction there is a single attempt and a miss is a conflict.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public DoctorAvailabilitySlot bookSlot(Long slotId) {
-        DoctorAvailabilitySlot slot = slotRepository.findById(slotId)
+        int maxAttempts = TransactionSynchronizationManager.isActualTransactionActive() ? 1 : bookingMaxAttempts;
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int attempt = 1; ; attempt++) {
+            DoctorAvailabilitySlot booked = transactionTemplate.execute(status -> tryBookSlot(slotId));
+            if (booked != null) {
+                return booked;
+            }
+
+            if (attempt >= maxAttempts) {
+                throw new SlotBookingConflictException(slotId, "Slot is being booked concurrently, please try again");
+            }
+            backOff(attempt);
+        }
+    }
+
+    // Null when the conditional update missed a slot that is still available
+    private DoctorAvailabilitySlot tryBookSlot(Long slotId) {
+        DoctorAvailabilitySlotRepository.SlotState state = slotRepository.findStateById(slotId)
                 .orElseThrow(() -> new EntityNotFoundException("Slot not found"));
 
-        if (slot.getSlotStatus() != DoctorAvailabilitySlot.SlotStatus.AVAILABLE) {
-            throw new IllegalStateException("Slot is not available for booking");
+        if (state.getSlotStatus() != DoctorAvailabilitySlot.SlotStatus.AVAILABLE) {
+            throw new SlotBookingConflictException(slotId, "Slot is not available for booking");
         }
 
-        slot.setSlotStatus(DoctorAvailabilitySlot.SlotStatus.BOOKED);
-        return slotRepository.save(slot);
+        int updated = slotRepository.compareAndSetStatus(slotId,
+                DoctorAvailabilitySlot.SlotStatus.AVAILABLE, DoctorAvailabilitySlot.SlotStatus.BOOKED,
+                state.getVersion(), LocalDateTime.now());
+        if (updated != 1) {
+            return null;
+        }
+        DoctorAvailabilitySlot booked = slotRepository.findById(slotId)
+                .orElseThrow(() -> new EntityNotFoundException("Slot not found"));
+        availabilityIndex.markBooked(booked);
+        return booked;
+    }
+
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bookingBackoffMillis * attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while booking slot", e);
+        }
     }
 
     public DoctorAvailabilitySlot releaseSlot(Long slotId) {
@@ -228,7 +376,9 @@ public class DoctorAvailabilityService {
                 .orElseThrow(() -> new EntityNotFoundException("Slot not found"));
 
         slot.setSlotStatus(DoctorAvailabilitySlot.SlotStatus.AVAILABLE);
-        return slotRepository.save(slot);
+        DoctorAvailabilitySlot saved = slotRepository.save(slot);
+        availabilityIndex.markAvailable(saved);
+        return saved;
     }
 
     // ============= SETTINGS MANAGEMENT =============
@@ -259,93 +409,21 @@ public class DoctorAvailabilityService {
         settings.setAdvanceBookingDays(dto.getAdvanceBookingDays());
         settings.setBufferTimeMinutes(dto.getBufferTimeMinutes());
 
+        availabilityIndex.invalidate(doctorId);
         return settingsRepository.save(settings);
     }
 
     // ============= UTILITY METHODS =============
 
-    private void generateSlotsForTemplate(AvailabilityTemplate template, LocalDate startDate, LocalDate endDate) {
-        AppointmentSettings settings = getOrCreateSettings(template.getDoctor().getId());
-        int slotDuration = settings.getSlotDurationMinutes();
-
-        LocalDate currentDate = startDate;
-        while (!currentDate.isAfter(endDate)) {
-            if (isTemplateApplicableForDate(template, currentDate)) {
-                // Check for exceptions
-                Optional<AvailabilityException> exception = exceptionRepository
-                        .findByDoctorAndExceptionDate(template.getDoctor(), currentDate);
-
-                if (exception.isPresent()) {
-                    if (exception.get().getExceptionType() == AvailabilityException.ExceptionType.UNAVAILABLE) {
-                        currentDate = currentDate.plusDays(1);
-                        continue;
-                    } else if (exception.get().getExceptionType() == AvailabilityException.ExceptionType.CUSTOM_HOURS) {
-                        // Use custom hours from exception
-                        generateSlotsForTimeRange(template.getDoctor(), currentDate,
-                                exception.get().getStartTime(), exception.get().getEndTime(),
-                                slotDuration, template.getId());
-                        currentDate = currentDate.plusDays(1);
-                        continue;
-                    }
-                }
-
-                // Generate slots for template's time range
-                generateSlotsForTimeRange(template.getDoctor(), currentDate,
-                        template.getStartTime(), template.getEndTime(),
-                        slotDuration, template.getId());
-            }
-            currentDate = currentDate.plusDays(1);
-        }
-    }
-
-    private void generateSlotsForTimeRange(User doctor, LocalDate date, LocalTime startTime,
-                                           LocalTime endTime, int slotDuration, Long templateId) {
-        LocalTime current = startTime;
-        while (current.isBefore(endTime)) {
-            LocalTime slotEnd = current.plusMinutes(slotDuration);
-            if (slotEnd.isAfter(endTime)) {
-                break;
-            }
-
-            // Check if slot already exists
-            List<DoctorAvailabilitySlot> existingSlots = slotRepository
-                    .findConflictingSlots(doctor, date, current, slotEnd);
-
-            if (existingSlots.isEmpty()) {
-                DoctorAvailabilitySlot slot = new DoctorAvailabilitySlot();
-                slot.setDoctor(doctor);
-                slot.setSlotDate(date);
-                slot.setStartTime(current);
-                slot.setEndTime(slotEnd);
-                slot.setSlotStatus(DoctorAvailabilitySlot.SlotStatus.AVAILABLE);
-                slot.setGeneratedFromTemplateId(templateId);
-                slotRepository.save(slot);
-            }
-
-            current = slotEnd;
-        }
-    }
-
-    private boolean isTemplateApplicableForDate(AvailabilityTemplate template, LocalDate date) {
-        switch (template.getScheduleType()) {
-            case DAILY:
-                return true;
-            case WEEKLY:
-                Set<Integer> daysOfWeek = AvailabilityUtil.parseDaysOfWeek(template.getDaysOfWeek());
-                return AvailabilityUtil.isDateInDaysOfWeek(date, daysOfWeek);
-            case SPECIFIC_DATE_RANGE:
-                return !date.isBefore(template.getStartDate()) && !date.isAfter(template.getEndDate());
-            case SPECIFIC_DATES:
-                Set<LocalDate> specificDates = AvailabilityUtil.parseSpecificDates(template.getSpecificDates());
-                return specificDates.contains(date);
-            default:
-                return false;
-        }
+    private SlotGenerationResult generateSlotsForTemplates(User doctor, List<AvailabilityTemplate> templates,
+                                                           LocalDate startDate, LocalDate endDate) {
+        AppointmentSettings settings = getOrCreateSettings(doctor.getId());
+        return slotGenerationEngine.generate(doctor, templates, settings.getSlotDurationMinutes(), startDate, endDate);
     }
 
     // ============= BULK OPERATIONS =============
 
-    public void regenerateAllSlots(Long doctorId) {
+    public SlotGenerationResult regenerateAllSlots(Long doctorId) {
         User doctor = userRepository.findById(doctorId)
                 .orElseThrow(() -> new EntityNotFoundException("Doctor not found"));
 
@@ -355,14 +433,13 @@ public class DoctorAvailabilityService {
                         doctor, LocalDate.now(), LocalDate.now().plusDays(60));
 
         slotRepository.deleteAll(existingSlots);
+        availabilityIndex.invalidate(doctorId);
 
         // Regenerate slots from all active templates
         List<AvailabilityTemplate> activeTemplates = templateRepository
                 .findByDoctorAndIsActiveOrderByPriorityDesc(doctor, true);
 
-        for (AvailabilityTemplate template : activeTemplates) {
-            generateSlotsForTemplate(template, LocalDate.now(), LocalDate.now().plusDays(60));
-        }
+        return generateSlotsForTemplates(doctor, activeTemplates, LocalDate.now(), LocalDate.now().plusDays(60));
     }
 
     // ============= DTO CONVERSION METHODS =============
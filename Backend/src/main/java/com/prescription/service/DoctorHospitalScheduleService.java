@@ -9,6 +9,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.DayOfWeek;
+import java.time.LocalTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,6 +21,7 @@ public class DoctorHospitalScheduleService {
     private final DoctorHospitalScheduleRepository scheduleRepository;
     private final DoctorRepository doctorRepository;
     private final HospitalRepository hospitalRepository;
+    private final AppointmentOccupancyService occupancyService;
 
     public List<DoctorHospitalScheduleDto> getSchedulesByDoctorAndHospitalAndDay(
             Long doctorId, Long hospitalId, String dayOfWeek) {
@@ -28,7 +31,7 @@ public class DoctorHospitalScheduleService {
                     .collect(Collectors.toList());
         } else if (hospitalId != null && dayOfWeek != null) {
             return scheduleRepository.findByDoctorIdAndHospitalIdAndDayOfWeek(
-                            doctorId, hospitalId, dayOfWeek.toUpperCase()).stream()
+                            doctorId, hospitalId, toDayOfWeek(dayOfWeek)).stream()
                     .map(this::convertToDto)
                     .collect(Collectors.toList());
         } else if (hospitalId != null) {
@@ -36,7 +39,7 @@ public class DoctorHospitalScheduleService {
                     .map(this::convertToDto)
                     .collect(Collectors.toList());
         } else {
-            return scheduleRepository.findByDoctorIdAndDayOfWeek(doctorId, dayOfWeek.toUpperCase()).stream()
+            return scheduleRepository.findByDoctorIdAndDayOfWeek(doctorId, toDayOfWeek(dayOfWeek)).stream()
                     .map(this::convertToDto)
                     .collect(Collectors.toList());
         }
@@ -52,7 +55,7 @@ public class DoctorHospitalScheduleService {
                 .findByDoctorIdAndHospitalIdAndDayOfWeek(
                         scheduleDto.getDoctorId(),
                         scheduleDto.getHospitalId(),
-                        scheduleDto.getDayOfWeek().toUpperCase());
+                        toDayOfWeek(scheduleDto.getDayOfWeek()));
         if (!existingSchedules.isEmpty()) {
             throw new RuntimeException("Schedule already exists for this day");
         }
@@ -60,11 +63,12 @@ public class DoctorHospitalScheduleService {
         DoctorHospitalSchedule schedule = new DoctorHospitalSchedule();
         schedule.setDoctorId(scheduleDto.getDoctorId());
         schedule.setHospitalId(scheduleDto.getHospitalId());
-        schedule.setDayOfWeek(scheduleDto.getDayOfWeek().toUpperCase());
+        schedule.setDayOfWeek(toDayOfWeek(scheduleDto.getDayOfWeek()));
         schedule.setTimeSlots(scheduleDto.getTimeSlots());
 
 
         DoctorHospitalSchedule savedSchedule = scheduleRepository.save(schedule);
+        occupancyService.invalidate(savedSchedule.getDoctorId(), savedSchedule.getHospitalId());
         return convertToDto(savedSchedule);
     }
 
@@ -80,18 +84,23 @@ public class DoctorHospitalScheduleService {
                 .findByDoctorIdAndHospitalIdAndDayOfWeek(
                         scheduleDto.getDoctorId(),
                         scheduleDto.getHospitalId(),
-                        scheduleDto.getDayOfWeek().toUpperCase());
+                        toDayOfWeek(scheduleDto.getDayOfWeek()));
         if (existingSchedules.stream().anyMatch(s -> !s.getId().equals(id))) {
             throw new RuntimeException("Another schedule already exists for this day");
         }
 
+        // The schedule may move to another doctor or hospital; both pairs lose their cached days
+        Long previousDoctorId = schedule.getDoctorId();
+        Long previousHospitalId = schedule.getHospitalId();
         schedule.setDoctorId(scheduleDto.getDoctorId());
         schedule.setHospitalId(scheduleDto.getHospitalId());
-        schedule.setDayOfWeek(scheduleDto.getDayOfWeek().toUpperCase());
+        schedule.setDayOfWeek(toDayOfWeek(scheduleDto.getDayOfWeek()));
         schedule.setTimeSlots(scheduleDto.getTimeSlots());
 
 
         DoctorHospitalSchedule updatedSchedule = scheduleRepository.save(schedule);
+        occupancyService.invalidate(previousDoctorId, previousHospitalId);
+        occupancyService.invalidate(updatedSchedule.getDoctorId(), updatedSchedule.getHospitalId());
         return convertToDto(updatedSchedule);
     }
 
@@ -100,6 +109,25 @@ public class DoctorHospitalScheduleService {
         DoctorHospitalSchedule schedule = scheduleRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Schedule not found"));
         scheduleRepository.delete(schedule);
+        occupancyService.invalidate(schedule.getDoctorId(), schedule.getHospitalId());
+    }
+
+    /**
+     * Doctors' schedules at a hospital on a weekday whose time slots cover the given time.
+     */
+    public List<DoctorHospitalScheduleDto> getSchedulesAtHospitalAt(Long hospitalId, String dayOfWeek, LocalTime time) {
+        return scheduleRepository.findByHospitalIdAndDayOfWeekCoveringMinute(
+                        hospitalId, toDayOfWeek(dayOfWeek), time.getHour() * 60 + time.getMinute()).stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
+    private DayOfWeek toDayOfWeek(String dayOfWeek) {
+        try {
+            return DayOfWeek.valueOf(dayOfWeek.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid day of week: " + dayOfWeek);
+        }
     }
 
     private void validateDoctorAndHospital(Long doctorId, Long hospitalId) {
@@ -124,7 +152,7 @@ public class DoctorHospitalScheduleService {
         dto.setId(schedule.getId());
         dto.setDoctorId(schedule.getDoctorId());
         dto.setHospitalId(schedule.getHospitalId());
-        dto.setDayOfWeek(schedule.getDayOfWeek());
+        dto.setDayOfWeek(schedule.getDayOfWeek().name());
         dto.setTimeSlots(schedule.getTimeSlots());
 
         return dto;
@@ -0,0 +1,118 @@
+package com.prescription.service;
+
+import com.prescription.entity.Notification;
+import com.prescription.entity.ReminderSchedule;
+import com.prescription.repository.ReminderScheduleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Fires MEDICINE_REMINDER notifications from the reminder_schedule table. Each batch of due rows is
+ * claimed with FOR UPDATE SKIP LOCKED, notified and moved to its next occurrence in one transaction,
+ * so several instances share the due rows without firing any twice, and a tick that runs late still
+ * finds everything that fell due meanwhile.
+ * Catch-up after downtime is bounded: a row sends at most one reminder per claim, one due longer than
+ * {@code app.medicine.reminders.max-lateness} ago is skipped instead, and a tick handles at most
+ * {@code max-batches} batches, leaving the rest to the following ticks.
+ */
+@Component
+@Slf4j
+public class MedicineReminderScheduler {
+
+    private final ReminderScheduleRepository reminderScheduleRepository;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration maxLateness;
+
+    private final Counter sentCounter;
+    private final Counter skippedCounter;
+
+    public MedicineReminderScheduler(ReminderScheduleRepository reminderScheduleRepository,
+                                     NotificationService notificationService,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.medicine.reminders.batch-size:100}") int batchSize,
+                                     @Value("${app.medicine.reminders.max-batches:20}") int maxBatches,
+                                     @Value("${app.medicine.reminders.max-lateness:1h}") Duration maxLateness) {
+        this.reminderScheduleRepository = reminderScheduleRepository;
+        this.notificationService = notificationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.maxLateness = maxLateness;
+
+        this.sentCounter = Counter.builder("medicine.reminders.sent")
+                .description("Medicine reminders sent to patients")
+                .register(meterRegistry);
+        this.skippedCounter = Counter.builder("medicine.reminders.skipped")
+                .description("Medicine reminders not sent because they were due too long ago")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.medicine.reminders.tick-ms:15000}",
+            initialDelayString = "${app.medicine.reminders.initial-delay-ms:10000}")
+    public void tick() {
+        fireDue(LocalDateTime.now());
+    }
+
+    /**
+     * Fires the reminders due by {@code now}, batch by batch. Returns the number of reminders sent.
+     */
+    public int fireDue(LocalDateTime now) {
+        int sent = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            Batch result;
+            try {
+                result = transactionTemplate.execute(status -> fireBatch(now));
+            } catch (Exception e) {
+                // Rolled back, the rows are claimed again on the next tick
+                log.error("Medicine reminder batch failed", e);
+                break;
+            }
+            sentCounter.increment(result.sent());
+            skippedCounter.increment(result.skipped());
+            sent += result.sent();
+            if (result.claimed() < batchSize) {
+                break;
+            }
+        }
+        return sent;
+    }
+
+    private Batch fireBatch(LocalDateTime now) {
+        List<ReminderSchedule> due = reminderScheduleRepository.claimDue(now, PageRequest.of(0, batchSize));
+        LocalDateTime oldestSent = now.minus(maxLateness);
+        int sent = 0;
+        int skipped = 0;
+        for (ReminderSchedule schedule : due) {
+            if (schedule.getNextFireAt().isBefore(oldestSent)) {
+                skipped++;
+            } else {
+                notificationService.sendNotification(schedule.getUserId(), schedule.getTitle(), schedule.getMessage(),
+                        Notification.NotificationType.MEDICINE_REMINDER, null, schedule.getPrescriptionId(),
+                        schedule.getReminderTime(), schedule.getFrequency());
+                schedule.setLastFiredAt(now);
+                sent++;
+            }
+            // Managed rows, written as one batch of updates at commit
+            schedule.setNextFireAt(schedule.nextOccurrenceAfter(now));
+        }
+        return new Batch(due.size(), sent, skipped);
+    }
+
+    private record Batch(int claimed, int sent, int skipped) {
+    }
+}
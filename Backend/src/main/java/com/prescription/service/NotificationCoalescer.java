@@ -0,0 +1,189 @@
+package com.prescription.service;
+
+import com.prescription.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes notifications to the users' websocket queues. A user's notifications are collected for
+ * {@code app.notifications.push.window-ms} after the first one and go out as a single frame: one
+ * notification as itself, several as {@code {"type": "BATCH", "count": n, "notifications": [...]}}.
+ * Every user also has a token bucket of frames. A user out of tokens keeps collecting until the next
+ * token, so a burst for a slow client turns into fewer, larger frames instead of a backlog.
+ */
+@Component
+@Slf4j
+public class NotificationCoalescer {
+
+    static final String DESTINATION = "/queue/notifications";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long windowMillis;
+    private final int burst;
+    private final double ratePerSecond;
+    private final int maxBatch;
+    private final ScheduledExecutorService scheduler;
+
+    private final Counter notificationsCounter;
+    private final Counter framesCounter;
+    private final Counter framesSavedCounter;
+    private final Counter throttledCounter;
+
+    private final ConcurrentHashMap<Long, UserQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public NotificationCoalescer(SimpMessagingTemplate messagingTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.notifications.push.window-ms:250}") long windowMillis,
+                                 @Value("${app.notifications.push.burst:5}") int burst,
+                                 @Value("${app.notifications.push.rate-per-second:2}") double ratePerSecond,
+                                 @Value("${app.notifications.push.max-batch:100}") int maxBatch) {
+        this.messagingTemplate = messagingTemplate;
+        this.windowMillis = windowMillis;
+        this.burst = burst;
+        this.ratePerSecond = ratePerSecond;
+        this.maxBatch = maxBatch;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notify-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.notificationsCounter = Counter.builder("notifications.push.notifications")
+                .description("Notifications pushed to websocket clients")
+                .register(meterRegistry);
+        this.framesCounter = Counter.builder("notifications.push.frames")
+                .description("Websocket frames the pushed notifications were sent in")
+                .register(meterRegistry);
+        this.framesSavedCounter = Counter.builder("notifications.push.frames.saved")
+                .description("Frames saved by sending a user's notifications together")
+                .register(meterRegistry);
+        this.throttledCounter = Counter.builder("notifications.push.throttled")
+                .description("Frames held back because the user's token bucket was empty")
+                .register(meterRegistry);
+        meterRegistry.gauge("notifications.push.pending", pending);
+    }
+
+    public void push(Long userId, Map<String, Object> notification) {
+        queues.compute(userId, (id, queue) -> {
+            if (queue == null) {
+                queue = new UserQueue(new TokenBucket(burst, ratePerSecond, System.nanoTime()));
+            }
+            queue.pending.add(notification);
+            pending.incrementAndGet();
+            if (!queue.flushScheduled) {
+                queue.flushScheduled = true;
+                scheduleFlush(id, TimeUnit.MILLISECONDS.toNanos(windowMillis));
+            }
+            return queue;
+        });
+    }
+
+    private void flush(Long userId) {
+        List<Map<String, Object>> frame = new ArrayList<>();
+        queues.computeIfPresent(userId, (id, queue) -> {
+            queue.flushScheduled = false;
+            if (queue.pending.isEmpty()) {
+                return queue;
+            }
+            long now = System.nanoTime();
+            if (!queue.bucket.tryTake(now)) {
+                throttledCounter.increment();
+                queue.flushScheduled = true;
+                scheduleFlush(id, queue.bucket.nanosUntilToken(now));
+                return queue;
+            }
+            while (!queue.pending.isEmpty() && frame.size() < maxBatch) {
+                frame.add(queue.pending.poll());
+            }
+            if (!queue.pending.isEmpty()) {
+                queue.flushScheduled = true;
+                scheduleFlush(id, TimeUnit.MILLISECONDS.toNanos(windowMillis));
+            }
+            return queue;
+        });
+        if (!frame.isEmpty()) {
+            send(userId, frame);
+        }
+    }
+
+    private void send(Long userId, List<Map<String, Object>> frame) {
+        pending.addAndGet(-frame.size());
+        Object payload = frame.get(0);
+        if (frame.size() > 1) {
+            Map<String, Object> batch = new LinkedHashMap<>();
+            batch.put("type", "BATCH");
+            batch.put("count", frame.size());
+            batch.put("notifications", frame);
+            payload = batch;
+        }
+        try {
+            messagingTemplate.convertAndSendToUser(userId.toString(), DESTINATION, payload);
+        } catch (Exception e) {
+            // The notifications are stored, clients that miss the push see them on their next fetch
+            log.warn("Failed to push {} notifications to user {}: {}", frame.size(), userId, e.getMessage());
+            return;
+        }
+        notificationsCounter.increment(frame.size());
+        framesCounter.increment();
+        framesSavedCounter.increment(frame.size() - 1);
+    }
+
+    private void scheduleFlush(Long userId, long delayNanos) {
+        try {
+            scheduler.schedule(() -> flush(userId), delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the remaining notifications are sent by shutdown()
+        }
+    }
+
+    // Users with nothing pending and a full bucket are indistinguishable from new ones
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleUsers() {
+        long now = System.nanoTime();
+        for (Long userId : queues.keySet()) {
+            queues.computeIfPresent(userId, (id, queue) ->
+                    queue.pending.isEmpty() && !queue.flushScheduled && queue.bucket.isFull(now) ? null : queue);
+        }
+    }
+
+    public int pendingNotifications() {
+        return pending.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        for (Long userId : queues.keySet()) {
+            List<Map<String, Object>> frame = new ArrayList<>();
+            queues.computeIfPresent(userId, (id, queue) -> {
+                frame.addAll(queue.pending);
+                return null;
+            });
+            for (int from = 0; from < frame.size(); from += maxBatch) {
+                send(userId, frame.subList(from, Math.min(from + maxBatch, frame.size())));
+            }
+        }
+    }
+
+    // Guarded by the queues map entry
+    private static final class UserQueue {
+        private final TokenBucket bucket;
+        private final Queue<Map<String, Object>> pending = new ArrayDeque<>();
+        private boolean flushScheduled;
+
+        private UserQueue(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
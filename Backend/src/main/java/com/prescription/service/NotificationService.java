@@ -1,10 +1,11 @@
 package com.prescription.service;
 
 import com.prescription.entity.Notification;
+import com.prescription.entity.ReminderSchedule;
 import com.prescription.repository.NotificationRepository;
+import com.prescription.repository.ReminderScheduleRepository;
+import com.prescription.util.AfterCommit;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,14 +24,21 @@ public class NotificationService {
     private NotificationRepository notificationRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ReminderScheduleRepository reminderScheduleRepository;
 
+    @Autowired
+    private NotificationCoalescer notificationCoalescer;
+
+    /**
+     * Stores the notification and pushes it to the user's websocket queue. The row is a single insert,
+     * written with the rest of the surrounding transaction (and batched with its other inserts), and the
+     * push waits for that transaction to commit so clients are never told about a notification that
+     * was rolled back. NotificationCoalescer then sends it together with the user's other recent ones.
+     */
     @Transactional
     public void sendNotification(Long userId, String title, String message, Notification.NotificationType type,
                                  Long appointmentId, Long prescriptionId, LocalTime reminderTime, String frequency) {
         try {
-            System.out.println("🔍 Starting notification save process for user: " + userId);
-
             Notification notification = Notification.builder()
                     .userId(userId)
                     .title(title)
@@ -44,20 +52,8 @@ public class NotificationService {
                     .isRead(false)
                     .build();
 
-            System.out.println("🔍 Notification object created: " + notification);
-
+            // The UUID is assigned on persist, the insert itself runs at flush or commit
             Notification saved = notificationRepository.save(notification);
-            notificationRepository.flush();
-            System.out.println("✅ Notification saved successfully with ID: " + saved.getId());
-
-            List<Notification> allUserNotifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
-            boolean found = allUserNotifications.stream().anyMatch(n -> n.getId().equals(saved.getId()));
-            System.out.println("✅ Notification exists in database: " + found);
-
-            if (!found) {
-                System.err.println("❌ FAILED: Notification was NOT found in database after save!");
-                throw new RuntimeException("Notification save failed");
-            }
 
             Map<String, Object> notificationData = new HashMap<>();
             notificationData.put("id", saved.getId());
@@ -71,13 +67,7 @@ public class NotificationService {
             notificationData.put("frequency", saved.getFrequency());
             notificationData.put("isRead", saved.isRead());
 
-            messagingTemplate.convertAndSendToUser(
-                    userId.toString(),
-                    "/queue/notifications",
-                    notificationData
-            );
-
-            System.out.println("📱 Real-time notification sent to user: " + userId);
+            AfterCommit.run(() -> notificationCoalescer.push(userId, notificationData));
 
         } catch (Exception e) {
             System.err.println("❌ Error saving notification: " + e.getMessage());
@@ -124,65 +114,34 @@ public class NotificationService {
         sendNotification(userId, title, message, type, null, prescriptionId, null, null);
     }
 
+    /**
+     * Sends the reminder now and, with a reminder time, schedules it to repeat at that time of day
+     * according to its frequency; MedicineReminderScheduler fires the repeats.
+     */
+    @Transactional
     public void sendMedicineReminderNotification(Long userId, Long prescriptionId, String medicineName, LocalTime reminderTime, String frequency, String dosage) {
         String title = "Medicine Reminder: " + medicineName;
         String message = "Time to take your medicine: " + medicineName + ". Dosage: " + dosage + ". Frequency: " + frequency;
         sendNotification(userId, title, message, Notification.NotificationType.MEDICINE_REMINDER, null, prescriptionId, reminderTime, frequency);
-    }
-
-    @Scheduled(cron = "0 * * * * *") // Run every minute
-    public void checkMedicineReminders() {
-        try {
-            LocalTime currentTime = LocalTime.now().withSecond(0).withNano(0);
-            
-            // Use efficient database query instead of loading all notifications
-            List<Notification> reminders = notificationRepository.findByTypeAndReminderTime(
-                    Notification.NotificationType.MEDICINE_REMINDER,
-                    currentTime
-            );
-
-            // Process reminders outside transaction to avoid holding connections during WebSocket sends
-            for (Notification reminder : reminders) {
-                try {
-                    Map<String, Object> notificationData = new HashMap<>();
-                    notificationData.put("id", reminder.getId());
-                    notificationData.put("title", reminder.getTitle());
-                    notificationData.put("message", reminder.getMessage());
-                    notificationData.put("type", reminder.getType());
-                    notificationData.put("timestamp", reminder.getCreatedAt().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                    notificationData.put("prescriptionId", reminder.getPrescriptionId());
-                    notificationData.put("reminderTime", reminder.getReminderTime().toString());
-                    notificationData.put("frequency", reminder.getFrequency());
-                    notificationData.put("isRead", reminder.isRead());
-
-                    messagingTemplate.convertAndSendToUser(
-                            reminder.getUserId().toString(),
-                            "/queue/notifications",
-                            notificationData
-                    );
-
-                    System.out.println("📱 Sent medicine reminder to user: " + reminder.getUserId());
-
-                    // Update reminder in a separate transaction
-                    updateReminder(reminder);
-                } catch (Exception e) {
-                    System.err.println("Failed to process reminder " + reminder.getId() + ": " + e.getMessage());
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error in checkMedicineReminders: " + e.getMessage());
+        if (reminderTime == null) {
+            return;
         }
-    }
 
-    @Transactional
-    private void updateReminder(Notification reminder) {
-        if ("DAILY".equals(reminder.getFrequency()) || "TWICE_DAILY".equals(reminder.getFrequency())) {
-            reminder.setCreatedAt(LocalDateTime.now());
-            notificationRepository.save(reminder);
-        } else {
-            reminder.setRead(true);
-            notificationRepository.save(reminder);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime firstFire = now.toLocalDate().atTime(reminderTime);
+        if (!firstFire.isAfter(now)) {
+            firstFire = firstFire.plusDays(1);
         }
+        ReminderSchedule schedule = new ReminderSchedule();
+        schedule.setUserId(userId);
+        schedule.setPrescriptionId(prescriptionId);
+        schedule.setTitle(title);
+        schedule.setMessage(message);
+        schedule.setReminderTime(reminderTime);
+        schedule.setFrequency(frequency);
+        schedule.setIntervalMinutes(ReminderSchedule.intervalMinutesOf(frequency));
+        schedule.setNextFireAt(firstFire);
+        reminderScheduleRepository.save(schedule);
     }
 
     public void sendSystemAlert(Long userId, String message) {
@@ -3,6 +3,7 @@ package com.prescription.service;
 import com.prescription.dto.*;
 import com.prescription.entity.*;
 import com.prescription.repository.*;
+import com.prescription.util.MedicationRecurrence;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -34,6 +35,9 @@ public class PrescriptionService {
     @Autowired
     private MedicineService medicineService;
 
+    @Autowired
+    private ReminderScheduleRepository reminderScheduleRepository;
+
     public PrescriptionDto createPrescription(PrescriptionCreateDto createDto, Long doctorId) {
         // Validate doctor
         Optional<User> doctorOpt = userRepository.findById(doctorId);
@@ -66,6 +70,7 @@ public class PrescriptionService {
 
         // Create prescription medicines
         List<PrescriptionMedicine> prescriptionMedicines = new ArrayList<>();
+        List<ReminderSchedule> reminders = new ArrayList<>();
 
         for (PrescriptionMedicineCreateDto medicineDto : createDto.getMedicines()) {
             Optional<Medicine> medicineOpt = medicineRepository.findById(medicineDto.getMedicineId());
@@ -98,6 +103,13 @@ public class PrescriptionService {
                 timing.setCreatedAt(prescription.getCreatedAt());
                 timing.setUpdatedAt(prescription.getUpdatedAt());
                 timings.add(timing);
+
+                // One row per timing holds the whole course, its doses are computed as they fall due
+                MedicationRecurrence recurrence = MedicationRecurrence.forTiming(timing, prescription.getCreatedAt(),
+                        prescriptionMedicine.getDurationDays());
+                if (recurrence != null && recurrence.iterator().hasNext()) {
+                    reminders.add(medicineReminder(prescription, prescriptionMedicine, timing, recurrence));
+                }
             }
 
             prescriptionMedicine.setMedicineTimings(timings);
@@ -105,10 +117,33 @@ public class PrescriptionService {
         }
 
         prescription.setPrescriptionMedicines(prescriptionMedicines);
+        reminderScheduleRepository.saveAll(reminders);
 
         return convertToDto(prescription);
     }
 
+    private static ReminderSchedule medicineReminder(Prescription prescription, PrescriptionMedicine prescriptionMedicine,
+                                                     MedicineTiming timing, MedicationRecurrence recurrence) {
+        String medicineName = prescriptionMedicine.getMedicine().getName();
+        long intervalMinutes = recurrence.getInterval().toMinutes();
+        String frequency = intervalMinutes == 24 * 60 ? "DAILY" : "EVERY_" + (intervalMinutes / 60) + "_HOURS";
+
+        ReminderSchedule reminder = new ReminderSchedule();
+        reminder.setUserId(prescription.getPatient().getId());
+        reminder.setPrescriptionId(prescription.getId());
+        reminder.setTitle("Medicine Reminder: " + medicineName);
+        reminder.setMessage("Time to take your medicine: " + medicineName + ". Dosage: "
+                + timing.getAmount().stripTrailingZeros().toPlainString() + ". "
+                + timing.getMealRelation().name().replace('_', ' ').toLowerCase() + ". Frequency: " + frequency);
+        reminder.setReminderTime(timing.getTimeOfDay() == MedicineTiming.TimeOfDay.INTERVAL
+                ? null : recurrence.getFirst().toLocalTime());
+        reminder.setFrequency(frequency);
+        reminder.setIntervalMinutes((int) intervalMinutes);
+        reminder.setNextFireAt(recurrence.getFirst());
+        reminder.setEndsAt(recurrence.getUntil());
+        return reminder;
+    }
+
     public List<PrescriptionDto> getPrescriptionsByDoctor(Long doctorId) {
         List<Prescription> prescriptions = prescriptionRepository.findByDoctorIdOrderByUpdatedAtDesc(doctorId);
         List<PrescriptionDto> dtos = new ArrayList<>();
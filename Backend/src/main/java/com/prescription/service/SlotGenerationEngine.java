@@ -0,0 +1,271 @@
+package com.prescription.service;
+
+import com.prescription.dto.SlotGenerationResult;
+import com.prescription.entity.AvailabilityException;
+import com.prescription.entity.AvailabilityTemplate;
+import com.prescription.entity.DoctorAvailabilitySlot;
+import com.prescription.entity.User;
+import com.prescription.repository.AvailabilityExceptionRepository;
+import com.prescription.repository.DoctorAvailabilitySlotRepository;
+import com.prescription.util.CompiledTemplate;
+import com.prescription.util.ExceptionIntervals;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Materializes availability slots for a doctor over a date window.
+ * Existing slots and exceptions for the whole window are loaded with one query each,
+ * the missing slots are computed in memory and written with JDBC batch inserts.
+ */
+@Service
+@Slf4j
+@Transactional
+public class SlotGenerationEngine {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SLOT_SQL =
+            "INSERT INTO doctor_availability_slots " +
+            "(doctor_id, slot_date, start_time, end_time, slot_status, generated_from_template_id, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private DoctorAvailabilitySlotRepository slotRepository;
+
+    @Autowired
+    private AvailabilityExceptionRepository exceptionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AvailabilityBitmapIndex availabilityIndex;
+
+    @Autowired
+    private CompiledTemplateCache compiledTemplates;
+
+    public SlotGenerationResult generate(User doctor, List<AvailabilityTemplate> templates, int slotDuration,
+                                         LocalDate startDate, LocalDate endDate) {
+        return generateAll(List.of(new DoctorWindow(doctor, templates, slotDuration, startDate, endDate)));
+    }
+
+    /**
+     * Generates slots for several doctors at once. Existing slots and exceptions of all doctors
+     * are loaded with one query each, so a batch costs the same number of round trips as a single doctor.
+     */
+    public SlotGenerationResult generateAll(List<DoctorWindow> windows) {
+        long started = System.nanoTime();
+        if (windows.isEmpty()) {
+            return new SlotGenerationResult(0, 0);
+        }
+
+        Set<Long> doctorIds = new HashSet<>();
+        LocalDate startDate = windows.get(0).getStartDate();
+        LocalDate endDate = windows.get(0).getEndDate();
+        for (DoctorWindow window : windows) {
+            doctorIds.add(window.getDoctor().getId());
+            startDate = window.getStartDate().isBefore(startDate) ? window.getStartDate() : startDate;
+            endDate = window.getEndDate().isAfter(endDate) ? window.getEndDate() : endDate;
+        }
+
+        Map<Long, Set<Long>> existingKeys = new HashMap<>();
+        for (DoctorAvailabilitySlot slot : slotRepository.findByDoctorIdInAndSlotDateBetween(doctorIds, startDate, endDate)) {
+            existingKeys.computeIfAbsent(slot.getDoctor().getId(), id -> new HashSet<>())
+                    .add(slotKey(slot.getSlotDate(), slot.getStartTime(), slot.getEndTime()));
+        }
+
+        Map<Long, List<AvailabilityException>> exceptionsByDoctor = new HashMap<>();
+        for (AvailabilityException exception : exceptionRepository
+                .findByDoctorIdInAndExceptionDateBetween(doctorIds, startDate, endDate)) {
+            exceptionsByDoctor.computeIfAbsent(exception.getDoctor().getId(), id -> new ArrayList<>()).add(exception);
+        }
+
+        List<Object[]> newSlots = new ArrayList<>();
+        Set<Long> changedDoctors = new HashSet<>();
+        for (DoctorWindow window : windows) {
+            Long doctorId = window.getDoctor().getId();
+            int before = newSlots.size();
+            collectMissingSlots(window,
+                    existingKeys.computeIfAbsent(doctorId, id -> new HashSet<>()),
+                    ExceptionIntervals.of(exceptionsByDoctor.getOrDefault(doctorId, Collections.emptyList())),
+                    newSlots);
+            if (newSlots.size() > before) {
+                changedDoctors.add(doctorId);
+            }
+        }
+
+        insertSlots(newSlots, LocalDateTime.now());
+        changedDoctors.forEach(availabilityIndex::invalidate);
+
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        if (windows.size() == 1) {
+            log.info("Generated {} slots for doctor {} between {} and {} in {} ms",
+                    newSlots.size(), windows.get(0).getDoctor().getId(), startDate, endDate, elapsedMillis);
+        } else {
+            log.info("Generated {} slots for {} doctors between {} and {} in {} ms",
+                    newSlots.size(), windows.size(), startDate, endDate, elapsedMillis);
+        }
+        return new SlotGenerationResult(newSlots.size(), elapsedMillis);
+    }
+
+    /**
+     * Brings the materialized slots of one template in line with its current definition.
+     * The desired slots are diffed against what is stored for the template: AVAILABLE slots that are
+     * no longer wanted are deleted, missing ones are inserted. BOOKED, BLOCKED and CANCELLED slots are
+     * kept as they are, and no new slot is inserted on top of one of them.
+     */
+    public SlotGenerationResult reconcileTemplate(User doctor, AvailabilityTemplate template, int slotDuration,
+                                                  LocalDate startDate, LocalDate endDate) {
+        long started = System.nanoTime();
+        Long doctorId = doctor.getId();
+
+        ExceptionIntervals exceptions = ExceptionIntervals.of(
+                exceptionRepository.findByDoctorAndExceptionDateBetween(doctor, startDate, endDate));
+
+        List<Object[]> desired = new ArrayList<>();
+        if (template.isActive()) {
+            collectMissingSlots(new DoctorWindow(doctor, List.of(template), slotDuration, startDate, endDate),
+                    new HashSet<>(), exceptions, desired);
+        }
+        Set<Long> desiredKeys = new HashSet<>();
+        for (Object[] slot : desired) {
+            desiredKeys.add(slotKey((LocalDate) slot[1], (LocalTime) slot[2], (LocalTime) slot[3]));
+        }
+
+        Set<Long> existingKeys = new HashSet<>();
+        List<Long> staleSlotIds = new ArrayList<>();
+        Map<LocalDate, List<DoctorAvailabilitySlot>> heldSlotsByDate = new HashMap<>();
+        for (DoctorAvailabilitySlot slot : slotRepository
+                .findByDoctorIdInAndSlotDateBetween(Set.of(doctorId), startDate, endDate)) {
+            long key = slotKey(slot.getSlotDate(), slot.getStartTime(), slot.getEndTime());
+            boolean available = slot.getSlotStatus() == DoctorAvailabilitySlot.SlotStatus.AVAILABLE;
+            if (available && template.getId().equals(slot.getGeneratedFromTemplateId()) && !desiredKeys.contains(key)) {
+                staleSlotIds.add(slot.getId());
+                continue;
+            }
+            existingKeys.add(key);
+            if (!available) {
+                heldSlotsByDate.computeIfAbsent(slot.getSlotDate(), date -> new ArrayList<>()).add(slot);
+            }
+        }
+
+        List<Object[]> newSlots = new ArrayList<>();
+        for (Object[] slot : desired) {
+            LocalDate date = (LocalDate) slot[1];
+            LocalTime slotStart = (LocalTime) slot[2];
+            LocalTime slotEnd = (LocalTime) slot[3];
+            if (!existingKeys.contains(slotKey(date, slotStart, slotEnd))
+                    && !overlapsAny(heldSlotsByDate.get(date), slotStart, slotEnd)) {
+                newSlots.add(slot);
+            }
+        }
+
+        int deleted = 0;
+        for (int from = 0; from < staleSlotIds.size(); from += BATCH_SIZE) {
+            // Guarded on status, a slot booked since it was read is left in place
+            deleted += slotRepository.deleteAvailableByIdIn(
+                    staleSlotIds.subList(from, Math.min(from + BATCH_SIZE, staleSlotIds.size())));
+        }
+        insertSlots(newSlots, LocalDateTime.now());
+        if (deleted > 0 || !newSlots.isEmpty()) {
+            availabilityIndex.invalidate(doctorId);
+        }
+
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Reconciled template {} of doctor {} between {} and {}: {} slots added, {} removed in {} ms",
+                template.getId(), doctorId, startDate, endDate, newSlots.size(), deleted, elapsedMillis);
+        return new SlotGenerationResult(newSlots.size(), deleted, elapsedMillis);
+    }
+
+    private static boolean overlapsAny(List<DoctorAvailabilitySlot> slots, LocalTime startTime, LocalTime endTime) {
+        if (slots == null) {
+            return false;
+        }
+        for (DoctorAvailabilitySlot slot : slots) {
+            if (slot.getStartTime().isBefore(endTime) && startTime.isBefore(slot.getEndTime())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void collectMissingSlots(DoctorWindow window, Set<Long> existingKeys,
+                                     ExceptionIntervals exceptions, List<Object[]> newSlots) {
+        Long doctorId = window.getDoctor().getId();
+        int slotDuration = window.getSlotDuration();
+        for (AvailabilityTemplate template : window.getTemplates()) {
+            CompiledTemplate compiled = compiledTemplates.get(template);
+            for (LocalDate date = window.getStartDate(); !date.isAfter(window.getEndDate()); date = date.plusDays(1)) {
+                if (!compiled.appliesTo(date)) {
+                    continue;
+                }
+
+                for (int[] range : exceptions.workingRanges(date, template.getStartTime(), template.getEndTime())) {
+                    for (int minute = range[0]; minute + slotDuration <= range[1]; minute += slotDuration) {
+                        if (exceptions.isBlocked(date, minute, minute + slotDuration)) {
+                            continue;
+                        }
+                        LocalTime slotStart = toTime(minute);
+                        LocalTime slotEnd = toTime(minute + slotDuration);
+                        if (existingKeys.add(slotKey(date, slotStart, slotEnd))) {
+                            newSlots.add(new Object[]{doctorId, date, slotStart, slotEnd, template.getId()});
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void insertSlots(List<Object[]> slots, LocalDateTime now) {
+        if (slots.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(INSERT_SLOT_SQL, slots, BATCH_SIZE, (ps, slot) -> {
+            ps.setLong(1, (Long) slot[0]);
+            ps.setObject(2, slot[1]);
+            ps.setObject(3, slot[2]);
+            ps.setObject(4, slot[3]);
+            ps.setString(5, DoctorAvailabilitySlot.SlotStatus.AVAILABLE.name());
+            ps.setObject(6, slot[4]);
+            ps.setTimestamp(7, timestamp);
+            ps.setTimestamp(8, timestamp);
+        });
+    }
+
+    // A slot ending at midnight is stored with 23:59 as its end, LocalTime has no 24:00
+    private static LocalTime toTime(int minuteOfDay) {
+        return minuteOfDay >= 1440 ? LocalTime.of(23, 59) : LocalTime.ofSecondOfDay(minuteOfDay * 60L);
+    }
+
+    // Packs (date, start minute, end minute) into a single long so the in-memory diff is a plain set lookup
+    private static long slotKey(LocalDate date, LocalTime startTime, LocalTime endTime) {
+        return (date.toEpochDay() << 22)
+                | ((long) (startTime.toSecondOfDay() / 60) << 11)
+                | (endTime.toSecondOfDay() / 60);
+    }
+
+    /**
+     * One doctor's templates and the date window (inclusive) to materialize them over.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class DoctorWindow {
+        private final User doctor;
+        private final List<AvailabilityTemplate> templates;
+        private final int slotDuration;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+    }
+}
@@ -0,0 +1,173 @@
+package com.prescription.service;
+
+import com.prescription.entity.AppointmentSettings;
+import com.prescription.entity.AvailabilityTemplate;
+import com.prescription.entity.User;
+import com.prescription.repository.AppointmentSettingsRepository;
+import com.prescription.repository.AvailabilityTemplateRepository;
+import com.prescription.repository.DoctorAvailabilitySlotRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps every doctor's slots materialized up to their advance-booking horizon.
+ * A doctor is generated from the day after their last materialized slot (or today) through the edge day,
+ * so a regular night generates only the new edge day, while a missed night or a horizon longer than the
+ * 30 days a new template materializes is filled on the next run.
+ * Doctors are split into batches that run in parallel, each batch in its own transaction.
+ * With several instances, {@code app.slots.horizon.shard-count} and {@code shard-index}
+ * split the doctors between them by id.
+ */
+@Component
+@Slf4j
+public class SlotHorizonScheduler {
+
+    private final AvailabilityTemplateRepository templateRepository;
+    private final AppointmentSettingsRepository settingsRepository;
+    private final DoctorAvailabilitySlotRepository slotRepository;
+    private final SlotGenerationEngine slotGenerationEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+
+    private final int batchSize;
+    private final int shardCount;
+    private final int shardIndex;
+
+    private final Timer runTimer;
+    private final Counter slotsCounter;
+    private final AtomicInteger lastRunDoctors = new AtomicInteger();
+
+    public SlotHorizonScheduler(AvailabilityTemplateRepository templateRepository,
+                                AppointmentSettingsRepository settingsRepository,
+                                DoctorAvailabilitySlotRepository slotRepository,
+                                SlotGenerationEngine slotGenerationEngine,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.slots.horizon.batch-size:50}") int batchSize,
+                                @Value("${app.slots.horizon.parallelism:2}") int parallelism,
+                                @Value("${app.slots.horizon.shard-count:1}") int shardCount,
+                                @Value("${app.slots.horizon.shard-index:0}") int shardIndex) {
+        this.templateRepository = templateRepository;
+        this.settingsRepository = settingsRepository;
+        this.slotRepository = slotRepository;
+        this.slotGenerationEngine = slotGenerationEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = Executors.newFixedThreadPool(parallelism);
+        this.batchSize = batchSize;
+        this.shardCount = shardCount;
+        this.shardIndex = shardIndex;
+
+        this.runTimer = Timer.builder("slots.horizon.run")
+                .description("Duration of a nightly slot horizon run")
+                .register(meterRegistry);
+        this.slotsCounter = Counter.builder("slots.horizon.slots")
+                .description("Slots generated by the horizon scheduler")
+                .register(meterRegistry);
+        meterRegistry.gauge("slots.horizon.doctors", lastRunDoctors);
+    }
+
+    @Scheduled(cron = "${app.slots.horizon.cron:0 15 0 * * *}")
+    public void extendHorizon() {
+        runTimer.record(() -> extendHorizon(LocalDate.now()));
+    }
+
+    /**
+     * Generates every doctor with an active template through the edge day (today + advance booking days),
+     * starting after their last materialized slot. Returns the number of doctors processed.
+     */
+    public int extendHorizon(LocalDate today) {
+        List<Long> doctorIds = new ArrayList<>();
+        for (Long doctorId : templateRepository.findDoctorIdsWithActiveTemplates()) {
+            if (Math.floorMod(doctorId, shardCount) == shardIndex) {
+                doctorIds.add(doctorId);
+            }
+        }
+
+        List<Future<Integer>> batches = new ArrayList<>();
+        for (int from = 0; from < doctorIds.size(); from += batchSize) {
+            List<Long> batch = doctorIds.subList(from, Math.min(from + batchSize, doctorIds.size()));
+            batches.add(executor.submit(() -> transactionTemplate.execute(status -> processBatch(batch, today))));
+        }
+
+        int processed = 0;
+        int failedBatches = 0;
+        for (Future<Integer> batch : batches) {
+            try {
+                processed += batch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                failedBatches++;
+                log.error("Slot horizon batch failed", e);
+            }
+        }
+
+        lastRunDoctors.set(processed);
+        log.info("Slot horizon extended for {} of {} doctors in {} batches ({} failed)",
+                processed, doctorIds.size(), batches.size(), failedBatches);
+        return processed;
+    }
+
+    private int processBatch(List<Long> doctorIds, LocalDate today) {
+        Map<Long, List<AvailabilityTemplate>> templatesByDoctor = new LinkedHashMap<>();
+        Map<Long, User> doctors = new HashMap<>();
+        for (AvailabilityTemplate template : templateRepository.findActiveByDoctorIds(doctorIds)) {
+            templatesByDoctor.computeIfAbsent(template.getDoctor().getId(), id -> new ArrayList<>()).add(template);
+            doctors.putIfAbsent(template.getDoctor().getId(), template.getDoctor());
+        }
+
+        Map<Long, AppointmentSettings> settingsByDoctor = new HashMap<>();
+        for (AppointmentSettings settings : settingsRepository.findByDoctorIdIn(doctorIds)) {
+            settingsByDoctor.put(settings.getDoctor().getId(), settings);
+        }
+
+        Map<Long, LocalDate> lastSlotDates = new HashMap<>();
+        for (DoctorAvailabilitySlotRepository.LastSlotDate last : slotRepository.findLastSlotDatesByDoctorIdIn(doctorIds)) {
+            lastSlotDates.put(last.getDoctorId(), last.getLastSlotDate());
+        }
+
+        // Grouped by window so each engine call only reads those days; on a regular night that is the edge day
+        Map<Map.Entry<LocalDate, LocalDate>, List<SlotGenerationEngine.DoctorWindow>> windowsByRange = new LinkedHashMap<>();
+        templatesByDoctor.forEach((doctorId, templates) -> {
+            AppointmentSettings settings = settingsByDoctor.get(doctorId);
+            int slotDuration = settings != null && settings.getSlotDurationMinutes() != null
+                    ? settings.getSlotDurationMinutes() : 30;
+            int bookingDays = settings != null && settings.getAdvanceBookingDays() != null
+                    ? settings.getAdvanceBookingDays() : 30;
+            LocalDate edge = today.plusDays(bookingDays);
+            LocalDate lastSlotDate = lastSlotDates.get(doctorId);
+            LocalDate from = lastSlotDate != null && !lastSlotDate.isBefore(today) ? lastSlotDate.plusDays(1) : today;
+            if (from.isAfter(edge)) {
+                return;
+            }
+            windowsByRange.computeIfAbsent(Map.entry(from, edge), range -> new ArrayList<>())
+                    .add(new SlotGenerationEngine.DoctorWindow(doctors.get(doctorId), templates, slotDuration, from, edge));
+        });
+
+        for (List<SlotGenerationEngine.DoctorWindow> windows : windowsByRange.values()) {
+            slotsCounter.increment(slotGenerationEngine.generateAll(windows).getSlotsGenerated());
+        }
+        return templatesByDoctor.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,94 @@
+package com.prescription.util;
+
+import com.prescription.entity.AvailabilityTemplate;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Immutable form of an {@link AvailabilityTemplate}'s date rule, parsed once so that checking
+ * a date does not allocate: weekly days become a bitmask, specific dates a sorted epoch-day array
+ * and date ranges a pair of epoch days.
+ */
+public final class CompiledTemplate {
+
+    private final AvailabilityTemplate.ScheduleType scheduleType;
+    private final int dayOfWeekMask;      // bit n set for ISO day-of-week n (1 = Monday)
+    private final long[] specificDays;    // sorted epoch days
+    private final long rangeStart;
+    private final long rangeEnd;
+
+    // Source values, to tell whether a template still compiles to this instance
+    private final String daysOfWeek;
+    private final String specificDates;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+
+    private CompiledTemplate(AvailabilityTemplate template) {
+        this.scheduleType = template.getScheduleType();
+        this.daysOfWeek = template.getDaysOfWeek();
+        this.specificDates = template.getSpecificDates();
+        this.startDate = template.getStartDate();
+        this.endDate = template.getEndDate();
+
+        int mask = 0;
+        for (Integer day : AvailabilityUtil.parseDaysOfWeek(daysOfWeek)) {
+            mask |= 1 << day;
+        }
+        this.dayOfWeekMask = mask;
+
+        this.specificDays = AvailabilityUtil.parseSpecificDates(specificDates).stream()
+                .mapToLong(LocalDate::toEpochDay)
+                .sorted()
+                .toArray();
+
+        // A range with a missing bound matches nothing
+        if (startDate != null && endDate != null) {
+            this.rangeStart = startDate.toEpochDay();
+            this.rangeEnd = endDate.toEpochDay();
+        } else {
+            this.rangeStart = 1;
+            this.rangeEnd = 0;
+        }
+    }
+
+    public static CompiledTemplate compile(AvailabilityTemplate template) {
+        return new CompiledTemplate(template);
+    }
+
+    public boolean appliesTo(LocalDate date) {
+        return appliesTo(date.toEpochDay());
+    }
+
+    public boolean appliesTo(long epochDay) {
+        if (scheduleType == null) {
+            return false;
+        }
+        switch (scheduleType) {
+            case DAILY:
+                return true;
+            case WEEKLY:
+                // Epoch day 0 (1970-01-01) was a Thursday
+                int dayOfWeek = (int) Math.floorMod(epochDay + 3, 7L) + 1;
+                return (dayOfWeekMask & (1 << dayOfWeek)) != 0;
+            case SPECIFIC_DATE_RANGE:
+                return epochDay >= rangeStart && epochDay <= rangeEnd;
+            case SPECIFIC_DATES:
+                return Arrays.binarySearch(specificDays, epochDay) >= 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * True when the template's date rule is still the one this instance was compiled from.
+     */
+    public boolean isCompiledFrom(AvailabilityTemplate template) {
+        return scheduleType == template.getScheduleType()
+                && Objects.equals(daysOfWeek, template.getDaysOfWeek())
+                && Objects.equals(specificDates, template.getSpecificDates())
+                && Objects.equals(startDate, template.getStartDate())
+                && Objects.equals(endDate, template.getEndDate());
+    }
+}
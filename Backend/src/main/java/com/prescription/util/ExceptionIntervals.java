@@ -0,0 +1,96 @@
+package com.prescription.util;
+
+import com.prescription.entity.AvailabilityException;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+
+/**
+ * A doctor's {@link AvailabilityException}s on one timeline of minutes since the epoch, so that
+ * several exceptions on the same day combine instead of the first one winning.
+ * CUSTOM_HOURS intervals replace the template hours of their day (several of them add up),
+ * UNAVAILABLE intervals are cut out of whatever hours remain. An UNAVAILABLE exception without
+ * times, or a CUSTOM_HOURS one without usable times, blocks the whole day.
+ */
+public final class ExceptionIntervals {
+
+    public static final ExceptionIntervals EMPTY = new ExceptionIntervals(
+            IntervalTree.<AvailabilityException>builder().build(), IntervalTree.<AvailabilityException>builder().build());
+
+    private static final int MINUTES_PER_DAY = 1440;
+
+    private final IntervalTree<AvailabilityException> customHours;
+    private final IntervalTree<AvailabilityException> unavailable;
+
+    private ExceptionIntervals(IntervalTree<AvailabilityException> customHours,
+                               IntervalTree<AvailabilityException> unavailable) {
+        this.customHours = customHours;
+        this.unavailable = unavailable;
+    }
+
+    public static ExceptionIntervals of(Collection<AvailabilityException> exceptions) {
+        if (exceptions.isEmpty()) {
+            return EMPTY;
+        }
+        IntervalTree.Builder<AvailabilityException> customHours = IntervalTree.builder();
+        IntervalTree.Builder<AvailabilityException> unavailable = IntervalTree.builder();
+        for (AvailabilityException exception : exceptions) {
+            if (exception.getExceptionDate() == null || exception.getExceptionType() == null) {
+                continue;
+            }
+            long dayStart = exception.getExceptionDate().toEpochDay() * MINUTES_PER_DAY;
+            boolean timed = exception.getStartTime() != null && exception.getEndTime() != null;
+            int start = timed ? minuteOf(exception.getStartTime()) : 0;
+            int end = timed ? endMinuteOf(exception.getStartTime(), exception.getEndTime()) : MINUTES_PER_DAY;
+
+            if (exception.getExceptionType() == AvailabilityException.ExceptionType.CUSTOM_HOURS && timed) {
+                customHours.add(dayStart + start, dayStart + end, exception);
+            } else if (exception.getExceptionType() == AvailabilityException.ExceptionType.UNAVAILABLE) {
+                unavailable.add(dayStart + start, dayStart + end, exception);
+            } else {
+                unavailable.add(dayStart, dayStart + MINUTES_PER_DAY, exception);
+            }
+        }
+        return new ExceptionIntervals(customHours.build(), unavailable.build());
+    }
+
+    /**
+     * Working ranges of a day as {start minute, end minute} pairs, sorted by start: the CUSTOM_HOURS
+     * ranges of the date if there are any, otherwise the given template hours.
+     */
+    public int[][] workingRanges(LocalDate date, LocalTime templateStart, LocalTime templateEnd) {
+        long dayStart = date.toEpochDay() * MINUTES_PER_DAY;
+        if (!customHours.isEmpty()) {
+            int[][] custom = customHours.overlapping(dayStart, dayStart + MINUTES_PER_DAY).stream()
+                    .map(exception -> new int[]{minuteOf(exception.getStartTime()),
+                            endMinuteOf(exception.getStartTime(), exception.getEndTime())})
+                    .toArray(int[][]::new);
+            if (custom.length > 0) {
+                return custom;
+            }
+        }
+        if (templateStart == null || templateEnd == null) {
+            return new int[0][];
+        }
+        return new int[][]{{minuteOf(templateStart), minuteOf(templateEnd)}};
+    }
+
+    /**
+     * True when an UNAVAILABLE interval intersects [startMinute, endMinute) of the date.
+     */
+    public boolean isBlocked(LocalDate date, int startMinute, int endMinute) {
+        long dayStart = date.toEpochDay() * MINUTES_PER_DAY;
+        return unavailable.overlaps(dayStart + startMinute, dayStart + endMinute);
+    }
+
+    private static int minuteOf(LocalTime time) {
+        return time.toSecondOfDay() / 60;
+    }
+
+    // An end at or before the start (e.g. 00:00) runs to the end of the day
+    private static int endMinuteOf(LocalTime start, LocalTime end) {
+        int endMinute = minuteOf(end);
+        return endMinute <= minuteOf(start) ? MINUTES_PER_DAY : endMinute;
+    }
+}
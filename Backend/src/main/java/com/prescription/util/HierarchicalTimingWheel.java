@@ -0,0 +1,144 @@
+package com.prescription.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel over millisecond deadlines. Level 0 has {@code wheelSize} buckets of one
+ * tick each; every further level has buckets as wide as the whole level below. A task is kept in the
+ * lowest level whose span reaches its deadline, and moves down a level each time the clock reaches
+ * its bucket, so adding a task and firing it are O(1) however many tasks are pending.
+ * Tasks fire on the first {@link #advance} at or after their deadline, at most one tick late and never early.
+ * Not thread-safe.
+ */
+public final class HierarchicalTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<Level<T>> levels = new ArrayList<>();
+    private long currentTime;
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("Tick must be positive and the wheel must have at least two buckets");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTime = Math.floorDiv(startMillis, tickMillis) * tickMillis;
+        levels.add(new Level<>(tickMillis, wheelSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Start of the current tick; deadlines before it are already due.
+     */
+    public long currentTime() {
+        return currentTime;
+    }
+
+    /**
+     * Schedules a task. Returns false, without keeping it, when its deadline is already due.
+     */
+    public boolean add(long deadlineMillis, T task) {
+        if (deadlineMillis < currentTime) {
+            return false;
+        }
+        place(new Entry<>(deadlineMillis, task));
+        size++;
+        return true;
+    }
+
+    /**
+     * Moves the clock to {@code nowMillis}, handing every task whose deadline has passed to {@code expired}.
+     */
+    public void advance(long nowMillis, Consumer<? super T> expired) {
+        if (size == 0) {
+            // Nothing to cascade or fire, jump straight there
+            currentTime = Math.max(currentTime, Math.floorDiv(nowMillis, tickMillis) * tickMillis);
+            return;
+        }
+        while (currentTime + tickMillis <= nowMillis) {
+            // The level 0 bucket of the tick just finished is due; taken first, as entries moving
+            // down below may land in its slot for the next turn of the wheel
+            List<Entry<T>> due = levels.get(0).take(currentTime);
+            currentTime += tickMillis;
+
+            // Buckets of coarser levels starting now move down, highest level first
+            for (int i = levels.size() - 1; i >= 1; i--) {
+                Level<T> level = levels.get(i);
+                if (currentTime % level.tick == 0) {
+                    for (Entry<T> entry : level.take(currentTime)) {
+                        place(entry);
+                    }
+                }
+            }
+
+            size -= due.size();
+            for (Entry<T> entry : due) {
+                expired.accept(entry.task);
+            }
+            if (size == 0) {
+                currentTime = Math.floorDiv(nowMillis, tickMillis) * tickMillis;
+            }
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        long levelTick = tickMillis;
+        for (int i = 0; ; i++) {
+            if (i == levels.size()) {
+                levels.add(new Level<>(levelTick, wheelSize));
+            }
+            // The span of level i starts at the current tick of that level
+            long levelStart = Math.floorDiv(currentTime, levelTick) * levelTick;
+            if (entry.deadline - levelStart < levelTick * wheelSize) {
+                levels.get(i).put(entry);
+                return;
+            }
+            levelTick = Math.multiplyExact(levelTick, wheelSize);
+        }
+    }
+
+    private static final class Level<T> {
+        final long tick;
+        final List<Entry<T>>[] buckets;
+
+        @SuppressWarnings("unchecked")
+        Level(long tick, int wheelSize) {
+            this.tick = tick;
+            this.buckets = new List[wheelSize];
+        }
+
+        void put(Entry<T> entry) {
+            int index = index(entry.deadline);
+            if (buckets[index] == null) {
+                buckets[index] = new ArrayList<>();
+            }
+            buckets[index].add(entry);
+        }
+
+        // Empties the bucket covering the given time
+        List<Entry<T>> take(long time) {
+            int index = index(time);
+            List<Entry<T>> bucket = buckets[index];
+            buckets[index] = null;
+            return bucket != null ? bucket : List.of();
+        }
+
+        private int index(long time) {
+            return (int) Math.floorMod(Math.floorDiv(time, tick), (long) buckets.length);
+        }
+    }
+
+    private record Entry<T>(long deadline, T task) {
+    }
+}
@@ -0,0 +1,159 @@
+package com.prescription.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Immutable interval tree over half-open intervals [start, end) of long keys.
+ * Intervals are kept sorted by start in flat arrays; the tree is the implicit balanced BST over
+ * those arrays, with the largest end of every subtree stored next to its root. Lookups cost
+ * O(log n + k) for k matches.
+ */
+public final class IntervalTree<T> {
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+    private final Object[] values;
+
+    private IntervalTree(long[] starts, long[] ends, Object[] values) {
+        this.starts = starts;
+        this.ends = ends;
+        this.values = values;
+        this.maxEnds = new long[starts.length];
+        computeMaxEnds(0, starts.length);
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    /**
+     * True when an interval intersects [from, to). Empty intervals intersect nothing.
+     */
+    public boolean overlaps(long from, long to) {
+        return from < to && findAny(0, starts.length, from, to);
+    }
+
+    /**
+     * Values of the intervals intersecting [from, to), in order of interval start.
+     */
+    public List<T> overlapping(long from, long to) {
+        List<T> result = new ArrayList<>();
+        forEachOverlapping(from, to, result::add);
+        return result;
+    }
+
+    public void forEachOverlapping(long from, long to, Consumer<? super T> action) {
+        if (from < to) {
+            collect(0, starts.length, from, to, action);
+        }
+    }
+
+    private long computeMaxEnds(int lo, int hi) {
+        if (lo >= hi) {
+            return Long.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        long max = Math.max(ends[mid], Math.max(computeMaxEnds(lo, mid), computeMaxEnds(mid + 1, hi)));
+        maxEnds[mid] = max;
+        return max;
+    }
+
+    private boolean findAny(int lo, int hi, long from, long to) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (maxEnds[mid] <= from) {
+                return false;
+            }
+            if (starts[mid] < to && ends[mid] > from && starts[mid] < ends[mid]) {
+                return true;
+            }
+            if (findAny(lo, mid, from, to)) {
+                return true;
+            }
+            if (starts[mid] >= to) {
+                return false;
+            }
+            lo = mid + 1;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collect(int lo, int hi, long from, long to, Consumer<? super T> action) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        // Nothing in this subtree ends after the query starts
+        if (maxEnds[mid] <= from) {
+            return;
+        }
+        collect(lo, mid, from, to, action);
+        // Everything right of mid starts at or after starts[mid]
+        if (starts[mid] >= to) {
+            return;
+        }
+        if (ends[mid] > from && starts[mid] < ends[mid]) {
+            action.accept((T) values[mid]);
+        }
+        collect(mid + 1, hi, from, to, action);
+    }
+
+    public static final class Builder<T> {
+
+        private long[] starts = new long[8];
+        private long[] ends = new long[8];
+        private Object[] values = new Object[8];
+        private int size;
+
+        private Builder() {
+        }
+
+        public Builder<T> add(long start, long end, T value) {
+            if (end < start) {
+                throw new IllegalArgumentException("Interval ends before it starts: [" + start + ", " + end + ")");
+            }
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            values[size] = value;
+            size++;
+            return this;
+        }
+
+        public IntervalTree<T> build() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            // Stable, so intervals with the same start keep insertion order
+            Arrays.sort(order, (a, b) -> Long.compare(starts[a], starts[b]));
+
+            long[] sortedStarts = new long[size];
+            long[] sortedEnds = new long[size];
+            Object[] sortedValues = new Object[size];
+            for (int i = 0; i < size; i++) {
+                sortedStarts[i] = starts[order[i]];
+                sortedEnds[i] = ends[order[i]];
+                sortedValues[i] = values[order[i]];
+            }
+            return new IntervalTree<>(sortedStarts, sortedEnds, sortedValues);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.prescription.util;
+
+import com.prescription.entity.MedicineTiming;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * The doses of a medicine as a rule instead of rows: the first dose, the interval between doses and the
+ * exclusive end of the course, e.g. every 8h for 10 days from the prescription. Occurrences are computed
+ * as they are iterated, and the one following any time in constant time.
+ */
+public final class MedicationRecurrence implements Iterable<LocalDateTime> {
+
+    // Clock times of the named times of day, used when a timing has no specific time
+    private static final Map<MedicineTiming.TimeOfDay, LocalTime> TIMES_OF_DAY = Map.of(
+            MedicineTiming.TimeOfDay.MORNING, LocalTime.of(8, 0),
+            MedicineTiming.TimeOfDay.AFTERNOON, LocalTime.of(14, 0),
+            MedicineTiming.TimeOfDay.EVENING, LocalTime.of(18, 0),
+            MedicineTiming.TimeOfDay.NIGHT, LocalTime.of(21, 0),
+            MedicineTiming.TimeOfDay.BEDTIME, LocalTime.of(22, 0));
+
+    private final LocalDateTime first;
+    // Null for a single dose
+    private final Duration interval;
+    // Null repeats indefinitely
+    private final LocalDateTime until;
+
+    public MedicationRecurrence(LocalDateTime first, Duration interval, LocalDateTime until) {
+        if (interval != null && (interval.isZero() || interval.isNegative())) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        this.first = first;
+        this.interval = interval;
+        this.until = until;
+    }
+
+    /**
+     * The rule of one timing of a medicine taken for {@code durationDays} from {@code start}: daily at its
+     * time of day, or every {@code intervalHours} from the start (or its specific time). Null when the
+     * timing has no time to remind at.
+     */
+    public static MedicationRecurrence forTiming(MedicineTiming timing, LocalDateTime start, int durationDays) {
+        LocalDateTime until = start.plusDays(durationDays);
+        if (timing.getTimeOfDay() == MedicineTiming.TimeOfDay.INTERVAL) {
+            Integer hours = timing.getIntervalHours();
+            if (hours == null || hours <= 0) {
+                return null;
+            }
+            LocalDateTime first = timing.getSpecificTime() != null ? firstAt(start, timing.getSpecificTime()) : start;
+            return new MedicationRecurrence(first, Duration.ofHours(hours), until);
+        }
+        LocalTime time = timing.getSpecificTime() != null
+                ? timing.getSpecificTime() : TIMES_OF_DAY.get(timing.getTimeOfDay());
+        if (time == null) {
+            return null;
+        }
+        return new MedicationRecurrence(firstAt(start, time), Duration.ofDays(1), until);
+    }
+
+    private static LocalDateTime firstAt(LocalDateTime start, LocalTime time) {
+        LocalDateTime at = start.toLocalDate().atTime(time);
+        return at.isBefore(start) ? at.plusDays(1) : at;
+    }
+
+    public LocalDateTime getFirst() {
+        return first;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public LocalDateTime getUntil() {
+        return until;
+    }
+
+    /**
+     * The first occurrence strictly after {@code after}, skipping every earlier one at once,
+     * or null when the course ends before.
+     */
+    public LocalDateTime nextAfter(LocalDateTime after) {
+        LocalDateTime next;
+        if (after.isBefore(first)) {
+            next = first;
+        } else if (interval == null) {
+            return null;
+        } else {
+            long steps = Duration.between(first, after).dividedBy(interval) + 1;
+            next = first.plus(interval.multipliedBy(steps));
+        }
+        return within(next) ? next : null;
+    }
+
+    @Override
+    public Iterator<LocalDateTime> iterator() {
+        return occurrencesFrom(within(first) ? first : null);
+    }
+
+    /**
+     * The occurrences strictly after {@code after}.
+     */
+    public Iterator<LocalDateTime> iteratorAfter(LocalDateTime after) {
+        return occurrencesFrom(nextAfter(after));
+    }
+
+    private Iterator<LocalDateTime> occurrencesFrom(LocalDateTime start) {
+        return new Iterator<>() {
+            private LocalDateTime next = start;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public LocalDateTime next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                LocalDateTime current = next;
+                next = interval != null && within(current.plus(interval)) ? current.plus(interval) : null;
+                return current;
+            }
+        };
+    }
+
+    private boolean within(LocalDateTime time) {
+        return until == null || time.isBefore(until);
+    }
+
+    @Override
+    public String toString() {
+        return "every " + interval + " from " + first + (until != null ? " until " + until : "");
+    }
+}
@@ -0,0 +1,99 @@
+package com.prescription.util;
+
+import java.util.Arrays;
+
+/**
+ * Converts between the "09:00-10:00,10:00-11:00" time slot text used by the API and the
+ * minute-of-day arrays {@link com.prescription.entity.DoctorHospitalSchedule} is stored as.
+ * A bare "09:00" entry is a point in time and is stored with the same start and end minute.
+ */
+public final class ScheduleTimeSlots {
+
+    private ScheduleTimeSlots() {
+    }
+
+    /**
+     * Returns {startMinutes, endMinutes}, sorted by start minute.
+     */
+    public static int[][] parse(String timeSlots) {
+        if (timeSlots == null || timeSlots.isBlank()) {
+            return new int[][]{new int[0], new int[0]};
+        }
+        String[] entries = timeSlots.split(",");
+        long[] packed = new long[entries.length];
+        int count = 0;
+        for (String entry : entries) {
+            String slot = entry.trim();
+            if (slot.isEmpty()) {
+                continue;
+            }
+            int dash = slot.indexOf('-');
+            int start = parseMinute(dash < 0 ? slot : slot.substring(0, dash));
+            int end = dash < 0 ? start : parseMinute(slot.substring(dash + 1));
+            if (end < start) {
+                throw new IllegalArgumentException("Time slot ends before it starts: " + slot);
+            }
+            packed[count++] = ((long) start << 32) | end;
+        }
+        Arrays.sort(packed, 0, count);
+
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = (int) (packed[i] >>> 32);
+            ends[i] = (int) packed[i];
+        }
+        return new int[][]{starts, ends};
+    }
+
+    public static String format(int[] startMinutes, int[] endMinutes) {
+        if (startMinutes == null || endMinutes == null) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder(startMinutes.length * 12);
+        for (int i = 0; i < startMinutes.length; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            appendMinute(text, startMinutes[i]);
+            if (endMinutes[i] != startMinutes[i]) {
+                text.append('-');
+                appendMinute(text, endMinutes[i]);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * True when one of the slots covers the minute: start <= minute < end, or equal to a point slot.
+     */
+    public static boolean covers(int[] startMinutes, int[] endMinutes, int minute) {
+        for (int i = 0; i < startMinutes.length && startMinutes[i] <= minute; i++) {
+            if (minute < endMinutes[i] || minute == startMinutes[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int parseMinute(String time) {
+        String value = time.trim();
+        int colon = value.indexOf(':');
+        try {
+            int hour = Integer.parseInt(colon < 0 ? value : value.substring(0, colon));
+            int minute = colon < 0 ? 0 : Integer.parseInt(value.substring(colon + 1, Math.min(colon + 3, value.length())));
+            if (hour < 0 || hour > 24 || minute < 0 || minute > 59 || hour * 60 + minute > 1440) {
+                throw new IllegalArgumentException("Invalid time: " + time);
+            }
+            return hour * 60 + minute;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid time: " + time, e);
+        }
+    }
+
+    private static void appendMinute(StringBuilder text, int minuteOfDay) {
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        text.append(hour < 10 ? "0" : "").append(hour).append(':').append(minute < 10 ? "0" : "").append(minute);
+    }
+}
@@ -0,0 +1,50 @@
+package com.prescription.util;
+
+import java.util.*;
+
+/**
+ * K-way merge of lists that are each already sorted, in O(n log k) with a heap of the k list heads.
+ * Equal elements keep their order within a list and come in list order across lists.
+ */
+public final class SortedMerge {
+
+    private SortedMerge() {
+    }
+
+    public static <T> List<T> merge(List<? extends List<? extends T>> sources, Comparator<? super T> order) {
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                Comparator.<Head<T>, T>comparing(head -> head.current, order).thenComparingInt(head -> head.source));
+        int total = 0;
+        for (int i = 0; i < sources.size(); i++) {
+            List<? extends T> source = sources.get(i);
+            total += source.size();
+            Iterator<? extends T> iterator = source.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head<>(i, iterator, iterator.next()));
+            }
+        }
+
+        List<T> merged = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            Head<T> head = heads.poll();
+            merged.add(head.current);
+            if (head.rest.hasNext()) {
+                head.current = head.rest.next();
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    private static final class Head<T> {
+        final int source;
+        final Iterator<? extends T> rest;
+        T current;
+
+        Head(int source, Iterator<? extends T> rest, T current) {
+            this.source = source;
+            this.rest = rest;
+            this.current = current;
+        }
+    }
+}
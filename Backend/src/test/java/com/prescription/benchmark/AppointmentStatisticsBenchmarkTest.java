@@ -0,0 +1,144 @@
+package com.prescription.benchmark;
+
+import com.prescription.dto.AppointmentStatisticsDTO;
+import com.prescription.entity.Appointment;
+import com.prescription.entity.Hospital;
+import com.prescription.entity.User;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.HospitalRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestUsers;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dashboard statistics of a doctor with 100k appointments: loading every appointment and counting
+ * in Java (previous code) against the single aggregate query.
+ *
+ * Not part of the regular build, run with:
+ * mvn test -Pbenchmark -Dtest=AppointmentStatisticsBenchmarkTest
+ */
+@Tag("benchmark")
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AppointmentStatisticsBenchmarkTest {
+
+    private static final int APPOINTMENTS = 100_000;
+    private static final int PATIENTS = 2_000;
+    private static final int RUNS = 5;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void aggregateQueryAgainstLoadingAllAppointments() {
+        User doctor = TestUsers.create(userRepository, "doctor", User.Role.DOCTOR);
+        Hospital hospital = hospitalRepository.save(new Hospital());
+        List<User> patients = new ArrayList<>();
+        for (int i = 0; i < PATIENTS; i++) {
+            patients.add(TestUsers.create(userRepository, "patient" + i, User.Role.PATIENT));
+        }
+        insertAppointments(doctor, hospital, patients);
+        entityManager.clear();
+
+        LocalDate today = LocalDate.now();
+        LocalDate startOfWeek = today.minusDays(today.getDayOfWeek().getValue() - 1);
+        Appointment.Status[] statuses = Appointment.Status.values();
+
+        long aggregateNanos = 0;
+        long loadNanos = 0;
+        AppointmentStatisticsDTO aggregate = null;
+        long loadedTotal = 0;
+        // First round warms up both paths and is not counted
+        for (int run = 0; run <= RUNS; run++) {
+            long started = System.nanoTime();
+            aggregate = appointmentRepository.aggregateStatistics(doctor.getId(), today, startOfWeek,
+                    startOfWeek.plusDays(6), Appointment.Status.REQUESTED, Appointment.Status.SCHEDULED,
+                    Appointment.Status.CONFIRMED, Appointment.Status.COMPLETED, Appointment.Status.CANCELLED);
+            long aggregateElapsed = System.nanoTime() - started;
+
+            started = System.nanoTime();
+            loadedTotal = countByLoading(doctor, statuses.length);
+            long loadElapsed = System.nanoTime() - started;
+            entityManager.clear();
+
+            if (run > 0) {
+                aggregateNanos += aggregateElapsed;
+                loadNanos += loadElapsed;
+            }
+        }
+
+        assertEquals(APPOINTMENTS, aggregate.getTotalAppointments());
+        assertEquals(APPOINTMENTS, loadedTotal);
+        assertEquals(PATIENTS, aggregate.getTotalUniquePatients());
+        System.out.printf("Appointment statistics over %d appointments: load all %.1f ms, aggregate query %.1f ms%n",
+                APPOINTMENTS, loadNanos / 1e6 / RUNS, aggregateNanos / 1e6 / RUNS);
+    }
+
+    // What getAppointmentStatistics used to do: every appointment as an entity, counted in memory
+    private long countByLoading(User doctor, int statusCount) {
+        List<Appointment> appointments = appointmentRepository.findByDoctor(doctor);
+        long[] byStatus = new long[statusCount];
+        Set<Long> uniquePatients = new HashSet<>();
+        for (Appointment appointment : appointments) {
+            byStatus[appointment.getStatus().ordinal()]++;
+            uniquePatients.add(appointment.getPatient().getId());
+        }
+        assertEquals(PATIENTS, uniquePatients.size());
+        return appointments.size();
+    }
+
+    private void insertAppointments(User doctor, Hospital hospital, List<User> patients) {
+        Random random = new Random(7);
+        Appointment.Status[] statuses = Appointment.Status.values();
+        LocalDateTime first = LocalDate.now().minusYears(2).atTime(9, 0);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(APPOINTMENTS);
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            LocalDateTime time = first.plusMinutes(15L * i);
+            rows.add(new Object[]{Timestamp.valueOf(time), statuses[random.nextInt(statuses.length)].name(),
+                    patients.get(random.nextInt(PATIENTS)).getId()});
+        }
+        // Make sure every patient has at least one appointment
+        for (int i = 0; i < PATIENTS; i++) {
+            rows.get(i)[2] = patients.get(i).getId();
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO appointments (scheduled_time, status, type, doctor_user_id, " +
+                "patient_user_id, hospital_id, date_time, created_at, updated_at) VALUES (?, ?, 'IN_PERSON', ?, ?, ?, 'slot', ?, ?)",
+                rows, 1000, (ps, row) -> {
+                    ps.setTimestamp(1, (Timestamp) row[0]);
+                    ps.setString(2, (String) row[1]);
+                    ps.setLong(3, doctor.getId());
+                    ps.setLong(4, (Long) row[2]);
+                    ps.setLong(5, hospital.getId());
+                    ps.setTimestamp(6, now);
+                    ps.setTimestamp(7, now);
+                });
+    }
+}
@@ -0,0 +1,202 @@
+package com.prescription.benchmark;
+
+import com.prescription.entity.Appointment;
+import com.prescription.entity.User;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.DoctorAppointmentCountersRepository;
+import com.prescription.repository.HospitalRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.service.AppointmentOccupancyService;
+import com.prescription.service.AppointmentService;
+import com.prescription.service.DoctorAppointmentCounterService;
+import com.prescription.support.TestAppointments;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Patients cancelling and doctors completing the same appointments at once, 4 racing calls per appointment:
+ * the previous read-check-write sequence against the conditional UPDATE transitions, and the complete
+ * service calls built on them. Counts how many appointments ended up changed by more than one caller
+ * and how long each contention run takes.
+ * On the in-memory H2 a conditional UPDATE that waited for a row lock is retried by H2 after a short
+ * sleep, so there the timings favour the unconditional write; PostgreSQL re-checks the condition on
+ * the new row version instead. The number to watch on H2 is the appointments changed twice.
+ *
+ * Not part of the regular build, run with:
+ * mvn test -Pbenchmark -Dtest=AppointmentTransitionContentionBenchmarkTest
+ */
+@Tag("benchmark")
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AppointmentService.class, AppointmentOccupancyService.class, DoctorAppointmentCounterService.class,
+        AppointmentTransitionContentionBenchmarkTest.Metrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AppointmentTransitionContentionBenchmarkTest {
+
+    private static final int APPOINTMENTS = 2_000;
+    private static final int RACERS_PER_APPOINTMENT = 4;
+    private static final int THREADS = 16;
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorAppointmentCountersRepository countersRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        appointmentRepository.deleteAllInBatch();
+        countersRepository.deleteAllInBatch();
+        hospitalRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void readCheckWriteAgainstConditionalUpdates() throws Exception {
+        TestAppointments fixture = new TestAppointments(userRepository, hospitalRepository, appointmentRepository);
+        User doctor = fixture.doctor();
+        User patient = fixture.patient();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        // Previous code: load the status, check it in Java, write the new one unconditionally
+        List<Long> oldIds = book(fixture);
+        Result readCheckWrite = race(oldIds, (appointmentId, cancel) -> transactionTemplate.execute(status -> {
+            String current = jdbcTemplate.queryForObject("SELECT status FROM appointments WHERE id = ?",
+                    String.class, appointmentId);
+            Appointment.Transition transition = cancel
+                    ? Appointment.Transition.CANCEL_BY_PATIENT : Appointment.Transition.COMPLETE;
+            if (!transition.allowsFrom(Appointment.Status.valueOf(current))) {
+                return false;
+            }
+            jdbcTemplate.update("UPDATE appointments SET status = ?, updated_at = ? WHERE id = ?",
+                    transition.getTarget().name(), LocalDateTime.now(), appointmentId);
+            return true;
+        }));
+
+        // Now: one conditional UPDATE on every source status, the write decides and no read comes first
+        List<Long> newIds = book(fixture);
+        Result conditional = race(newIds, (appointmentId, cancel) -> transactionTemplate.execute(status -> {
+            Appointment.Transition transition = cancel
+                    ? Appointment.Transition.CANCEL_BY_PATIENT : Appointment.Transition.COMPLETE;
+            Long userId = cancel ? patient.getId() : doctor.getId();
+            return appointmentRepository.transition(appointmentId, userId, !cancel, transition, null,
+                    LocalDateTime.now()) != null;
+        }));
+
+        // The whole service call on top: counters, cache invalidation and events
+        List<Long> serviceIds = book(fixture);
+        Result service = race(serviceIds, (appointmentId, cancel) -> cancel
+                ? appointmentService.cancelAppointmentByPatient(appointmentId, patient.getId())
+                : appointmentService.completeAppointment(appointmentId, doctor.getId(), null));
+
+        System.out.printf("Transition contention, %d appointments x %d callers on %d threads: " +
+                        "read-check-write %.1f ms with %d appointments changed twice, " +
+                        "conditional update %.1f ms with %d, full service calls %.1f ms with %d%n",
+                APPOINTMENTS, RACERS_PER_APPOINTMENT, THREADS,
+                readCheckWrite.nanos / 1e6, readCheckWrite.changedTwice,
+                conditional.nanos / 1e6, conditional.changedTwice,
+                service.nanos / 1e6, service.changedTwice);
+        assertEquals(0, conditional.changedTwice);
+        assertEquals(0, service.changedTwice);
+    }
+
+    private Result race(List<Long> appointmentIds, Racer racer) throws Exception {
+        List<long[]> calls = new ArrayList<>();
+        for (Long appointmentId : appointmentIds) {
+            for (int i = 0; i < RACERS_PER_APPOINTMENT; i++) {
+                calls.add(new long[]{appointmentId, i % 2});
+            }
+        }
+        Collections.shuffle(calls);
+
+        ConcurrentHashMap<Long, AtomicInteger> wins = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (long[] call : calls) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                if (racer.apply(call[0], call[1] == 0)) {
+                    wins.computeIfAbsent(call[0], id -> new AtomicInteger()).incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(120, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+
+        long changedTwice = wins.values().stream().filter(count -> count.get() > 1).count();
+        assertEquals(appointmentIds.size(), wins.size());
+        return new Result(elapsed, changedTwice);
+    }
+
+    private List<Long> book(TestAppointments fixture) {
+        List<Long> ids = new ArrayList<>();
+        LocalDateTime first = LocalDateTime.now().plusDays(1);
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            ids.add(fixture.book(first.plusMinutes(30L * i), Appointment.Status.SCHEDULED).getId());
+        }
+        return ids;
+    }
+
+    private interface Racer {
+        boolean apply(long appointmentId, boolean cancel) throws Exception;
+    }
+
+    private record Result(long nanos, long changedTwice) {
+    }
+}
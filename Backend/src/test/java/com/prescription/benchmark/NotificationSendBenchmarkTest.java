@@ -0,0 +1,148 @@
+package com.prescription.benchmark;
+
+import com.prescription.entity.Notification;
+import com.prescription.repository.NotificationRepository;
+import com.prescription.service.NotificationCoalescer;
+import com.prescription.service.NotificationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Latency of one notification send while the user's history grows from 10 to 100k rows: the previous
+ * save, flush and read back of the whole history against the single insert.
+ *
+ * Not part of the regular build, run with:
+ * mvn test -Pbenchmark -Dtest=NotificationSendBenchmarkTest
+ */
+@Tag("benchmark")
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({NotificationService.class, NotificationCoalescer.class, NotificationSendBenchmarkTest.Metrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationSendBenchmarkTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    private static final int[] HISTORY_SIZES = {10, 1_000, 10_000, 100_000};
+    private static final long USER_ID = 42L;
+    private static final int SENDS = 200;
+    private static final int READ_BACK_SENDS = 10;
+    private static final int WARMUP = 20;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private SimpMessagingTemplate messagingTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        notificationRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void sendLatencyAgainstHistorySize() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        // Another user, so the measured history starts empty
+        for (int i = 0; i < WARMUP; i++) {
+            notificationService.sendSystemAlert(USER_ID + 1, "warmup");
+            readBackSend(transactionTemplate, USER_ID + 1);
+        }
+
+        int history = 0;
+        StringBuilder report = new StringBuilder("Notification send, mean per call by history size:");
+        for (int size : HISTORY_SIZES) {
+            insertHistory(size - history);
+            history = size;
+
+            long started = System.nanoTime();
+            for (int i = 0; i < READ_BACK_SENDS; i++) {
+                readBackSend(transactionTemplate, USER_ID);
+            }
+            double readBack = (System.nanoTime() - started) / 1e6 / READ_BACK_SENDS;
+
+            started = System.nanoTime();
+            for (int i = 0; i < SENDS; i++) {
+                notificationService.sendSystemAlert(USER_ID, "benchmark");
+            }
+            double insertOnly = (System.nanoTime() - started) / 1e6 / SENDS;
+
+            history += READ_BACK_SENDS + SENDS;
+            report.append(String.format("%n  %,d rows: read back %.3f ms, single insert %.3f ms", size, readBack, insertOnly));
+        }
+        System.out.println(report);
+        assertEquals(history + 2L * WARMUP, notificationRepository.count());
+    }
+
+    // Previous code: save, flush, then load the user's whole history to find the new row
+    private void readBackSend(TransactionTemplate transactionTemplate, long userId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Notification saved = notificationRepository.save(Notification.builder()
+                    .userId(userId)
+                    .title("System Alert")
+                    .message("benchmark")
+                    .type(Notification.NotificationType.SYSTEM_ALERT)
+                    .createdAt(LocalDateTime.now())
+                    .isRead(false)
+                    .build());
+            notificationRepository.flush();
+            assertTrue(notificationRepository.findByUserIdOrderByCreatedAtDesc(userId).stream()
+                    .anyMatch(n -> n.getId().equals(saved.getId())));
+        });
+    }
+
+    private void insertHistory(int rows) {
+        List<Object[]> batch = new ArrayList<>();
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now().minusDays(30));
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{UUID.randomUUID(), USER_ID, "History", "Older notification",
+                    Notification.NotificationType.SYSTEM_ALERT.name(), true, createdAt});
+            if (batch.size() == 1_000 || i == rows - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO notifications (id, user_id, title, message, type, \"isread\", created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.prescription.benchmark;
+
+import com.prescription.entity.AvailabilityTemplate;
+import com.prescription.util.AvailabilityUtil;
+import com.prescription.util.CompiledTemplate;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks a set of templates against a 60 day window, the inner loop of slot generation:
+ * re-parsing the template strings per date (previous code) against the compiled predicate.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.prescription.benchmark.TemplateApplicabilityBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateApplicabilityBenchmark {
+
+    private static final int DAYS = 60;
+
+    private List<AvailabilityTemplate> templates;
+    private List<CompiledTemplate> compiled;
+    private LocalDate startDate;
+
+    @Setup
+    public void setUp() {
+        startDate = LocalDate.of(2025, 1, 1);
+        templates = new ArrayList<>();
+
+        AvailabilityTemplate weekdays = template(AvailabilityTemplate.ScheduleType.WEEKLY);
+        weekdays.setDaysOfWeek("1,2,3,4,5");
+        templates.add(weekdays);
+
+        AvailabilityTemplate weekends = template(AvailabilityTemplate.ScheduleType.WEEKLY);
+        weekends.setDaysOfWeek("6,7");
+        templates.add(weekends);
+
+        AvailabilityTemplate range = template(AvailabilityTemplate.ScheduleType.SPECIFIC_DATE_RANGE);
+        range.setStartDate(startDate.plusDays(10));
+        range.setEndDate(startDate.plusDays(40));
+        templates.add(range);
+
+        AvailabilityTemplate dates = template(AvailabilityTemplate.ScheduleType.SPECIFIC_DATES);
+        StringBuilder specificDates = new StringBuilder();
+        for (int i = 0; i < DAYS; i += 3) {
+            specificDates.append(i == 0 ? "" : ",").append(startDate.plusDays(i));
+        }
+        dates.setSpecificDates(specificDates.toString());
+        templates.add(dates);
+
+        compiled = new ArrayList<>();
+        for (AvailabilityTemplate template : templates) {
+            compiled.add(CompiledTemplate.compile(template));
+        }
+    }
+
+    @Benchmark
+    public void parsePerDate(Blackhole blackhole) {
+        for (AvailabilityTemplate template : templates) {
+            for (int i = 0; i < DAYS; i++) {
+                blackhole.consume(parseAndCheck(template, startDate.plusDays(i)));
+            }
+        }
+    }
+
+    @Benchmark
+    public void compiledPredicate(Blackhole blackhole) {
+        long firstDay = startDate.toEpochDay();
+        for (CompiledTemplate template : compiled) {
+            for (int i = 0; i < DAYS; i++) {
+                blackhole.consume(template.appliesTo(firstDay + i));
+            }
+        }
+    }
+
+    @Benchmark
+    public void compilePerRunThenPredicate(Blackhole blackhole) {
+        // What generation pays on a cache miss
+        long firstDay = startDate.toEpochDay();
+        for (AvailabilityTemplate template : templates) {
+            CompiledTemplate compiledTemplate = CompiledTemplate.compile(template);
+            for (int i = 0; i < DAYS; i++) {
+                blackhole.consume(compiledTemplate.appliesTo(firstDay + i));
+            }
+        }
+    }
+
+    // The applicability check as it was before templates were compiled
+    private static boolean parseAndCheck(AvailabilityTemplate template, LocalDate date) {
+        switch (template.getScheduleType()) {
+            case DAILY:
+                return true;
+            case WEEKLY:
+                Set<Integer> daysOfWeek = AvailabilityUtil.parseDaysOfWeek(template.getDaysOfWeek());
+                return AvailabilityUtil.isDateInDaysOfWeek(date, daysOfWeek);
+            case SPECIFIC_DATE_RANGE:
+                return !date.isBefore(template.getStartDate()) && !date.isAfter(template.getEndDate());
+            case SPECIFIC_DATES:
+                Set<LocalDate> specificDates = AvailabilityUtil.parseSpecificDates(template.getSpecificDates());
+                return specificDates.contains(date);
+            default:
+                return false;
+        }
+    }
+
+    private static AvailabilityTemplate template(AvailabilityTemplate.ScheduleType scheduleType) {
+        AvailabilityTemplate template = new AvailabilityTemplate();
+        template.setScheduleType(scheduleType);
+        return template;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TemplateApplicabilityBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
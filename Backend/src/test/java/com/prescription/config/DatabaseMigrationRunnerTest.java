@@ -0,0 +1,49 @@
+package com.prescription.config;
+
+import com.prescription.entity.DoctorHospitalSchedule;
+import com.prescription.repository.DoctorHospitalScheduleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.DayOfWeek;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DatabaseMigrationRunner.class)
+class DatabaseMigrationRunnerTest {
+
+    @Autowired
+    private DoctorHospitalScheduleRepository scheduleRepository;
+
+    @Autowired
+    private DatabaseMigrationRunner migrationRunner;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void migratesLegacyScheduleTimeSlotText() {
+        jdbcTemplate.execute("ALTER TABLE doctor_hospital_schedules ADD COLUMN time_slots VARCHAR(255) DEFAULT '' NOT NULL");
+        try {
+            jdbcTemplate.update("INSERT INTO doctor_hospital_schedules (doctor_id, hospital_id, day_of_week, time_slots) " +
+                    "VALUES (5, 3, 'MONDAY', '09:00-10:00,08:00-09:00')");
+
+            migrationRunner.run(null);
+            migrationRunner.run(null);
+
+            DoctorHospitalSchedule migrated = scheduleRepository.findByDoctorId(5L).get(0);
+            assertEquals(DayOfWeek.MONDAY, migrated.getDayOfWeek());
+            assertEquals("08:00-09:00,09:00-10:00", migrated.getTimeSlots());
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE doctor_hospital_schedules DROP COLUMN time_slots");
+        }
+    }
+}
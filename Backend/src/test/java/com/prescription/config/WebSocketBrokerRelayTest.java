@@ -0,0 +1,141 @@
+package com.prescription.config;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.*;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Relay mode against an embedded ActiveMQ Artemis STOMP broker. A second STOMP client connected
+ * straight to the broker stands in for the other backend instances.
+ */
+@SpringJUnitWebConfig(WebSocketConfig.class)
+@TestPropertySource(properties = "app.websocket.broker.mode=relay")
+class WebSocketBrokerRelayTest {
+
+    private static final int PORT = freePort();
+    private static EmbeddedActiveMQ broker;
+
+    @DynamicPropertySource
+    static void relay(DynamicPropertyRegistry registry) {
+        registry.add("app.websocket.broker.relay-port", () -> PORT);
+    }
+
+    @BeforeAll
+    static void startBroker() throws Exception {
+        broker = new EmbeddedActiveMQ().setConfiguration(new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("stomp", "tcp://localhost:" + PORT
+                        + "?protocols=STOMP;anycastPrefix=/queue/;multicastPrefix=/topic/"));
+        broker.start();
+    }
+
+    @AfterAll
+    static void stopBroker() throws Exception {
+        broker.stop();
+    }
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private StompBrokerRelayMessageHandler relayHandler;
+
+    @Autowired
+    @Qualifier("messageBrokerTaskScheduler")
+    private TaskScheduler taskScheduler;
+
+    private ReactorNettyTcpStompClient otherInstance;
+    private StompSession session;
+
+    @AfterEach
+    void disconnect() {
+        if (session != null) {
+            session.disconnect();
+        }
+        if (otherInstance != null) {
+            otherInstance.shutdown();
+        }
+    }
+
+    @Test
+    void publishesThroughTheExternalBroker() throws Exception {
+        BlockingQueue<String> received = subscribeOnBroker("/topic/announcements");
+
+        messagingTemplate.convertAndSend("/topic/announcements", "maintenance at 22:00");
+
+        assertEquals("maintenance at 22:00", received.poll(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void usersConnectedElsewhereAreReachedThroughTheBroker() throws Exception {
+        BlockingQueue<String> received = subscribeOnBroker("/topic/unresolved-user-destination");
+
+        // Nobody is connected to this instance as user 7
+        messagingTemplate.convertAndSendToUser("7", "/queue/notifications", "appointment reminder");
+
+        assertEquals("appointment reminder", received.poll(10, TimeUnit.SECONDS));
+    }
+
+    private BlockingQueue<String> subscribeOnBroker(String destination) throws Exception {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!relayHandler.isBrokerAvailable() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(relayHandler.isBrokerAvailable(), "relay connected to the broker");
+
+        otherInstance = new ReactorNettyTcpStompClient("localhost", PORT);
+        otherInstance.setMessageConverter(new StringMessageConverter());
+        otherInstance.setTaskScheduler(taskScheduler);
+        StompHeaders connect = new StompHeaders();
+        connect.setLogin("guest");
+        connect.setPasscode("guest");
+        session = otherInstance.connectAsync(connect, new StompSessionHandlerAdapter() {
+        }).get(10, TimeUnit.SECONDS);
+        session.setAutoReceipt(true);
+
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        CountDownLatch subscribed = new CountDownLatch(1);
+        session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return String.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((String) payload);
+            }
+        }).addReceiptTask(subscribed::countDown);
+        assertTrue(subscribed.await(10, TimeUnit.SECONDS), "subscribed on the broker");
+        return received;
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
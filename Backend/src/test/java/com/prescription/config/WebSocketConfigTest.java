@@ -0,0 +1,48 @@
+package com.prescription.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringJUnitWebConfig(WebSocketConfig.class)
+@TestPropertySource(properties = {"app.websocket.inbound-threads=3", "app.websocket.outbound-threads=5",
+        "app.websocket.send-buffer-size-kb=128", "app.websocket.send-time-limit-ms=2000"})
+class WebSocketConfigTest {
+
+    @Autowired
+    private SimpleBrokerMessageHandler simpleBroker;
+
+    @Autowired
+    @Qualifier("clientInboundChannelExecutor")
+    private ThreadPoolTaskExecutor inboundExecutor;
+
+    @Autowired
+    @Qualifier("clientOutboundChannelExecutor")
+    private ThreadPoolTaskExecutor outboundExecutor;
+
+    @Autowired
+    private SubProtocolWebSocketHandler webSocketHandler;
+
+    @Test
+    void simpleBrokerIsTheDefaultWithSizedChannelsAndSendLimits() {
+        assertTrue(simpleBroker.isRunning());
+        assertArrayEquals(new long[]{10_000, 10_000}, simpleBroker.getHeartbeatValue());
+        assertEquals(3, inboundExecutor.getMaxPoolSize());
+        assertEquals(5, outboundExecutor.getMaxPoolSize());
+        assertEquals(128 * 1024, webSocketHandler.getSendBufferSizeLimit());
+        assertEquals(2000, webSocketHandler.getSendTimeLimit());
+    }
+
+    @Test
+    void rejectsUnknownBrokerModes() {
+        assertThrows(IllegalStateException.class, () -> new WebSocketConfig("kafka", "localhost", 61613,
+                "guest", "guest", "guest", "guest", 10_000, 4, 4, 256, 5000, 64, null));
+    }
+}
@@ -0,0 +1,186 @@
+package com.prescription.service;
+
+import com.prescription.dto.BulkAppointmentResultDTO;
+import com.prescription.dto.BulkAppointmentResultDTO.Outcome;
+import com.prescription.dto.BulkScheduleRequestDTO;
+import com.prescription.entity.Appointment;
+import com.prescription.entity.DoctorAppointmentCounters;
+import com.prescription.entity.User;
+import com.prescription.event.AppointmentBatchEvent;
+import com.prescription.event.AppointmentEvent;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.HospitalRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestAppointments;
+import com.prescription.support.TestUsers;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@RecordApplicationEvents
+@Import({AppointmentService.class, AppointmentOccupancyService.class, DoctorAppointmentCounterService.class})
+class AppointmentBulkOperationsTest {
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private DoctorAppointmentCounterService counterService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    private final LocalDate day = LocalDate.now().plusDays(5);
+    private TestAppointments fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new TestAppointments(userRepository, hospitalRepository, appointmentRepository);
+    }
+
+    @Test
+    void schedulesWhatItCanAndExplainsTheRest() {
+        Appointment first = book(fixture.doctor(), 8, Appointment.Status.REQUESTED);
+        Appointment clash = book(fixture.doctor(), 8, Appointment.Status.REQUESTED);
+        Appointment nearExisting = book(fixture.doctor(), 8, Appointment.Status.REQUESTED);
+        Appointment keepsTime = book(fixture.doctor(), 15, Appointment.Status.REQUESTED);
+        Appointment alreadyScheduled = book(fixture.doctor(), 12, Appointment.Status.SCHEDULED);
+        Appointment otherDoctors = book(TestUsers.create(userRepository, User.Role.DOCTOR), 9,
+                Appointment.Status.REQUESTED);
+        counterService.reconcile(fixture.doctor().getId());
+
+        Long doctorId = fixture.doctor().getId();
+        List<BulkAppointmentResultDTO> results = appointmentService.scheduleAppointments(doctorId, List.of(
+                item(first.getId(), day.atTime(10, 0)),
+                item(clash.getId(), day.atTime(10, 20)),            // overlaps first, accepted earlier in the batch
+                item(nearExisting.getId(), day.atTime(11, 50)),     // runs into alreadyScheduled at 12:00
+                item(keepsTime.getId(), null),
+                item(first.getId(), day.atTime(16, 0)),
+                item(alreadyScheduled.getId(), day.atTime(17, 0)),
+                item(otherDoctors.getId(), day.atTime(18, 0)),
+                item(nearExisting.getId() + 1000, day.atTime(19, 0))));
+
+        assertEquals(List.of(Outcome.SCHEDULED, Outcome.CONFLICT, Outcome.CONFLICT, Outcome.SCHEDULED, Outcome.DUPLICATE,
+                        Outcome.NOT_PENDING, Outcome.NOT_FOUND, Outcome.NOT_FOUND),
+                results.stream().map(BulkAppointmentResultDTO::getOutcome).toList());
+
+        entityManager.clear();
+        Appointment scheduled = appointmentRepository.findById(keepsTime.getId()).orElseThrow();
+        assertEquals(Appointment.Status.SCHEDULED, scheduled.getStatus());
+        assertEquals(day.atTime(15, 0), scheduled.getScheduledTime());
+        assertEquals(day.atTime(15, 35), scheduled.getBlockedUntil());
+        assertEquals(Appointment.Status.REQUESTED, appointmentRepository.findById(clash.getId()).orElseThrow().getStatus());
+
+        DoctorAppointmentCounters counters = counterService.getCounters(fixture.doctor().getId());
+        assertEquals(2, counters.getRequested());
+        assertEquals(3, counters.getScheduled());
+        assertFalse(counterService.reconcile(fixture.doctor().getId()));
+
+        // One grouped notification dispatch for the whole batch
+        List<AppointmentBatchEvent> batches = applicationEvents.stream(AppointmentBatchEvent.class).toList();
+        assertEquals(1, batches.size());
+        assertEquals(List.of(first.getId(), keepsTime.getId()),
+                batches.get(0).getEvents().stream().map(AppointmentEvent::getAppointmentId).toList());
+        assertEquals(0, applicationEvents.stream(AppointmentEvent.class).count());
+    }
+
+    @Test
+    void rejectsInBulkWithNewPatientCountsKept() {
+        Appointment first = book(fixture.doctor(), 9, Appointment.Status.REQUESTED);
+        Appointment second = book(fixture.doctor(), 10, Appointment.Status.REQUESTED);
+        counterService.reconcile(fixture.doctor().getId());
+
+        List<BulkAppointmentResultDTO> results = appointmentService.rejectAppointments(fixture.doctor().getId(),
+                List.of(first.getId(), second.getId(), second.getId()));
+
+        assertEquals(List.of(Outcome.REJECTED, Outcome.REJECTED, Outcome.DUPLICATE),
+                results.stream().map(BulkAppointmentResultDTO::getOutcome).toList());
+        entityManager.clear();
+        DoctorAppointmentCounters counters = counterService.getCounters(fixture.doctor().getId());
+        assertEquals(2, counters.getCancelled());
+        assertEquals(0, counters.getNewPatients());
+        assertFalse(counterService.reconcile(fixture.doctor().getId()));
+        assertEquals(2, applicationEvents.stream(AppointmentBatchEvent.class).findFirst().orElseThrow().getEvents().size());
+    }
+
+    @Test
+    void statementsDoNotGrowWithTheBatch() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Long> few = new ArrayList<>();
+        List<Long> many = new ArrayList<>();
+        User otherDoctor = TestUsers.create(userRepository, User.Role.DOCTOR);
+        for (int i = 0; i < 40; i++) {
+            if (i < 4) {
+                few.add(book(fixture.doctor(), 8, Appointment.Status.REQUESTED).getId());
+            }
+            many.add(book(otherDoctor, 8, Appointment.Status.REQUESTED).getId());
+        }
+        counterService.reconcile(fixture.doctor().getId());
+        counterService.reconcile(otherDoctor.getId());
+
+        assertEquals(statementsToSchedule(statistics, fixture.doctor(), few),
+                statementsToSchedule(statistics, otherDoctor, many));
+    }
+
+    private long statementsToSchedule(Statistics statistics, User doctor, List<Long> ids) {
+        List<BulkScheduleRequestDTO.Item> items = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            items.add(item(ids.get(i), day.plusDays(1).atTime(8, 0).plusHours(i)));
+        }
+        entityManager.clear();
+        statistics.clear();
+        List<BulkAppointmentResultDTO> results = appointmentService.scheduleAppointments(doctor.getId(), items);
+        assertTrue(results.stream().allMatch(BulkAppointmentResultDTO::isSuccess));
+        return statistics.getPrepareStatementCount();
+    }
+
+    private BulkScheduleRequestDTO.Item item(Long appointmentId, LocalDateTime scheduledTime) {
+        BulkScheduleRequestDTO.Item item = new BulkScheduleRequestDTO.Item();
+        item.setAppointmentId(appointmentId);
+        item.setScheduledTime(scheduledTime);
+        return item;
+    }
+
+    private Appointment book(User doctor, int hour, Appointment.Status status) {
+        return fixture.book(doctor, fixture.patient(), day.atTime(hour, 0), status);
+    }
+}
@@ -0,0 +1,106 @@
+package com.prescription.service;
+
+import com.prescription.entity.Appointment;
+import com.prescription.entity.AppointmentSettings;
+import com.prescription.exception.AppointmentConflictException;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.AppointmentSettingsRepository;
+import com.prescription.repository.HospitalRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestAppointments;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AppointmentService.class, AppointmentOccupancyService.class, DoctorAppointmentCounterService.class})
+class AppointmentConflictTest {
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private AppointmentSettingsRepository settingsRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    private final LocalDate day = LocalDate.now().plusDays(2);
+    private TestAppointments fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new TestAppointments(userRepository, hospitalRepository, appointmentRepository);
+    }
+
+    @Test
+    void blocksSlotDurationPlusBufferOfTheDoctor() {
+        AppointmentSettings settings = new AppointmentSettings();
+        settings.setDoctor(fixture.doctor());
+        settings.setSlotDurationMinutes(45);
+        settings.setBufferTimeMinutes(15);
+        settingsRepository.save(settings);
+
+        Appointment first = appointmentService.scheduleAppointment(requested().getId(), day.atTime(10, 0),
+                Appointment.Type.IN_PERSON, null, null);
+        assertEquals(day.atTime(11, 0), first.getBlockedUntil());
+
+        // Inside the buffer after the first appointment, and overlapping its start
+        Long second = requested().getId();
+        assertThrows(AppointmentConflictException.class, () -> appointmentService.scheduleAppointment(second,
+                day.atTime(10, 50), Appointment.Type.IN_PERSON, null, null));
+        assertThrows(AppointmentConflictException.class, () -> appointmentService.scheduleAppointment(second,
+                day.atTime(9, 30), Appointment.Type.IN_PERSON, null, null));
+
+        Appointment back = appointmentService.scheduleAppointment(second, day.atTime(11, 0),
+                Appointment.Type.IN_PERSON, null, null);
+        assertEquals(Appointment.Status.SCHEDULED, back.getStatus());
+    }
+
+    @Test
+    void cancelledAppointmentsFreeTheirTime() {
+        Appointment first = appointmentService.scheduleAppointment(requested().getId(), day.atTime(10, 0),
+                Appointment.Type.IN_PERSON, null, null);
+        // Default 30 minute slot and 5 minute buffer
+        assertEquals(day.atTime(10, 35), first.getBlockedUntil());
+
+        assertTrue(appointmentService.cancelAppointmentByPatient(first.getId(), fixture.patient().getId()));
+
+        Appointment second = appointmentService.scheduleAppointment(requested().getId(), day.atTime(10, 10),
+                Appointment.Type.IN_PERSON, null, null);
+        assertEquals(day.atTime(10, 45), second.getBlockedUntil());
+    }
+
+    @Test
+    void requestedAppointmentsRecordTheirBlockedTime() {
+        Appointment requested = appointmentService.requestAppointment(fixture.doctor().getId(),
+                fixture.patient().getId(), day, LocalTime.of(14, 0), Appointment.Type.VIDEO, "checkup",
+                fixture.hospital().getId(), "14:00 - 15:00");
+        assertEquals(day.atTime(14, 35), requested.getBlockedUntil());
+    }
+
+    private Appointment requested() {
+        return fixture.book(day.atTime(8, 0), Appointment.Status.REQUESTED);
+    }
+}
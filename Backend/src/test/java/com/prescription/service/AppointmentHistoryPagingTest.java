@@ -0,0 +1,136 @@
+package com.prescription.service;
+
+import com.prescription.dto.AppointmentHistoryCriteria;
+import com.prescription.entity.Appointment;
+import com.prescription.entity.User;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.HospitalRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestAppointments;
+import com.prescription.support.TestUsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AppointmentService.class, AppointmentOccupancyService.class, DoctorAppointmentCounterService.class})
+class AppointmentHistoryPagingTest {
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    private final LocalDate start = LocalDate.of(2025, 3, 1);
+    private TestAppointments fixture;
+    private List<Appointment> booked;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new TestAppointments(userRepository, hospitalRepository, appointmentRepository);
+        User other = TestUsers.create(userRepository, "other", User.Role.PATIENT);
+
+        // Requested in batches with identical creation times, so pages have to break ties on id
+        booked = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            Appointment appointment = TestAppointments.create(fixture.doctor(), fixture.patient(), fixture.hospital(),
+                    start.plusDays(22 - i).atTime(9, 0),
+                    i % 3 == 0 ? Appointment.Status.COMPLETED : Appointment.Status.SCHEDULED);
+            appointment.setCreatedAt(LocalDateTime.of(2025, 2, 1, 12, 0).plusHours(i / 5));
+            appointment.setUpdatedAt(appointment.getCreatedAt());
+            booked.add(appointmentRepository.save(appointment));
+        }
+        Appointment foreign = TestAppointments.create(fixture.doctor(), other, fixture.hospital(), start.atTime(11, 0),
+                Appointment.Status.SCHEDULED);
+        foreign.setCreatedAt(LocalDateTime.of(2025, 2, 1, 12, 0));
+        foreign.setUpdatedAt(foreign.getCreatedAt());
+        appointmentRepository.save(foreign);
+    }
+
+    @Test
+    void walksTheWholeHistoryNewestFirst() {
+        List<Long> seen = readAll(fixture.patient().getId(), false, new AppointmentHistoryCriteria(), 5);
+
+        List<Long> expected = booked.stream()
+                .sorted(Comparator.comparing(Appointment::getCreatedAt).thenComparing(Appointment::getId).reversed())
+                .map(Appointment::getId)
+                .toList();
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void appliesFiltersAcrossPagesInScheduledOrder() {
+        AppointmentHistoryCriteria criteria = new AppointmentHistoryCriteria();
+        criteria.setSort("scheduled");
+        criteria.setStatus(List.of(Appointment.Status.COMPLETED));
+        criteria.setFromDate(start.plusDays(3));
+        criteria.setToDate(start.plusDays(15));
+
+        List<Long> seen = readAll(fixture.patient().getId(), false, criteria, 2);
+
+        List<Long> expected = booked.stream()
+                .filter(a -> a.getStatus() == Appointment.Status.COMPLETED)
+                .filter(a -> !a.getScheduledTime().toLocalDate().isBefore(start.plusDays(3)))
+                .filter(a -> !a.getScheduledTime().toLocalDate().isAfter(start.plusDays(15)))
+                .sorted(Comparator.comparing(Appointment::getScheduledTime).reversed())
+                .map(Appointment::getId)
+                .toList();
+        assertEquals(4, expected.size());
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void doctorHistoryIncludesEveryPatient() {
+        assertEquals(24, readAll(fixture.doctor().getId(), true, new AppointmentHistoryCriteria(), 10).size());
+    }
+
+    @Test
+    void rejectsUnknownSortAndMalformedCursor() {
+        AppointmentHistoryCriteria criteria = new AppointmentHistoryCriteria();
+        criteria.setSort("name");
+        assertThrows(IllegalArgumentException.class,
+                () -> appointmentService.getAppointmentHistory(fixture.patient().getId(), false, criteria, 5));
+
+        criteria.setSort(null);
+        criteria.setCursor("not-a-cursor");
+        assertThrows(IllegalArgumentException.class,
+                () -> appointmentService.getAppointmentHistory(fixture.patient().getId(), false, criteria, 5));
+    }
+
+    private List<Long> readAll(Long userId, boolean asDoctor, AppointmentHistoryCriteria criteria, int size) {
+        List<Long> ids = new ArrayList<>();
+        do {
+            Slice<Appointment> page = appointmentService.getAppointmentHistory(userId, asDoctor, criteria, size);
+            assertTrue(page.getNumberOfElements() <= size);
+            page.forEach(a -> ids.add(a.getId()));
+            criteria.setCursor(AppointmentService.nextHistoryCursor(page, criteria.getSort()));
+        } while (criteria.getCursor() != null);
+        return ids;
+    }
+}
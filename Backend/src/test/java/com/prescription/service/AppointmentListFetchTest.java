@@ -0,0 +1,146 @@
+package com.prescription.service;
+
+import com.prescription.dto.AppointmentHistoryCriteria;
+import com.prescription.entity.Appointment;
+import com.prescription.entity.Hospital;
+import com.prescription.entity.User;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.HospitalRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestAppointments;
+import com.prescription.support.TestUsers;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Appointment lists are rendered with their doctor, patient and hospital, so reading them must take
+ * the same number of statements for a handful of rows as for many.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AppointmentService.class, AppointmentOccupancyService.class, DoctorAppointmentCounterService.class})
+class AppointmentListFetchTest {
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    private final LocalDate day = LocalDate.now().plusDays(1);
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void doctorListsDoNotLoadAssociationsPerRow() {
+        User few = TestUsers.create(userRepository, User.Role.DOCTOR);
+        User many = TestUsers.create(userRepository, User.Role.DOCTOR);
+        book(few, null, 3);
+        book(many, null, 30);
+
+        assertConstantStatements(() -> appointmentService.getAllDoctorAppointments(few.getId()),
+                () -> appointmentService.getAllDoctorAppointments(many.getId()));
+        assertConstantStatements(() -> appointmentService.getDoctorAppointmentsByStatus(few.getId(), Appointment.Status.REQUESTED),
+                () -> appointmentService.getDoctorAppointmentsByStatus(many.getId(), Appointment.Status.REQUESTED));
+        assertConstantStatements(() -> appointmentService.getPendingRequests(few.getId()),
+                () -> appointmentService.getPendingRequests(many.getId()));
+        assertConstantStatements(() -> appointmentService.getConfirmedAppointments(few.getId()),
+                () -> appointmentService.getConfirmedAppointments(many.getId()));
+        assertConstantStatements(() -> appointmentService.getAppointmentsByDate(few.getId(), day),
+                () -> appointmentService.getAppointmentsByDate(many.getId(), day));
+        assertConstantStatements(
+                () -> appointmentService.getAppointmentHistory(few.getId(), true, new AppointmentHistoryCriteria(), 50).getContent(),
+                () -> appointmentService.getAppointmentHistory(many.getId(), true, new AppointmentHistoryCriteria(), 50).getContent());
+    }
+
+    @Test
+    void patientListsDoNotLoadAssociationsPerRow() {
+        User few = TestUsers.create(userRepository, User.Role.PATIENT);
+        User many = TestUsers.create(userRepository, User.Role.PATIENT);
+        book(null, few, 3);
+        book(null, many, 30);
+
+        assertConstantStatements(() -> appointmentRepository.findByPatient(few),
+                () -> appointmentRepository.findByPatient(many));
+        assertConstantStatements(() -> appointmentService.getAllPatientAppointments(few.getId()),
+                () -> appointmentService.getAllPatientAppointments(many.getId()));
+        assertConstantStatements(() -> appointmentService.getPatientAppointmentsByStatus(few.getId(), Appointment.Status.SCHEDULED),
+                () -> appointmentService.getPatientAppointmentsByStatus(many.getId(), Appointment.Status.SCHEDULED));
+        assertConstantStatements(
+                () -> appointmentService.getAppointmentHistory(few.getId(), false, new AppointmentHistoryCriteria(), 50).getContent(),
+                () -> appointmentService.getAppointmentHistory(many.getId(), false, new AppointmentHistoryCriteria(), 50).getContent());
+    }
+
+    private void assertConstantStatements(Supplier<List<Appointment>> few, Supplier<List<Appointment>> many) {
+        long[] fewRun = statementsToRender(few);
+        long[] manyRun = statementsToRender(many);
+        assertTrue(manyRun[0] >= 5 * fewRun[0] && fewRun[0] > 0, "lists should differ in size");
+        assertEquals(fewRun[1], manyRun[1], "statements grew with the number of appointments");
+    }
+
+    // Reads a list from a cold persistence context and touches everything the response DTO shows,
+    // returning the number of rows and of statements it took
+    private long[] statementsToRender(Supplier<List<Appointment>> list) {
+        entityManager.clear();
+        statistics.clear();
+
+        List<Appointment> appointments = list.get();
+        for (Appointment appointment : appointments) {
+            assertNotNull(appointment.getDoctor().getName());
+            assertNotNull(appointment.getPatient().getEmail());
+            assertNotNull(appointment.getHospital().getName());
+        }
+        return new long[]{appointments.size(), statistics.getPrepareStatementCount()};
+    }
+
+    // Every appointment gets its own counterpart and hospital, so nothing is shared between rows
+    private void book(User doctor, User patient, int count) {
+        for (int i = 0; i < count; i++) {
+            Hospital hospital = new Hospital();
+            hospital.setName("hospital-" + i);
+            hospital = hospitalRepository.save(hospital);
+
+            appointmentRepository.save(TestAppointments.create(
+                    doctor != null ? doctor : TestUsers.create(userRepository, User.Role.DOCTOR),
+                    patient != null ? patient : TestUsers.create(userRepository, User.Role.PATIENT),
+                    hospital, day.atTime(9, 0).plusMinutes(i),
+                    i % 2 == 0 ? Appointment.Status.REQUESTED : Appointment.Status.SCHEDULED));
+        }
+    }
+}
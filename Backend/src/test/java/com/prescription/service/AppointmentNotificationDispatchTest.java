@@ -0,0 +1,110 @@
+package com.prescription.service;
+
+import com.prescription.config.AsyncConfig;
+import com.prescription.entity.Appointment;
+import com.prescription.entity.Hospital;
+import com.prescription.entity.Notification;
+import com.prescription.entity.User;
+import com.prescription.repository.HospitalRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestUsers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Commits for real, so the after-commit dispatch can be observed
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AppointmentService.class, AppointmentOccupancyService.class, DoctorAppointmentCounterService.class,
+        AppointmentNotificationListener.class, AsyncConfig.class, AppointmentNotificationDispatchTest.Metrics.class})
+class AppointmentNotificationDispatchTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @Test
+    void notifiesOnTheExecutorOnlyAfterCommit() throws InterruptedException {
+        User doctor = TestUsers.create(userRepository, "dispatch-doctor", User.Role.DOCTOR);
+        User patient = TestUsers.create(userRepository, "dispatch-patient", User.Role.PATIENT);
+        Long hospitalId = hospitalRepository.save(new Hospital()).getId();
+
+        CountDownLatch sent = new CountDownLatch(2);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            sent.countDown();
+            return null;
+        }).when(notificationService).sendAppointmentNotification(anyLong(), anyLong(), any(), anyString());
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Appointment booked = transaction.execute(status -> {
+            Appointment appointment = appointmentService.requestAppointment(doctor.getId(), patient.getId(),
+                    LocalDate.now().plusDays(3), LocalTime.of(9, 0), Appointment.Type.IN_PERSON, "checkup",
+                    hospitalId, "09:00 - 10:00");
+            verifyNoInteractions(notificationService);
+            return appointment;
+        });
+
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("notify-")), threads.toString());
+        verify(notificationService).sendAppointmentNotification(eq(patient.getId()), eq(booked.getId()),
+                eq(Notification.NotificationType.APPOINTMENT_CONFIRMATION), contains("pending confirmation"));
+        verify(notificationService).sendAppointmentNotification(eq(doctor.getId()), eq(booked.getId()),
+                eq(Notification.NotificationType.APPOINTMENT_CONFIRMATION), contains("New appointment request from"));
+
+        // A booking that rolls back tells nobody
+        clearInvocations(notificationService);
+        transaction.executeWithoutResult(status -> {
+            appointmentService.requestAppointment(doctor.getId(), patient.getId(), LocalDate.now().plusDays(4),
+                    LocalTime.of(9, 0), Appointment.Type.IN_PERSON, "checkup", hospitalId, "09:00 - 10:00");
+            status.setRollbackOnly();
+        });
+        Thread.sleep(200);
+        verifyNoInteractions(notificationService);
+    }
+}
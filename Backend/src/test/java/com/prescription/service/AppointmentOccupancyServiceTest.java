@@ -0,0 +1,96 @@
+package com.prescription.service;
+
+import com.prescription.dto.SlotOccupancyDTO;
+import com.prescription.entity.Appointment;
+import com.prescription.entity.DoctorHospitalSchedule;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.DoctorHospitalScheduleRepository;
+import com.prescription.repository.HospitalRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestAppointments;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(AppointmentOccupancyService.class)
+class AppointmentOccupancyServiceTest {
+
+    @Autowired
+    private AppointmentOccupancyService occupancyService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorHospitalScheduleRepository scheduleRepository;
+
+    private final LocalDate monday = LocalDate.now().plusWeeks(1).with(DayOfWeek.MONDAY);
+    private TestAppointments fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new TestAppointments(userRepository, hospitalRepository, appointmentRepository);
+
+        scheduleRepository.save(new DoctorHospitalSchedule(null, fixture.doctor().getId(),
+                fixture.hospital().getId(), DayOfWeek.MONDAY, "09:00-10:00,10:00-11:00,14:00"));
+    }
+
+    @Test
+    void countsAppointmentsInsideEachSlotAndSkipsCancelled() {
+        fixture.book(monday.atTime(9, 0), Appointment.Status.REQUESTED);
+        fixture.book(monday.atTime(9, 30), Appointment.Status.SCHEDULED);
+        fixture.book(monday.atTime(10, 0), Appointment.Status.CANCELLED);
+        fixture.book(monday.atTime(14, 0), Appointment.Status.SCHEDULED);
+
+        List<SlotOccupancyDTO> slots = occupancyService.getOccupancy(fixture.doctor().getId(),
+                fixture.hospital().getId(), monday, monday);
+
+        assertEquals(List.of("09:00 - 10:00", "10:00 - 11:00", "14:00"),
+                slots.stream().map(SlotOccupancyDTO::getLabel).toList());
+        assertEquals(2, slots.get(0).getAppointmentCount());
+        assertFalse(slots.get(1).isBooked());
+        assertTrue(slots.get(2).isBooked());
+        assertEquals(List.of("09:00 - 10:00", "14:00"),
+                occupancyService.getBookedLabels(fixture.doctor().getId(), fixture.hospital().getId(), monday));
+    }
+
+    @Test
+    void returnsSlotsOnlyOnScheduledWeekdays() {
+        fixture.book(monday.plusDays(1).atTime(9, 0), Appointment.Status.REQUESTED);
+
+        List<SlotOccupancyDTO> slots = occupancyService.getOccupancy(fixture.doctor().getId(),
+                fixture.hospital().getId(), monday, monday.plusDays(7));
+
+        assertEquals(6, slots.size());
+        assertTrue(slots.stream().noneMatch(SlotOccupancyDTO::isBooked));
+        assertEquals(List.of(monday, monday.plusDays(7)),
+                slots.stream().map(SlotOccupancyDTO::getDate).distinct().toList());
+        assertEquals(LocalTime.of(10, 0), slots.get(1).getStartTime());
+    }
+
+    @Test
+    void rejectsRangesLongerThanTheLimit() {
+        assertThrows(IllegalArgumentException.class, () -> occupancyService.getOccupancy(fixture.doctor().getId(),
+                fixture.hospital().getId(), monday, monday.plusDays(AppointmentOccupancyService.MAX_RANGE_DAYS + 1)));
+    }
+}
@@ -0,0 +1,149 @@
+package com.prescription.service;
+
+import com.prescription.entity.Appointment;
+import com.prescription.entity.Notification;
+import com.prescription.event.AppointmentEvent;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.HospitalRepository;
+import com.prescription.repository.NotificationRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestAppointments;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AppointmentReminderSchedulerTest {
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // A fresh wheel per test, driven by the test's clock instead of the background tick
+    private AppointmentReminderScheduler scheduler;
+
+    private final LocalDateTime start = LocalDateTime.of(2030, 1, 7, 8, 0);
+    private TestAppointments fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new TestAppointments(userRepository, hospitalRepository, appointmentRepository);
+        scheduler = new AppointmentReminderScheduler(appointmentRepository, notificationService, notificationRepository,
+                meterRegistry, List.of(Duration.ofHours(24), Duration.ofHours(1)), Duration.ofHours(1), Duration.ofHours(1),
+                1000);
+    }
+
+    @Test
+    void remindsAtEachOffsetWindowByWindow() {
+        Appointment soon = fixture.book(start.plusHours(2), Appointment.Status.SCHEDULED);
+        Appointment tomorrow = fixture.book(start.plusHours(25), Appointment.Status.CONFIRMED);
+        Appointment cancelled = fixture.book(start.plusMinutes(90), Appointment.Status.SCHEDULED);
+        fixture.book(start.plusHours(2), Appointment.Status.REQUESTED);
+
+        // First tick loads the first hour of reminders: only the 1h one of the cancelled appointment
+        assertEquals(0, scheduler.tick(start));
+        assertEquals(1, scheduler.pendingReminders());
+
+        // The second hour adds the 1h reminder of the first and the 24h one of the second
+        assertEquals(0, scheduler.tick(start.plusMinutes(30)));
+        assertEquals(3, scheduler.pendingReminders());
+
+        cancelled.setStatus(Appointment.Status.CANCELLED);
+        appointmentRepository.save(cancelled);
+        assertEquals(2, scheduler.tick(start.plusHours(1).plusSeconds(1)));
+
+        verify(notificationService).sendAppointmentNotification(eq(fixture.patient().getId()), eq(soon.getId()),
+                eq(Notification.NotificationType.APPOINTMENT_REMINDER), contains("Dr. doctor"));
+        verify(notificationService).sendAppointmentNotification(eq(fixture.patient().getId()), eq(tomorrow.getId()),
+                eq(Notification.NotificationType.APPOINTMENT_REMINDER), anyString());
+        verify(notificationService, never()).sendAppointmentNotification(anyLong(), eq(cancelled.getId()),
+                any(), anyString());
+        assertEquals(2.0, meterRegistry.get("appointments.reminders.sent").counter().count());
+    }
+
+    @Test
+    void addsCommittedChangesInsideTheLoadedWindow() {
+        assertEquals(0, scheduler.tick(start));
+
+        // Booked after its window was loaded
+        Appointment late = fixture.book(start.plusMinutes(80), Appointment.Status.SCHEDULED);
+        scheduler.onAppointmentEvent(AppointmentEvent.scheduled(late, "Room 1"));
+        assertEquals(1, scheduler.pendingReminders());
+
+        // Moved afterwards, the reminder for the old time is dropped when it falls due
+        late.setScheduledTime(start.plusMinutes(100));
+        appointmentRepository.save(late);
+        scheduler.onAppointmentEvent(AppointmentEvent.scheduled(late, "Room 1"));
+        assertEquals(2, scheduler.pendingReminders());
+        assertEquals(0, scheduler.tick(start.plusMinutes(21)));
+        verifyNoInteractions(notificationService);
+
+        assertEquals(1, scheduler.tick(start.plusMinutes(41)));
+        verify(notificationService).sendAppointmentNotification(eq(fixture.patient().getId()), eq(late.getId()),
+                eq(Notification.NotificationType.APPOINTMENT_REMINDER), anyString());
+    }
+
+    @Test
+    void sendsWhatFellDueWhileStoppedUnlessAlreadySent() {
+        // 1h reminders due 50 and 20 minutes before the restart, and one due too long ago
+        Appointment missed = fixture.book(start.plusMinutes(10), Appointment.Status.SCHEDULED);
+        Appointment sentBeforeStop = fixture.book(start.plusMinutes(40), Appointment.Status.CONFIRMED);
+        fixture.book(start.minusMinutes(10), Appointment.Status.SCHEDULED);
+
+        Notification sent = new Notification();
+        sent.setUserId(fixture.patient().getId());
+        sent.setTitle("Appointment Reminder");
+        sent.setType(Notification.NotificationType.APPOINTMENT_REMINDER);
+        sent.setAppointmentId(sentBeforeStop.getId());
+        sent.setCreatedAt(start.minusMinutes(19));
+        notificationRepository.save(sent);
+
+        assertEquals(1, scheduler.tick(start));
+
+        verify(notificationService).sendAppointmentNotification(eq(fixture.patient().getId()), eq(missed.getId()),
+                eq(Notification.NotificationType.APPOINTMENT_REMINDER), anyString());
+        verifyNoMoreInteractions(notificationService);
+    }
+
+    @Test
+    void remindsOfRequestsOnlyOnceScheduled() {
+        assertEquals(0, scheduler.tick(start));
+
+        Appointment requested = fixture.book(start.plusMinutes(80), Appointment.Status.REQUESTED);
+        scheduler.onAppointmentEvent(AppointmentEvent.requested(requested));
+        assertEquals(0, scheduler.pendingReminders());
+
+        requested.setStatus(Appointment.Status.SCHEDULED);
+        appointmentRepository.save(requested);
+        scheduler.onAppointmentEvent(AppointmentEvent.scheduled(requested, "Room 1"));
+        assertEquals(1, scheduler.pendingReminders());
+    }
+}
@@ -0,0 +1,90 @@
+package com.prescription.service;
+
+import com.prescription.entity.Appointment;
+import com.prescription.entity.User;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.HospitalRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestAppointments;
+import com.prescription.support.TestUsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AppointmentService.class, AppointmentOccupancyService.class, DoctorAppointmentCounterService.class})
+class AppointmentStatisticsTest {
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    private final LocalDate today = LocalDate.now();
+    private TestAppointments fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new TestAppointments(userRepository, hospitalRepository, appointmentRepository);
+    }
+
+    @Test
+    void countsStatusesRangesAndPatients() {
+        User returning = TestUsers.create(userRepository, "returning", User.Role.PATIENT);
+        User newRequest = TestUsers.create(userRepository, "new-request", User.Role.PATIENT);
+        User newScheduled = TestUsers.create(userRepository, "new-scheduled", User.Role.PATIENT);
+
+        fixture.book(fixture.doctor(), returning, today.minusWeeks(3).atTime(9, 0), Appointment.Status.COMPLETED);
+        fixture.book(fixture.doctor(), returning, today.atTime(10, 0), Appointment.Status.REQUESTED);
+        fixture.book(fixture.doctor(), newRequest, today.atTime(11, 0), Appointment.Status.REQUESTED);
+        fixture.book(fixture.doctor(), newScheduled, today.atTime(12, 0), Appointment.Status.SCHEDULED);
+        fixture.book(fixture.doctor(), newScheduled, today.plusWeeks(2).atTime(9, 0), Appointment.Status.CANCELLED);
+        fixture.book(fixture.doctor(), newScheduled, today.plusWeeks(2).atTime(10, 0), Appointment.Status.CONFIRMED);
+
+        Map<String, Object> stats = appointmentService.getAppointmentStatistics(fixture.doctor().getId());
+
+        assertEquals(6L, stats.get("totalAppointments"));
+        assertEquals(2L, stats.get("pendingRequests"));
+        assertEquals(2L, stats.get("scheduledAppointments"));
+        assertEquals(1L, stats.get("completedAppointments"));
+        assertEquals(1L, stats.get("cancelledAppointments"));
+        assertEquals(3L, stats.get("todaysAppointments"));
+        assertEquals(3L, stats.get("thisWeekAppointments"));
+        assertEquals(2L, stats.get("newPatients"));
+        assertEquals(3L, stats.get("totalUniquePatients"));
+    }
+
+    @Test
+    void servesRepeatedRequestsFromTheCache() {
+        fixture.book(today.atTime(9, 0), Appointment.Status.REQUESTED);
+        assertEquals(1L, appointmentService.getAppointmentStatistics(fixture.doctor().getId())
+                .get("totalAppointments"));
+
+        // Written around the service, so nothing evicts the cached counters
+        fixture.book(today.atTime(10, 0), Appointment.Status.REQUESTED);
+        assertEquals(1L, appointmentService.getAppointmentStatistics(fixture.doctor().getId())
+                .get("totalAppointments"));
+    }
+}
@@ -0,0 +1,138 @@
+package com.prescription.service;
+
+import com.prescription.entity.Appointment;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.DoctorAppointmentCountersRepository;
+import com.prescription.repository.HospitalRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestAppointments;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AppointmentService.class, AppointmentOccupancyService.class, DoctorAppointmentCounterService.class,
+        AppointmentStatusTransitionTest.Metrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AppointmentStatusTransitionTest {
+
+    private static final int APPOINTMENTS = 40;
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private DoctorAppointmentCounterService counterService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorAppointmentCountersRepository countersRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    private TestAppointments fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new TestAppointments(userRepository, hospitalRepository, appointmentRepository);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        appointmentRepository.deleteAllInBatch();
+        countersRepository.deleteAllInBatch();
+        hospitalRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void transitionsFollowTheTable() {
+        Appointment requested = fixture.book(LocalDateTime.now().plusDays(1), Appointment.Status.REQUESTED);
+
+        assertFalse(appointmentService.completeAppointment(requested.getId(), fixture.doctor().getId(), null));
+        assertFalse(appointmentService.cancelAppointmentByPatient(requested.getId(), fixture.doctor().getId()));
+        assertFalse(appointmentService.rejectAppointment(requested.getId(), fixture.patient().getId()));
+
+        assertTrue(appointmentService.rejectAppointment(requested.getId(), fixture.doctor().getId()));
+        assertFalse(appointmentService.cancelAppointmentByPatient(requested.getId(), fixture.patient().getId()));
+
+        Appointment rejected = appointmentRepository.findById(requested.getId()).orElseThrow();
+        assertEquals(Appointment.Status.CANCELLED, rejected.getStatus());
+        assertEquals(requested.getVersion() + 1, rejected.getVersion());
+        assertFalse(Appointment.Transition.COMPLETE.allowsFrom(Appointment.Status.CANCELLED));
+    }
+
+    @Test
+    void concurrentCancelAndCompleteHaveOneWinner() throws Exception {
+        List<Appointment> appointments = new ArrayList<>();
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            appointments.add(fixture.book(LocalDateTime.now().plusDays(1).plusHours(i), Appointment.Status.SCHEDULED));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> cancels = new ArrayList<>();
+        List<Future<Boolean>> completes = new ArrayList<>();
+        for (Appointment appointment : appointments) {
+            cancels.add(executor.submit(() -> {
+                start.await();
+                return appointmentService.cancelAppointmentByPatient(appointment.getId(), fixture.patient().getId());
+            }));
+            completes.add(executor.submit(() -> {
+                start.await();
+                return appointmentService.completeAppointment(appointment.getId(), fixture.doctor().getId(), "seen");
+            }));
+        }
+        start.countDown();
+
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            boolean cancelled = cancels.get(i).get(30, TimeUnit.SECONDS);
+            boolean completed = completes.get(i).get(30, TimeUnit.SECONDS);
+            assertTrue(cancelled ^ completed, "exactly one change wins");
+
+            Appointment stored = appointmentRepository.findById(appointments.get(i).getId()).orElseThrow();
+            assertEquals(cancelled ? Appointment.Status.CANCELLED : Appointment.Status.COMPLETED, stored.getStatus());
+            // Completing writes its notes in the same update
+            assertEquals(1, stored.getVersion());
+            assertEquals(cancelled ? null : "seen", stored.getNotes());
+        }
+        executor.shutdown();
+
+        // Every winner, and only the winner, moved the counters
+        assertFalse(counterService.reconcile(fixture.doctor().getId()));
+    }
+}
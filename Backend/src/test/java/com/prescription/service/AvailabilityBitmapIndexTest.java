@@ -0,0 +1,104 @@
+package com.prescription.service;
+
+import com.prescription.dto.DoctorAvailabilitySlotDTO;
+import com.prescription.entity.DoctorAvailabilitySlot;
+import com.prescription.entity.User;
+import com.prescription.repository.DoctorAvailabilitySlotRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestUsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DoctorAvailabilityService.class, SlotGenerationEngine.class, CompiledTemplateCache.class, AvailabilityBitmapIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AvailabilityBitmapIndexTest {
+
+    @Autowired
+    private AvailabilityBitmapIndex availabilityIndex;
+
+    @Autowired
+    private DoctorAvailabilityService availabilityService;
+
+    @SpyBean
+    private DoctorAvailabilitySlotRepository slotRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final LocalDate day = LocalDate.now().plusDays(1);
+    private User doctor;
+
+    @BeforeEach
+    void setUp() {
+        doctor = TestUsers.create(userRepository, "doctor", User.Role.DOCTOR);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        slotRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void answersLikeTheDatabaseIncludingSlotsEndingAtMidnight() {
+        slot(LocalTime.of(9, 0), LocalTime.of(9, 30), null);
+        slot(LocalTime.of(23, 0), LocalTime.of(23, 30), 5L);
+        slot(LocalTime.of(23, 30), LocalTime.of(23, 59), 5L);
+
+        List<DoctorAvailabilitySlotDTO> indexed = availabilityIndex.findFreeSlots(doctor.getId(), day, day);
+
+        assertNotNull(indexed);
+        List<DoctorAvailabilitySlotDTO> stored = availabilityService.getDoctorAvailableSlots(doctor.getId(), day, day)
+                .stream()
+                .map(availabilityService::convertToSlotDTO)
+                .toList();
+        assertEquals(stored, indexed);
+        assertEquals(5L, indexed.get(2).getGeneratedFromTemplateId());
+        assertEquals(LocalTime.of(23, 59), indexed.get(2).getEndTime());
+    }
+
+    @Test
+    void remembersDoctorsThatCannotBeIndexedUntilInvalidated() {
+        slot(LocalTime.of(9, 15), LocalTime.of(9, 45), null);
+
+        assertNull(availabilityIndex.findFreeSlots(doctor.getId(), day, day));
+        assertNull(availabilityIndex.findFreeSlots(doctor.getId(), day, day));
+        verify(slotRepository, times(1)).findByDoctorIdAndSlotStatusAndSlotDateBetween(
+                eq(doctor.getId()), any(), any(), any());
+
+        availabilityIndex.invalidate(doctor.getId());
+        assertNull(availabilityIndex.findFreeSlots(doctor.getId(), day, day));
+        verify(slotRepository, times(2)).findByDoctorIdAndSlotStatusAndSlotDateBetween(
+                eq(doctor.getId()), any(), any(), any());
+    }
+
+    private void slot(LocalTime start, LocalTime end, Long templateId) {
+        DoctorAvailabilitySlot slot = new DoctorAvailabilitySlot();
+        slot.setDoctor(doctor);
+        slot.setSlotDate(day);
+        slot.setStartTime(start);
+        slot.setEndTime(end);
+        slot.setGeneratedFromTemplateId(templateId);
+        slotRepository.save(slot);
+    }
+}
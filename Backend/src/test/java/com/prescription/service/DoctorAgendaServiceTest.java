@@ -0,0 +1,132 @@
+package com.prescription.service;
+
+import com.prescription.dto.AgendaEntryDTO;
+import com.prescription.dto.DoctorAgendaDTO;
+import com.prescription.entity.Appointment;
+import com.prescription.entity.AvailabilityException;
+import com.prescription.entity.DoctorAvailabilitySlot;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.AvailabilityExceptionRepository;
+import com.prescription.repository.DoctorAvailabilitySlotRepository;
+import com.prescription.repository.HospitalRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestAppointments;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DoctorAgendaService.class)
+class DoctorAgendaServiceTest {
+
+    @Autowired
+    private DoctorAgendaService agendaService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorAvailabilitySlotRepository slotRepository;
+
+    @Autowired
+    private AvailabilityExceptionRepository exceptionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    private final LocalDate day = LocalDate.of(2030, 3, 4);
+    private TestAppointments fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new TestAppointments(userRepository, hospitalRepository, appointmentRepository);
+    }
+
+    @Test
+    void mergesAppointmentsSlotsAndExceptionsInTimeOrder() {
+        slot(day, 10, 11);
+        slot(day, 9, 10);
+        Appointment appointment = fixture.book(day.atTime(9, 0), Appointment.Status.SCHEDULED);
+        exception(day, AvailabilityException.ExceptionType.CUSTOM_HOURS, LocalTime.of(13, 0), LocalTime.of(17, 0));
+        exception(day.plusDays(1), AvailabilityException.ExceptionType.UNAVAILABLE, null, null);
+        // Outside the requested range
+        fixture.book(day.plusDays(2).atTime(9, 0), Appointment.Status.SCHEDULED);
+        slot(day.minusDays(1), 9, 10);
+
+        DoctorAgendaDTO agenda = agendaService.getAgenda(fixture.doctor().getId(), day, 2);
+
+        assertEquals(day.plusDays(1), agenda.getEndDate());
+        List<AgendaEntryDTO> entries = agenda.getEntries();
+        assertEquals(List.of(
+                day.atTime(9, 0), day.atTime(9, 0), day.atTime(10, 0), day.atTime(13, 0), day.plusDays(1).atStartOfDay()),
+                entries.stream().map(AgendaEntryDTO::getStart).toList());
+        // Equal starts: the slot before the appointment it holds
+        assertEquals(List.of(AgendaEntryDTO.Kind.SLOT, AgendaEntryDTO.Kind.APPOINTMENT, AgendaEntryDTO.Kind.SLOT,
+                        AgendaEntryDTO.Kind.EXCEPTION, AgendaEntryDTO.Kind.EXCEPTION),
+                entries.stream().map(AgendaEntryDTO::getKind).toList());
+        assertEquals(appointment.getId(), entries.get(1).getId());
+        assertEquals("patient", entries.get(1).getTitle());
+        assertEquals(day.plusDays(2).atStartOfDay(), entries.get(4).getEnd());
+    }
+
+    @Test
+    void etagChangesOnlyWithTheAgenda() {
+        Appointment appointment = fixture.book(day.atTime(9, 0), Appointment.Status.SCHEDULED);
+        slot(day, 9, 10);
+
+        String etag = agendaService.getAgenda(fixture.doctor().getId(), day, 1).getEtag();
+        assertEquals(etag, agendaService.getAgenda(fixture.doctor().getId(), day, 1).getEtag());
+
+        // Other days do not count
+        fixture.book(day.plusDays(1).atTime(9, 0), Appointment.Status.SCHEDULED);
+        assertEquals(etag, agendaService.getAgenda(fixture.doctor().getId(), day, 1).getEtag());
+
+        appointment.setStatus(Appointment.Status.CONFIRMED);
+        appointmentRepository.saveAndFlush(appointment);
+        assertNotEquals(etag, agendaService.getAgenda(fixture.doctor().getId(), day, 1).getEtag());
+    }
+
+    @Test
+    void rejectsBadRanges() {
+        assertThrows(IllegalArgumentException.class, () -> agendaService.getAgenda(fixture.doctor().getId(), day, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> agendaService.getAgenda(fixture.doctor().getId(), day, DoctorAgendaService.MAX_AGENDA_DAYS + 1));
+        assertThrows(EntityNotFoundException.class, () -> agendaService.getAgenda(-1L, day, 1));
+    }
+
+    private void slot(LocalDate date, int startHour, int endHour) {
+        DoctorAvailabilitySlot slot = new DoctorAvailabilitySlot();
+        slot.setDoctor(fixture.doctor());
+        slot.setSlotDate(date);
+        slot.setStartTime(LocalTime.of(startHour, 0));
+        slot.setEndTime(LocalTime.of(endHour, 0));
+        slotRepository.save(slot);
+    }
+
+    private void exception(LocalDate date, AvailabilityException.ExceptionType type, LocalTime start, LocalTime end) {
+        AvailabilityException exception = new AvailabilityException();
+        exception.setDoctor(fixture.doctor());
+        exception.setExceptionDate(date);
+        exception.setExceptionType(type);
+        exception.setStartTime(start);
+        exception.setEndTime(end);
+        exception.setReason("Conference");
+        exceptionRepository.save(exception);
+    }
+}
@@ -0,0 +1,130 @@
+package com.prescription.service;
+
+import com.prescription.entity.Appointment;
+import com.prescription.entity.DoctorAppointmentCounters;
+import com.prescription.entity.Hospital;
+import com.prescription.entity.User;
+import com.prescription.repository.DoctorAppointmentCountersRepository;
+import com.prescription.repository.HospitalRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestUsers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AppointmentService.class, AppointmentOccupancyService.class, DoctorAppointmentCounterService.class,
+        AppointmentCounterReconciler.class, DoctorAppointmentCounterServiceTest.Metrics.class})
+class DoctorAppointmentCounterServiceTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private DoctorAppointmentCounterService counterService;
+
+    @Autowired
+    private AppointmentCounterReconciler reconciler;
+
+    @Autowired
+    private DoctorAppointmentCountersRepository countersRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    private final LocalDate tomorrow = LocalDate.now().plusDays(1);
+    private User doctor;
+    private User alice;
+    private User bob;
+    private Hospital hospital;
+
+    @BeforeEach
+    void setUp() {
+        doctor = TestUsers.create(userRepository, "doctor", User.Role.DOCTOR);
+        alice = TestUsers.create(userRepository, "alice", User.Role.PATIENT);
+        bob = TestUsers.create(userRepository, "bob", User.Role.PATIENT);
+        hospital = hospitalRepository.save(new Hospital());
+    }
+
+    @Test
+    void keepsCountersInStepWithAppointmentChanges() {
+        Appointment first = request(alice, 9);
+        Appointment second = request(alice, 10);
+        Appointment third = request(bob, 11);
+
+        DoctorAppointmentCounters counters = countersRepository.findById(doctor.getId()).orElseThrow();
+        assertEquals(3, counters.getTotal());
+        assertEquals(2, counters.getUniquePatients());
+        assertEquals(2, counters.getNewPatients());
+
+        assertTrue(appointmentService.completeAppointment(first.getId(), doctor.getId(), "done"));
+        assertTrue(appointmentService.cancelAppointmentByPatient(third.getId(), bob.getId()));
+
+        // Deltas are bulk updates, read the row again
+        entityManager.clear();
+        counters = counterService.getCounters(doctor.getId());
+        assertEquals(3, counters.getTotal());
+        assertEquals(1, counters.getScheduled());
+        assertEquals(1, counters.getCompleted());
+        assertEquals(1, counters.getCancelled());
+        // Both patients' first appointments are closed now
+        assertEquals(0, counters.getNewPatients());
+        assertEquals(second.getDoctor().getId(), counters.getDoctorId());
+
+        // Nothing to repair when every change went through the service
+        assertFalse(counterService.reconcile(doctor.getId()));
+    }
+
+    @Test
+    void reconciliationRepairsDrift() {
+        request(alice, 9);
+        countersRepository.addDeltas(doctor.getId(), 5, 0, 2, 0, 0, 1, 0);
+
+        assertEquals(1, reconciler.reconcileAll());
+
+        DoctorAppointmentCounters counters = countersRepository.findById(doctor.getId()).orElseThrow();
+        assertEquals(1, counters.getTotal());
+        assertEquals(1, counters.getScheduled());
+        assertEquals(1, counters.getUniquePatients());
+        assertNotNull(counters.getReconciledAt());
+    }
+
+    private Appointment request(User patient, int hour) {
+        return appointmentService.requestAppointment(doctor.getId(), patient.getId(), tomorrow, LocalTime.of(hour, 0),
+                Appointment.Type.IN_PERSON, "checkup", hospital.getId(), hour + ":00 - " + (hour + 1) + ":00");
+    }
+}
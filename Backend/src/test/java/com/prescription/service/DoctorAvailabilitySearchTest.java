@@ -0,0 +1,153 @@
+package com.prescription.service;
+
+import com.prescription.dto.SlotSearchCriteria;
+import com.prescription.dto.SlotSearchResultDTO;
+import com.prescription.entity.Doctor;
+import com.prescription.entity.DoctorAvailabilitySlot;
+import com.prescription.entity.DoctorHospitalSchedule;
+import com.prescription.entity.User;
+import com.prescription.repository.DoctorAvailabilitySlotRepository;
+import com.prescription.repository.DoctorHospitalScheduleRepository;
+import com.prescription.repository.DoctorRepository;
+import com.prescription.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DoctorAvailabilityService.class, SlotGenerationEngine.class, CompiledTemplateCache.class, AvailabilityBitmapIndex.class})
+class DoctorAvailabilitySearchTest {
+
+    @Autowired
+    private DoctorAvailabilityService availabilityService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorAvailabilitySlotRepository slotRepository;
+
+    @Autowired
+    private DoctorHospitalScheduleRepository scheduleRepository;
+
+    private final LocalDate tomorrow = LocalDate.now().plusDays(1);
+    private User cardiologistA;
+    private User cardiologistB;
+
+    @BeforeEach
+    void setUp() {
+        cardiologistA = createDoctor("a", "Cardiology");
+        cardiologistB = createDoctor("b", "Interventional Cardiology");
+        User dermatologist = createDoctor("c", "Dermatology");
+
+        createSlot(cardiologistA, tomorrow, LocalTime.of(8, 0), DoctorAvailabilitySlot.SlotStatus.AVAILABLE);
+        createSlot(cardiologistA, tomorrow, LocalTime.of(9, 0), DoctorAvailabilitySlot.SlotStatus.AVAILABLE);
+        createSlot(cardiologistA, tomorrow, LocalTime.of(10, 0), DoctorAvailabilitySlot.SlotStatus.BOOKED);
+        createSlot(cardiologistA, tomorrow, LocalTime.of(14, 0), DoctorAvailabilitySlot.SlotStatus.AVAILABLE);
+        createSlot(cardiologistB, tomorrow, LocalTime.of(8, 30), DoctorAvailabilitySlot.SlotStatus.AVAILABLE);
+        createSlot(cardiologistB, tomorrow.plusDays(1), LocalTime.of(8, 0), DoctorAvailabilitySlot.SlotStatus.AVAILABLE);
+        createSlot(dermatologist, tomorrow, LocalTime.of(7, 0), DoctorAvailabilitySlot.SlotStatus.AVAILABLE);
+
+        scheduleRepository.save(new DoctorHospitalSchedule(null, cardiologistB.getId(), 7L,
+                tomorrow.getDayOfWeek(), "08:00-12:00"));
+    }
+
+    @Test
+    void returnsEarliestFreeSlotsAcrossMatchingDoctors() {
+        SlotSearchCriteria criteria = morningSearch();
+
+        Slice<SlotSearchResultDTO> firstPage = availabilityService.searchAvailableSlots(criteria, 0, 2);
+        assertTrue(firstPage.hasNext());
+        assertEquals(List.of(LocalTime.of(8, 0), LocalTime.of(8, 30)), startTimes(firstPage.getContent()));
+        assertEquals(cardiologistA.getId(), firstPage.getContent().get(0).getDoctorId());
+        assertEquals(cardiologistB.getId(), firstPage.getContent().get(1).getDoctorId());
+
+        Slice<SlotSearchResultDTO> secondPage = availabilityService.searchAvailableSlots(criteria, 1, 2);
+        assertFalse(secondPage.hasNext());
+        assertEquals(List.of(LocalTime.of(9, 0)), startTimes(secondPage.getContent()));
+    }
+
+    @Test
+    void filtersOnHospitalScheduleForTheSlotWeekday() {
+        SlotSearchCriteria criteria = morningSearch();
+        criteria.setHospitalId(7L);
+        criteria.setToDate(tomorrow.plusDays(1));
+
+        List<SlotSearchResultDTO> slots = availabilityService.searchAvailableSlots(criteria, 0, 10).getContent();
+        // Cardiologist B works at hospital 7 only on tomorrow's weekday
+        assertEquals(1, slots.size());
+        assertEquals(cardiologistB.getId(), slots.get(0).getDoctorId());
+        assertEquals(tomorrow, slots.get(0).getSlotDate());
+    }
+
+    @Test
+    void streamsUpToTheLimitInOrder() {
+        List<SlotSearchResultDTO> streamed = new ArrayList<>();
+        int written = availabilityService.streamAvailableSlots(morningSearch(), 2, streamed::add);
+
+        assertEquals(2, written);
+        assertEquals(List.of(LocalTime.of(8, 0), LocalTime.of(8, 30)), startTimes(streamed));
+    }
+
+    private SlotSearchCriteria morningSearch() {
+        SlotSearchCriteria criteria = new SlotSearchCriteria();
+        criteria.setSpecialization("cardio");
+        criteria.setFromDate(tomorrow);
+        criteria.setToDate(tomorrow);
+        criteria.setDayStart(LocalTime.of(8, 0));
+        criteria.setDayEnd(LocalTime.of(12, 0));
+        return criteria;
+    }
+
+    private static List<LocalTime> startTimes(List<SlotSearchResultDTO> slots) {
+        return slots.stream().map(SlotSearchResultDTO::getStartTime).toList();
+    }
+
+    private User createDoctor(String key, String specialization) {
+        User user = userRepository.save(User.builder()
+                .name("Dr. " + key)
+                .email(key + "@example.com")
+                .passwordHash("hash")
+                .role(User.Role.DOCTOR)
+                .birthDate(LocalDate.of(1980, 1, 1))
+                .gender(User.Gender.OTHER)
+                .build());
+        Doctor doctor = new Doctor();
+        doctor.setUser(user);
+        doctor.setSpecialization(specialization);
+        doctor.setInstitute("NOT_SET");
+        doctor.setLicenseNumber("NOT_SET");
+        doctor.setCreatedAt(LocalDateTime.now());
+        doctor.setUpdatedAt(LocalDateTime.now());
+        doctorRepository.save(doctor);
+        return user;
+    }
+
+    private void createSlot(User doctor, LocalDate date, LocalTime start, DoctorAvailabilitySlot.SlotStatus status) {
+        DoctorAvailabilitySlot slot = new DoctorAvailabilitySlot();
+        slot.setDoctor(doctor);
+        slot.setSlotDate(date);
+        slot.setStartTime(start);
+        slot.setEndTime(start.plusMinutes(30));
+        slot.setSlotStatus(status);
+        slotRepository.save(slot);
+    }
+}
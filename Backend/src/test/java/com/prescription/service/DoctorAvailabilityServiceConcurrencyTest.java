@@ -0,0 +1,156 @@
+package com.prescription.service;
+
+import com.prescription.entity.DoctorAvailabilitySlot;
+import com.prescription.entity.User;
+import com.prescription.exception.SlotBookingConflictException;
+import com.prescription.repository.DoctorAvailabilitySlotRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestUsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DoctorAvailabilityService.class, SlotGenerationEngine.class, CompiledTemplateCache.class, AvailabilityBitmapIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DoctorAvailabilityServiceConcurrencyTest {
+
+    private static final int SLOTS = 5;
+    private static final int ATTEMPTS_PER_SLOT = 8;
+    private static final int THREADS = 8;
+
+    @Autowired
+    private DoctorAvailabilityService availabilityService;
+
+    @SpyBean
+    private DoctorAvailabilitySlotRepository slotRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        slotRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentBookingsNeverDoubleBookASlot() throws Exception {
+        User doctor = TestUsers.create(userRepository, "doctor", User.Role.DOCTOR);
+
+        List<Long> slotIds = new ArrayList<>();
+        LocalDate date = LocalDate.now().plusDays(1);
+        for (int i = 0; i < SLOTS; i++) {
+            DoctorAvailabilitySlot slot = new DoctorAvailabilitySlot();
+            slot.setDoctor(doctor);
+            slot.setSlotDate(date);
+            slot.setStartTime(LocalTime.of(8, 0).plusMinutes(i * 30L));
+            slot.setEndTime(LocalTime.of(8, 30).plusMinutes(i * 30L));
+            slotIds.add(slotRepository.save(slot).getId());
+        }
+
+        List<Long> attempts = new ArrayList<>();
+        for (Long slotId : slotIds) {
+            for (int i = 0; i < ATTEMPTS_PER_SLOT; i++) {
+                attempts.add(slotId);
+            }
+        }
+        Collections.shuffle(attempts);
+
+        ConcurrentHashMap<Long, AtomicInteger> winsPerSlot = new ConcurrentHashMap<>();
+        AtomicInteger losses = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Long slotId : attempts) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    availabilityService.bookSlot(slotId);
+                    winsPerSlot.computeIfAbsent(slotId, id -> new AtomicInteger()).incrementAndGet();
+                } catch (SlotBookingConflictException e) {
+                    losses.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(SLOTS, winsPerSlot.size());
+        winsPerSlot.values().forEach(wins -> assertEquals(1, wins.get()));
+        assertEquals(attempts.size() - SLOTS, losses.get());
+        for (DoctorAvailabilitySlot slot : slotRepository.findAllById(slotIds)) {
+            assertEquals(DoctorAvailabilitySlot.SlotStatus.BOOKED, slot.getSlotStatus());
+            assertEquals(1, slot.getVersion());
+        }
+    }
+
+    @Test
+    void retriesInSeparateTransactionsAndOnlyOnceInsideTheCallers() {
+        User doctor = TestUsers.create(userRepository, "doctor", User.Role.DOCTOR);
+        DoctorAvailabilitySlot slot = new DoctorAvailabilitySlot();
+        slot.setDoctor(doctor);
+        slot.setSlotDate(LocalDate.now().plusDays(1));
+        slot.setStartTime(LocalTime.of(9, 0));
+        slot.setEndTime(LocalTime.of(9, 30));
+        Long slotId = slotRepository.save(slot).getId();
+
+        // Every conditional update misses; each attempt checks the previous one's transaction has ended
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        doAnswer(invocation -> {
+            assertEquals(attempts.getAndIncrement(), completed.get());
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    completed.incrementAndGet();
+                }
+            });
+            return 0;
+        }).when(slotRepository).compareAndSetStatus(eq(slotId), any(), any(), anyLong(), any());
+
+        assertThrows(SlotBookingConflictException.class, () -> availabilityService.bookSlot(slotId));
+        assertEquals(3, attempts.get());
+
+        attempts.set(0);
+        completed.set(0);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertThrows(SlotBookingConflictException.class, () -> availabilityService.bookSlot(slotId));
+            status.setRollbackOnly();
+        });
+        assertEquals(1, attempts.get());
+    }
+}
@@ -0,0 +1,110 @@
+package com.prescription.service;
+
+import com.prescription.dto.AvailabilityTemplateDTO;
+import com.prescription.entity.AvailabilityTemplate;
+import com.prescription.entity.DoctorAvailabilitySlot;
+import com.prescription.entity.User;
+import com.prescription.repository.AppointmentSettingsRepository;
+import com.prescription.repository.AvailabilityTemplateRepository;
+import com.prescription.repository.DoctorAvailabilitySlotRepository;
+import com.prescription.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DoctorAvailabilityService.class, SlotGenerationEngine.class, CompiledTemplateCache.class, AvailabilityBitmapIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DoctorAvailabilityServiceTemplateUpdateTest {
+
+    @Autowired
+    private DoctorAvailabilityService availabilityService;
+
+    @Autowired
+    private DoctorAvailabilitySlotRepository slotRepository;
+
+    @Autowired
+    private AvailabilityTemplateRepository templateRepository;
+
+    @Autowired
+    private AppointmentSettingsRepository settingsRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        slotRepository.deleteAll();
+        templateRepository.deleteAll();
+        settingsRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void updateOnlyTouchesChangedSlotsAndKeepsBookedOnes() {
+        User doctor = userRepository.save(User.builder()
+                .name("Dr. Diff")
+                .email("diff@example.com")
+                .passwordHash("hash")
+                .role(User.Role.DOCTOR)
+                .birthDate(LocalDate.of(1980, 1, 1))
+                .gender(User.Gender.OTHER)
+                .build());
+
+        AvailabilityTemplateDTO dto = new AvailabilityTemplateDTO();
+        dto.setTemplateName("Morning Clinic");
+        dto.setScheduleType("DAILY");
+        dto.setStartTime(LocalTime.of(9, 0));
+        dto.setEndTime(LocalTime.of(12, 0));
+        dto.setActive(true);
+        AvailabilityTemplate template = availabilityService.createTemplate(doctor.getId(), dto);
+
+        LocalDate day = LocalDate.now().plusDays(1);
+        Map<LocalTime, DoctorAvailabilitySlot> before = slotsOn(doctor, day);
+        assertEquals(6, before.size());
+        availabilityService.bookSlot(before.get(LocalTime.of(11, 0)).getId());
+
+        // Shrink to 09:00-11:00: only the free 11:30 slot goes, the booked 11:00 slot stays
+        dto.setEndTime(LocalTime.of(11, 0));
+        availabilityService.updateTemplate(template.getId(), dto);
+
+        Map<LocalTime, DoctorAvailabilitySlot> shrunk = slotsOn(doctor, day);
+        assertEquals(5, shrunk.size());
+        assertFalse(shrunk.containsKey(LocalTime.of(11, 30)));
+        assertEquals(DoctorAvailabilitySlot.SlotStatus.BOOKED, shrunk.get(LocalTime.of(11, 0)).getSlotStatus());
+        for (LocalTime time : List.of(LocalTime.of(9, 0), LocalTime.of(9, 30), LocalTime.of(10, 0), LocalTime.of(10, 30))) {
+            assertEquals(before.get(time).getId(), shrunk.get(time).getId());
+        }
+
+        // Grow to 09:00-12:30: the missing slots come back, nothing is duplicated
+        dto.setEndTime(LocalTime.of(12, 30));
+        availabilityService.updateTemplate(template.getId(), dto);
+
+        Map<LocalTime, DoctorAvailabilitySlot> grown = slotsOn(doctor, day);
+        assertEquals(7, grown.size());
+        assertEquals(shrunk.get(LocalTime.of(11, 0)).getId(), grown.get(LocalTime.of(11, 0)).getId());
+        assertEquals(DoctorAvailabilitySlot.SlotStatus.AVAILABLE, grown.get(LocalTime.of(12, 0)).getSlotStatus());
+    }
+
+    private Map<LocalTime, DoctorAvailabilitySlot> slotsOn(User doctor, LocalDate day) {
+        return slotRepository.findByDoctorAndSlotDateOrderByStartTimeAsc(doctor, day).stream()
+                .collect(Collectors.toMap(DoctorAvailabilitySlot::getStartTime, Function.identity()));
+    }
+}
@@ -0,0 +1,159 @@
+package com.prescription.service;
+
+import com.prescription.entity.Notification;
+import com.prescription.entity.ReminderSchedule;
+import com.prescription.repository.NotificationRepository;
+import com.prescription.repository.ReminderScheduleRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Commits for real, so concurrent instances see each other's claims
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({NotificationService.class, NotificationCoalescer.class, MedicineReminderSchedulerTest.Metrics.class})
+class MedicineReminderSchedulerTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private ReminderScheduleRepository reminderScheduleRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private SimpMessagingTemplate messagingTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        reminderScheduleRepository.deleteAllInBatch();
+        notificationRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void firesDueRemindersAndMovesThemToTheirNextOccurrence() {
+        ReminderSchedule daily = schedule(now.minusMinutes(5), "DAILY");
+        ReminderSchedule once = schedule(now.minusMinutes(1), null);
+        ReminderSchedule future = schedule(now.plusHours(1), "DAILY");
+        // Due three days ago: skipped, not sent three times
+        ReminderSchedule stale = schedule(now.minusDays(3).plusMinutes(10), "DAILY");
+        ReminderSchedule twiceDaily = schedule(now.minusMinutes(30), "TWICE_DAILY");
+        twiceDaily.setEndsAt(now.plusHours(6));
+        reminderScheduleRepository.save(twiceDaily);
+
+        MedicineReminderScheduler scheduler = scheduler(2);
+        assertEquals(3, scheduler.fireDue(now));
+        assertEquals(0, scheduler.fireDue(now));
+
+        assertEquals(3, notificationRepository.findAll().stream()
+                .filter(n -> n.getType() == Notification.NotificationType.MEDICINE_REMINDER)
+                .count());
+        assertEquals(now.plusDays(1).minusMinutes(5), reload(daily).getNextFireAt());
+        assertEquals(now, reload(daily).getLastFiredAt());
+        assertNull(reload(once).getNextFireAt());
+        assertEquals(now.plusHours(1), reload(future).getNextFireAt());
+        assertEquals(now.plusMinutes(10), reload(stale).getNextFireAt());
+        assertNull(reload(stale).getLastFiredAt());
+        assertNull(reload(twiceDaily).getNextFireAt());
+    }
+
+    @Test
+    void instancesShareDueRemindersWithoutFiringAnyTwice() throws Exception {
+        for (int i = 0; i < 60; i++) {
+            schedule(now.minusMinutes(i % 30), "DAILY");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> instances = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            MedicineReminderScheduler scheduler = scheduler(5);
+            instances.add(executor.submit(() -> {
+                start.await();
+                return scheduler.fireDue(now);
+            }));
+        }
+        start.countDown();
+
+        int sent = 0;
+        for (Future<Integer> instance : instances) {
+            sent += instance.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(60, sent);
+        assertEquals(60, notificationRepository.count());
+        assertTrue(reminderScheduleRepository.findAll().stream().allMatch(s -> s.getNextFireAt().isAfter(now)));
+    }
+
+    @Test
+    void medicineReminderNotificationSchedulesTheRepeats() {
+        notificationService.sendMedicineReminderNotification(7L, 3L, "Paracetamol",
+                now.toLocalTime().plusMinutes(1), "DAILY", "500mg");
+
+        ReminderSchedule schedule = reminderScheduleRepository.findAll().get(0);
+        assertEquals(7L, schedule.getUserId());
+        assertEquals(24 * 60, schedule.getIntervalMinutes());
+        assertTrue(schedule.getNextFireAt().isAfter(LocalDateTime.now()));
+        assertEquals(1, notificationRepository.count());
+    }
+
+    private MedicineReminderScheduler scheduler(int batchSize) {
+        return new MedicineReminderScheduler(reminderScheduleRepository, notificationService, transactionManager,
+                new SimpleMeterRegistry(), batchSize, 100, Duration.ofHours(1));
+    }
+
+    private ReminderSchedule schedule(LocalDateTime nextFireAt, String frequency) {
+        ReminderSchedule schedule = new ReminderSchedule();
+        schedule.setUserId(7L);
+        schedule.setTitle("Medicine Reminder: Paracetamol");
+        schedule.setMessage("Time to take your medicine");
+        schedule.setFrequency(frequency);
+        schedule.setIntervalMinutes(ReminderSchedule.intervalMinutesOf(frequency));
+        schedule.setNextFireAt(nextFireAt);
+        return reminderScheduleRepository.save(schedule);
+    }
+
+    private ReminderSchedule reload(ReminderSchedule schedule) {
+        return reminderScheduleRepository.findById(schedule.getId()).orElseThrow();
+    }
+}
@@ -0,0 +1,88 @@
+package com.prescription.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class NotificationCoalescerTest {
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private NotificationCoalescer coalescer;
+
+    @AfterEach
+    void shutDown() {
+        coalescer.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendsAUsersNotificationsInOneFrame() {
+        coalescer = new NotificationCoalescer(messagingTemplate, meterRegistry, 50, 5, 2, 100);
+
+        for (int i = 0; i < 50; i++) {
+            coalescer.push(7L, Map.of("id", i));
+        }
+        coalescer.push(8L, Map.of("id", 100));
+
+        ArgumentCaptor<Object> frame = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, timeout(2000)).convertAndSendToUser(eq("7"), eq("/queue/notifications"), frame.capture());
+        Map<String, Object> batch = (Map<String, Object>) frame.getValue();
+        assertEquals("BATCH", batch.get("type"));
+        assertEquals(50, batch.get("count"));
+        assertEquals(IntStream.range(0, 50).boxed().toList(),
+                ((List<Map<String, Object>>) batch.get("notifications")).stream().map(n -> n.get("id")).toList());
+
+        // A single notification goes out as itself
+        verify(messagingTemplate, timeout(2000)).convertAndSendToUser("8", "/queue/notifications", Map.of("id", 100));
+        assertEquals(51, meterRegistry.counter("notifications.push.notifications").count());
+        assertEquals(2, meterRegistry.counter("notifications.push.frames").count());
+        assertEquals(49, meterRegistry.counter("notifications.push.frames.saved").count());
+        assertEquals(0, coalescer.pendingNotifications());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void holdsFramesBackOnceTheBurstIsUsed() throws Exception {
+        coalescer = new NotificationCoalescer(messagingTemplate, meterRegistry, 20, 1, 5, 100);
+
+        coalescer.push(7L, Map.of("id", 1));
+        verify(messagingTemplate, timeout(2000)).convertAndSendToUser("7", "/queue/notifications", Map.of("id", 1));
+
+        // The bucket refills after 200 ms, everything pushed until then waits for that one frame
+        for (int i = 2; i <= 4; i++) {
+            coalescer.push(7L, Map.of("id", i));
+            Thread.sleep(30);
+        }
+        ArgumentCaptor<Object> frame = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, timeout(2000).times(2)).convertAndSendToUser(eq("7"), eq("/queue/notifications"), frame.capture());
+        Map<String, Object> batch = (Map<String, Object>) frame.getValue();
+        assertEquals(3, batch.get("count"));
+        assertTrue(meterRegistry.counter("notifications.push.throttled").count() >= 1);
+    }
+
+    @Test
+    void shutdownSendsWhatIsPending() {
+        coalescer = new NotificationCoalescer(messagingTemplate, meterRegistry, 60_000, 5, 2, 2);
+
+        for (int i = 0; i < 3; i++) {
+            coalescer.push(7L, Map.of("id", i));
+        }
+        assertEquals(3, coalescer.pendingNotifications());
+        coalescer.shutdown();
+
+        // Split at the maximum batch size
+        verify(messagingTemplate, times(2)).convertAndSendToUser(eq("7"), eq("/queue/notifications"), any(Object.class));
+        assertEquals(0, coalescer.pendingNotifications());
+    }
+}
@@ -0,0 +1,105 @@
+package com.prescription.service;
+
+import com.prescription.entity.Notification;
+import com.prescription.repository.NotificationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Commits for real, so the after-commit push can be observed
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({NotificationService.class, NotificationCoalescer.class, NotificationServiceTest.Metrics.class})
+@TestPropertySource(properties = "app.notifications.push.window-ms=50")
+class NotificationServiceTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @SpyBean
+    private NotificationRepository notificationRepository;
+
+    @MockBean
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        notificationRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void storesAndPushesWithoutReadingTheHistoryBack() {
+        notificationService.sendSystemAlert(7L, "first");
+        notificationService.sendSystemAlert(7L, "second");
+
+        verify(notificationRepository, never()).findByUserIdOrderByCreatedAtDesc(anyLong());
+        verify(notificationRepository, never()).flush();
+
+        List<Notification> stored = notificationRepository.findAll();
+        assertEquals(2, stored.size());
+        // Sent close together, so pushed as one frame
+        ArgumentCaptor<Object> frame = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, timeout(2000)).convertAndSendToUser(eq("7"), eq("/queue/notifications"), frame.capture());
+        Map<String, Object> batch = (Map<String, Object>) frame.getValue();
+        assertEquals(2, batch.get("count"));
+        assertEquals(stored.stream().map(Notification::getId).collect(Collectors.toSet()),
+                ((List<Map<String, Object>>) batch.get("notifications")).stream().map(n -> n.get("id")).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void pushesOnlyAfterTheSurroundingTransactionCommits() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            notificationService.sendSystemAlert(7L, "committed");
+            verifyNoInteractions(messagingTemplate);
+        });
+        verify(messagingTemplate, timeout(2000)).convertAndSendToUser(eq("7"), eq("/queue/notifications"), any(Object.class));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            notificationService.sendSystemAlert(8L, "rolled back");
+            status.setRollbackOnly();
+        });
+        verify(messagingTemplate, after(200).never()).convertAndSendToUser(eq("8"), anyString(), any(Object.class));
+        assertEquals(1, notificationRepository.count());
+    }
+}
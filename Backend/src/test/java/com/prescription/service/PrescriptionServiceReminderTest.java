@@ -0,0 +1,139 @@
+package com.prescription.service;
+
+import com.prescription.dto.MedicineTimingCreateDto;
+import com.prescription.dto.PrescriptionCreateDto;
+import com.prescription.dto.PrescriptionMedicineCreateDto;
+import com.prescription.entity.Medicine;
+import com.prescription.entity.MedicineGeneric;
+import com.prescription.entity.Prescription;
+import com.prescription.entity.ReminderSchedule;
+import com.prescription.entity.User;
+import com.prescription.repository.MedicineGenericRepository;
+import com.prescription.repository.MedicineRepository;
+import com.prescription.repository.PrescriptionRepository;
+import com.prescription.repository.ReminderScheduleRepository;
+import com.prescription.repository.UserRepository;
+import com.prescription.support.TestUsers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PrescriptionService.class)
+class PrescriptionServiceReminderTest {
+
+    @Autowired
+    private PrescriptionService prescriptionService;
+
+    @Autowired
+    private PrescriptionRepository prescriptionRepository;
+
+    @Autowired
+    private ReminderScheduleRepository reminderScheduleRepository;
+
+    @Autowired
+    private MedicineRepository medicineRepository;
+
+    @Autowired
+    private MedicineGenericRepository genericRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private MedicineService medicineService;
+
+    @Test
+    void writesOneReminderScheduleForEachTimingWithATime() {
+        User doctor = TestUsers.create(userRepository, "doctor", User.Role.DOCTOR);
+        User patient = TestUsers.create(userRepository, "patient", User.Role.PATIENT);
+        Medicine medicine = createMedicine("Paracetamol");
+
+        PrescriptionMedicineCreateDto medicineDto = new PrescriptionMedicineCreateDto();
+        medicineDto.setMedicineId(medicine.getId());
+        medicineDto.setDurationDays(5);
+        medicineDto.setTimings(List.of(
+                timing("MORNING", "AFTER_MEAL", "1.0", null, null),
+                timing("INTERVAL", "ANY_TIME", "0.5", null, 8),
+                // No time to remind at
+                timing("FIXED_TIME", "BEFORE_MEAL", "1", null, null)));
+        PrescriptionCreateDto createDto = new PrescriptionCreateDto();
+        createDto.setDiagnosis("Fever");
+        createDto.setPatientId(patient.getId());
+        createDto.setMedicines(List.of(medicineDto));
+
+        prescriptionService.createPrescription(createDto, doctor.getId());
+
+        Prescription prescription = prescriptionRepository.findAll().get(0);
+        LocalDateTime prescribed = prescription.getCreatedAt();
+        List<ReminderSchedule> reminders = reminderScheduleRepository.findAll().stream()
+                .sorted(Comparator.comparing(ReminderSchedule::getIntervalMinutes))
+                .toList();
+        assertEquals(2, reminders.size());
+
+        ReminderSchedule interval = reminders.get(0);
+        assertEquals(patient.getId(), interval.getUserId());
+        assertEquals(prescription.getId(), interval.getPrescriptionId());
+        assertEquals("Medicine Reminder: Paracetamol", interval.getTitle());
+        assertEquals("Time to take your medicine: Paracetamol. Dosage: 0.5. any time. Frequency: EVERY_8_HOURS",
+                interval.getMessage());
+        assertEquals("EVERY_8_HOURS", interval.getFrequency());
+        assertEquals(480, interval.getIntervalMinutes());
+        assertNull(interval.getReminderTime());
+        assertEquals(prescribed, interval.getNextFireAt());
+        assertEquals(prescribed.plusDays(5), interval.getEndsAt());
+
+        ReminderSchedule morning = reminders.get(1);
+        LocalDateTime firstMorning = prescribed.toLocalDate().atTime(8, 0);
+        if (firstMorning.isBefore(prescribed)) {
+            firstMorning = firstMorning.plusDays(1);
+        }
+        assertEquals("Time to take your medicine: Paracetamol. Dosage: 1. after meal. Frequency: DAILY",
+                morning.getMessage());
+        assertEquals("DAILY", morning.getFrequency());
+        assertEquals(1440, morning.getIntervalMinutes());
+        assertEquals(LocalTime.of(8, 0), morning.getReminderTime());
+        assertEquals(firstMorning, morning.getNextFireAt());
+        // Five doses, the end is exclusive
+        assertEquals(firstMorning.plusDays(4), morning.recurrence().nextAfter(firstMorning.plusDays(3)));
+        assertNull(morning.recurrence().nextAfter(firstMorning.plusDays(4)));
+    }
+
+    private Medicine createMedicine(String name) {
+        MedicineGeneric generic = new MedicineGeneric("paracetamol", "Analgesic", null);
+        generic.setCreatedAt(LocalDateTime.now());
+        generic.setUpdatedAt(LocalDateTime.now());
+        Medicine medicine = new Medicine(name, "500mg", Medicine.Form.TABLET, genericRepository.save(generic),
+                BigDecimal.ONE);
+        medicine.setCreatedAt(LocalDateTime.now());
+        return medicineRepository.save(medicine);
+    }
+
+    private static MedicineTimingCreateDto timing(String timeOfDay, String mealRelation, String amount,
+                                                  LocalTime specificTime, Integer intervalHours) {
+        MedicineTimingCreateDto dto = new MedicineTimingCreateDto();
+        dto.setTimeOfDay(timeOfDay);
+        dto.setMealRelation(mealRelation);
+        dto.setAmount(new BigDecimal(amount));
+        dto.setSpecificTime(specificTime);
+        dto.setIntervalHours(intervalHours);
+        return dto;
+    }
+}
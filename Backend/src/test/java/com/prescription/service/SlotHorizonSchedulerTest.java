@@ -0,0 +1,177 @@
+package com.prescription.service;
+
+import com.prescription.entity.AppointmentSettings;
+import com.prescription.entity.AvailabilityTemplate;
+import com.prescription.entity.User;
+import com.prescription.repository.AppointmentSettingsRepository;
+import com.prescription.repository.AvailabilityTemplateRepository;
+import com.prescription.repository.DoctorAvailabilitySlotRepository;
+import com.prescription.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "app.slots.horizon.batch-size=2")
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SlotHorizonScheduler.class, SlotGenerationEngine.class, CompiledTemplateCache.class, AvailabilityBitmapIndex.class,
+        SlotHorizonSchedulerTest.Metrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SlotHorizonSchedulerTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private SlotHorizonScheduler scheduler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AvailabilityTemplateRepository templateRepository;
+
+    @Autowired
+    private AppointmentSettingsRepository settingsRepository;
+
+    @Autowired
+    private DoctorAvailabilitySlotRepository slotRepository;
+
+    @Autowired
+    private SlotGenerationEngine slotGenerationEngine;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        slotRepository.deleteAll();
+        templateRepository.deleteAll();
+        settingsRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void generatesOnlyTheEdgeDayForEveryDoctor() {
+        LocalDate today = LocalDate.of(2030, 1, 7);
+        for (int i = 0; i < 5; i++) {
+            User doctor = createDoctor(i);
+            createDailyTemplate(doctor);
+            if (i % 2 == 0) {
+                saveSettings(doctor, 60, 14);
+            }
+        }
+        // Yesterday's run left everything materialized up to yesterday's edge
+        scheduler.extendHorizon(today.minusDays(1));
+        long before = slotRepository.count();
+        double generatedBefore = meterRegistry.counter("slots.horizon.slots").count();
+
+        assertEquals(5, scheduler.extendHorizon(today));
+
+        // 3 doctors with 60 minute slots on day 14, 2 with the 30 minute default on day 30
+        assertEquals(3 * 4 + 2 * 8, slotRepository.count() - before);
+        assertEquals(2 * 8, slotsOn(today.plusDays(30)));
+        assertEquals(0, slotsOn(today.plusDays(31)));
+        assertEquals(28.0, meterRegistry.counter("slots.horizon.slots").count() - generatedBefore);
+        assertEquals(5.0, meterRegistry.get("slots.horizon.doctors").gauge().value());
+
+        // A second run on the same day finds everything in place
+        scheduler.extendHorizon(today);
+        assertEquals(before + 28, slotRepository.count());
+    }
+
+    @Test
+    void catchesUpOnANightThatDidNotRun() {
+        LocalDate today = LocalDate.of(2030, 1, 7);
+        User doctor = createDoctor(0);
+        createDailyTemplate(doctor);
+        saveSettings(doctor, 60, 14);
+        scheduler.extendHorizon(today.minusDays(2));
+
+        // Nothing ran yesterday
+        scheduler.extendHorizon(today);
+
+        assertEquals(4, slotsOn(today.plusDays(13)));
+        assertEquals(4, slotsOn(today.plusDays(14)));
+        assertEquals(17 * 4, slotRepository.count());
+    }
+
+    @Test
+    void fillsAHorizonBeyondTheThirtyDaysANewTemplateMaterializes() {
+        LocalDate today = LocalDate.of(2030, 1, 7);
+        User doctor = createDoctor(0);
+        AvailabilityTemplate template = createDailyTemplate(doctor);
+        saveSettings(doctor, 60, 45);
+        // What createTemplate materializes
+        slotGenerationEngine.generate(doctor, List.of(template), 60, today, today.plusDays(29));
+
+        scheduler.extendHorizon(today);
+
+        for (int day = 30; day <= 45; day++) {
+            assertEquals(4, slotsOn(today.plusDays(day)), "day " + day);
+        }
+        assertEquals(46 * 4, slotRepository.count());
+    }
+
+    private long slotsOn(LocalDate date) {
+        return slotRepository.findAll().stream().filter(slot -> slot.getSlotDate().equals(date)).count();
+    }
+
+    // Settings share the doctor's id (@MapsId), so the doctor has to be managed when saving
+    private void saveSettings(User doctor, int slotDuration, int advanceBookingDays) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            AppointmentSettings settings = new AppointmentSettings();
+            settings.setDoctor(userRepository.getReferenceById(doctor.getId()));
+            settings.setSlotDurationMinutes(slotDuration);
+            settings.setAdvanceBookingDays(advanceBookingDays);
+            settingsRepository.save(settings);
+        });
+    }
+
+    private User createDoctor(int i) {
+        return userRepository.save(User.builder()
+                .name("Dr. Horizon " + i)
+                .email("horizon" + i + "@example.com")
+                .passwordHash("hash")
+                .role(User.Role.DOCTOR)
+                .birthDate(LocalDate.of(1980, 1, 1))
+                .gender(User.Gender.OTHER)
+                .build());
+    }
+
+    private AvailabilityTemplate createDailyTemplate(User doctor) {
+        AvailabilityTemplate template = new AvailabilityTemplate();
+        template.setDoctor(doctor);
+        template.setTemplateName("Morning Clinic");
+        template.setScheduleType(AvailabilityTemplate.ScheduleType.DAILY);
+        template.setStartTime(LocalTime.of(9, 0));
+        template.setEndTime(LocalTime.of(13, 0));
+        return templateRepository.save(template);
+    }
+}
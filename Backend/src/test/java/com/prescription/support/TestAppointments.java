@@ -0,0 +1,63 @@
+package com.prescription.support;
+
+import com.prescription.entity.Appointment;
+import com.prescription.entity.Hospital;
+import com.prescription.entity.User;
+import com.prescription.repository.AppointmentRepository;
+import com.prescription.repository.HospitalRepository;
+import com.prescription.repository.UserRepository;
+
+import java.time.LocalDateTime;
+
+/**
+ * A doctor, a patient and a hospital to book appointments between, for the repository-backed tests.
+ * The users are created with the keys "doctor" and "patient".
+ */
+public final class TestAppointments {
+
+    private final AppointmentRepository appointmentRepository;
+    private final User doctor;
+    private final User patient;
+    private final Hospital hospital;
+
+    public TestAppointments(UserRepository userRepository, HospitalRepository hospitalRepository,
+                            AppointmentRepository appointmentRepository) {
+        this.appointmentRepository = appointmentRepository;
+        this.doctor = TestUsers.create(userRepository, "doctor", User.Role.DOCTOR);
+        this.patient = TestUsers.create(userRepository, "patient", User.Role.PATIENT);
+        this.hospital = hospitalRepository.save(new Hospital());
+    }
+
+    public User doctor() {
+        return doctor;
+    }
+
+    public User patient() {
+        return patient;
+    }
+
+    public Hospital hospital() {
+        return hospital;
+    }
+
+    public Appointment book(LocalDateTime time, Appointment.Status status) {
+        return book(doctor, patient, time, status);
+    }
+
+    public Appointment book(User doctor, User patient, LocalDateTime time, Appointment.Status status) {
+        return appointmentRepository.save(create(doctor, patient, hospital, time, status));
+    }
+
+    /**
+     * An unsaved appointment blocking the default 30 minute slot and 5 minute buffer, created and updated now.
+     */
+    public static Appointment create(User doctor, User patient, Hospital hospital, LocalDateTime time,
+                                     Appointment.Status status) {
+        Appointment appointment = new Appointment(time, Appointment.Type.IN_PERSON, doctor, patient, hospital, "slot");
+        appointment.setStatus(status);
+        appointment.setBlockedUntil(time.plusMinutes(35));
+        appointment.setCreatedAt(LocalDateTime.now());
+        appointment.setUpdatedAt(appointment.getCreatedAt());
+        return appointment;
+    }
+}
@@ -0,0 +1,37 @@
+package com.prescription.support;
+
+import com.prescription.entity.User;
+import com.prescription.repository.UserRepository;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Users for the repository-backed tests. The key is used as the name and the local part of the email,
+ * so it has to be unique within a test.
+ */
+public final class TestUsers {
+
+    private static final AtomicInteger KEYS = new AtomicInteger();
+
+    private TestUsers() {
+    }
+
+    /**
+     * A user keyed by its role and a running number, for tests that need more than a few.
+     */
+    public static User create(UserRepository userRepository, User.Role role) {
+        return create(userRepository, role.name().toLowerCase() + "-" + KEYS.incrementAndGet(), role);
+    }
+
+    public static User create(UserRepository userRepository, String key, User.Role role) {
+        return userRepository.save(User.builder()
+                .name(key)
+                .email(key + "@example.com")
+                .passwordHash("hash")
+                .role(role)
+                .birthDate(LocalDate.of(1980, 1, 1))
+                .gender(User.Gender.OTHER)
+                .build());
+    }
+}
@@ -0,0 +1,73 @@
+package com.prescription.util;
+
+import com.prescription.entity.AvailabilityTemplate;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledTemplateTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 12, 20);
+
+    @Test
+    void matchesTheParsedTemplateOnEveryDate() {
+        AvailabilityTemplate weekly = template(AvailabilityTemplate.ScheduleType.WEEKLY);
+        weekly.setDaysOfWeek("1, 3,7");
+        AvailabilityTemplate range = template(AvailabilityTemplate.ScheduleType.SPECIFIC_DATE_RANGE);
+        range.setStartDate(START.plusDays(5));
+        range.setEndDate(START.plusDays(12));
+        AvailabilityTemplate dates = template(AvailabilityTemplate.ScheduleType.SPECIFIC_DATES);
+        dates.setSpecificDates("2025-01-02,2024-12-25, 2025-02-10");
+
+        for (AvailabilityTemplate template : List.of(template(AvailabilityTemplate.ScheduleType.DAILY), weekly, range, dates)) {
+            CompiledTemplate compiled = CompiledTemplate.compile(template);
+            for (LocalDate date = START; date.isBefore(START.plusDays(70)); date = date.plusDays(1)) {
+                assertEquals(parsedAppliesTo(template, date), compiled.appliesTo(date),
+                        template.getScheduleType() + " on " + date);
+            }
+        }
+    }
+
+    @Test
+    void emptyOrIncompleteRulesMatchNothing() {
+        AvailabilityTemplate weekly = template(AvailabilityTemplate.ScheduleType.WEEKLY);
+        AvailabilityTemplate range = template(AvailabilityTemplate.ScheduleType.SPECIFIC_DATE_RANGE);
+        range.setStartDate(START);
+
+        assertFalse(CompiledTemplate.compile(weekly).appliesTo(START));
+        assertFalse(CompiledTemplate.compile(range).appliesTo(START));
+    }
+
+    @Test
+    void detectsAChangedRule() {
+        AvailabilityTemplate weekly = template(AvailabilityTemplate.ScheduleType.WEEKLY);
+        weekly.setDaysOfWeek("1,2");
+        CompiledTemplate compiled = CompiledTemplate.compile(weekly);
+        assertTrue(compiled.isCompiledFrom(weekly));
+
+        weekly.setDaysOfWeek("1,2,3");
+        assertFalse(compiled.isCompiledFrom(weekly));
+    }
+
+    private static boolean parsedAppliesTo(AvailabilityTemplate template, LocalDate date) {
+        switch (template.getScheduleType()) {
+            case DAILY:
+                return true;
+            case WEEKLY:
+                return AvailabilityUtil.isDateInDaysOfWeek(date, AvailabilityUtil.parseDaysOfWeek(template.getDaysOfWeek()));
+            case SPECIFIC_DATE_RANGE:
+                return !date.isBefore(template.getStartDate()) && !date.isAfter(template.getEndDate());
+            default:
+                return AvailabilityUtil.parseSpecificDates(template.getSpecificDates()).contains(date);
+        }
+    }
+
+    private static AvailabilityTemplate template(AvailabilityTemplate.ScheduleType scheduleType) {
+        AvailabilityTemplate template = new AvailabilityTemplate();
+        template.setScheduleType(scheduleType);
+        return template;
+    }
+}
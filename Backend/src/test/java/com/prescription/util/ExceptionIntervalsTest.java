@@ -0,0 +1,59 @@
+package com.prescription.util;
+
+import com.prescription.entity.AvailabilityException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExceptionIntervalsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 10);
+
+    @Test
+    void combinesSeveralCustomHoursOnOneDay() {
+        ExceptionIntervals exceptions = ExceptionIntervals.of(List.of(
+                exception(DAY, AvailabilityException.ExceptionType.CUSTOM_HOURS, LocalTime.of(14, 0), LocalTime.of(16, 0)),
+                exception(DAY, AvailabilityException.ExceptionType.CUSTOM_HOURS, LocalTime.of(8, 0), LocalTime.of(10, 0))));
+
+        int[][] ranges = exceptions.workingRanges(DAY, LocalTime.of(9, 0), LocalTime.of(17, 0));
+        assertArrayEquals(new int[][]{{480, 600}, {840, 960}}, ranges);
+        // Other days keep the template hours
+        assertArrayEquals(new int[][]{{540, 1020}},
+                exceptions.workingRanges(DAY.plusDays(1), LocalTime.of(9, 0), LocalTime.of(17, 0)));
+    }
+
+    @Test
+    void blocksOnlyThePartOfTheDayThatIsUnavailable() {
+        ExceptionIntervals exceptions = ExceptionIntervals.of(List.of(
+                exception(DAY, AvailabilityException.ExceptionType.UNAVAILABLE, LocalTime.of(12, 0), LocalTime.of(13, 0)),
+                exception(DAY.plusDays(1), AvailabilityException.ExceptionType.UNAVAILABLE, null, null)));
+
+        assertFalse(exceptions.isBlocked(DAY, 660, 720));
+        assertTrue(exceptions.isBlocked(DAY, 690, 750));
+        assertFalse(exceptions.isBlocked(DAY, 780, 810));
+        assertTrue(exceptions.isBlocked(DAY.plusDays(1), 0, 30));
+        assertFalse(exceptions.isBlocked(DAY.plusDays(2), 0, 1440));
+    }
+
+    @Test
+    void customHoursWithoutTimesBlockTheDay() {
+        ExceptionIntervals exceptions = ExceptionIntervals.of(List.of(
+                exception(DAY, AvailabilityException.ExceptionType.CUSTOM_HOURS, LocalTime.of(9, 0), null)));
+
+        assertTrue(exceptions.isBlocked(DAY, 540, 570));
+    }
+
+    private static AvailabilityException exception(LocalDate date, AvailabilityException.ExceptionType type,
+                                                   LocalTime start, LocalTime end) {
+        AvailabilityException exception = new AvailabilityException();
+        exception.setExceptionDate(date);
+        exception.setExceptionType(type);
+        exception.setStartTime(start);
+        exception.setEndTime(end);
+        return exception;
+    }
+}
@@ -0,0 +1,72 @@
+package com.prescription.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void firesTasksOnceTheirDeadlinePasses() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 4, 1000);
+        assertTrue(wheel.add(1015, "soon"));
+        assertTrue(wheel.add(1500, "later"));
+        assertTrue(wheel.add(1000, "now"));
+        assertFalse(wheel.add(999, "past"));
+        assertEquals(3, wheel.size());
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(1010, fired::add);
+        assertEquals(List.of("now"), fired);
+
+        wheel.advance(1019, fired::add);
+        assertEquals(List.of("now"), fired);
+        wheel.advance(1020, fired::add);
+        assertEquals(List.of("now", "soon"), fired);
+
+        wheel.advance(1509, fired::add);
+        assertEquals(List.of("now", "soon"), fired);
+        wheel.advance(1510, fired::add);
+        assertEquals(List.of("now", "soon", "later"), fired);
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    void jumpsAheadWhenEmpty() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 4, 0);
+        wheel.advance(1_000_000, task -> fail());
+        assertEquals(1_000_000, wheel.currentTime());
+        assertFalse(wheel.add(999_999, "past"));
+    }
+
+    @Test
+    void matchesSortedDeadlinesOnRandomTasks() {
+        Random random = new Random(42);
+        HierarchicalTimingWheel<long[]> wheel = new HierarchicalTimingWheel<>(10, 8, 0);
+        List<long[]> fired = new ArrayList<>();
+        long now = 0;
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 20; i++) {
+                long deadline = now + random.nextInt(100_000);
+                wheel.add(deadline, new long[]{deadline});
+            }
+            long previous = now;
+            now += random.nextInt(5_000);
+            List<long[]> batch = new ArrayList<>();
+            wheel.advance(now, batch::add);
+            for (long[] task : batch) {
+                // Never early, never more than a tick late
+                assertTrue(task[0] < now, "fired early");
+                assertTrue(task[0] >= previous - 10, "fired late");
+            }
+            fired.addAll(batch);
+        }
+        wheel.advance(now + 200_000, fired::add);
+        assertEquals(4000, fired.size());
+        assertTrue(wheel.isEmpty());
+    }
+}
@@ -0,0 +1,63 @@
+package com.prescription.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalTreeTest {
+
+    @Test
+    void findsHalfOpenOverlapsInStartOrder() {
+        IntervalTree<String> tree = IntervalTree.<String>builder()
+                .add(600, 720, "late morning")
+                .add(540, 600, "early")
+                .add(700, 700, "empty")
+                .add(0, 1440, "whole day")
+                .build();
+
+        assertEquals(List.of("whole day", "early", "late morning"), tree.overlapping(550, 610));
+        assertEquals(List.of("whole day", "early"), tree.overlapping(540, 600));
+        assertTrue(tree.overlaps(1439, 1440));
+        assertFalse(tree.overlaps(1440, 2000));
+        assertFalse(tree.overlaps(600, 600));
+    }
+
+    @Test
+    void matchesLinearScanOnRandomIntervals() {
+        Random random = new Random(42);
+        List<long[]> intervals = new ArrayList<>();
+        IntervalTree.Builder<Integer> builder = IntervalTree.builder();
+        for (int i = 0; i < 500; i++) {
+            long start = random.nextInt(10_000);
+            long end = start + random.nextInt(200);
+            intervals.add(new long[]{start, end});
+            builder.add(start, end, i);
+        }
+        IntervalTree<Integer> tree = builder.build();
+
+        for (int query = 0; query < 1000; query++) {
+            long from = random.nextInt(10_200);
+            long to = from + 1 + random.nextInt(300);
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < intervals.size(); i++) {
+                long[] interval = intervals.get(i);
+                if (interval[0] < to && interval[1] > from && interval[0] < interval[1]) {
+                    expected.add(i);
+                }
+            }
+            List<Integer> actual = tree.overlapping(from, to);
+            assertEquals(expected.size(), actual.size());
+            assertTrue(actual.containsAll(expected));
+            assertEquals(!expected.isEmpty(), tree.overlaps(from, to));
+        }
+    }
+
+    @Test
+    void rejectsReversedIntervals() {
+        assertThrows(IllegalArgumentException.class, () -> IntervalTree.builder().add(10, 5, "x"));
+    }
+}
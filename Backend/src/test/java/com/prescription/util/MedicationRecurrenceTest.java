@@ -0,0 +1,87 @@
+package com.prescription.util;
+
+import com.prescription.entity.MedicineTiming;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MedicationRecurrenceTest {
+
+    private final LocalDateTime prescribed = LocalDateTime.of(2030, 3, 4, 10, 30);
+
+    @Test
+    void intervalTimingRunsForTheWholeCourse() {
+        MedicationRecurrence recurrence = MedicationRecurrence.forTiming(
+                timing(MedicineTiming.TimeOfDay.INTERVAL, null, 8), prescribed, 10);
+
+        List<LocalDateTime> doses = collect(recurrence.iterator());
+        assertEquals(30, doses.size());
+        assertEquals(prescribed, doses.get(0));
+        assertEquals(prescribed.plusDays(10).minusHours(8), doses.get(29));
+    }
+
+    @Test
+    void timesOfDayStartAtTheirNextClockTime() {
+        MedicationRecurrence morning = MedicationRecurrence.forTiming(
+                timing(MedicineTiming.TimeOfDay.MORNING, null, null), prescribed, 5);
+        assertEquals(LocalDateTime.of(2030, 3, 5, 8, 0), morning.getFirst());
+        assertEquals(Duration.ofDays(1), morning.getInterval());
+        assertEquals(5, collect(morning.iterator()).size());
+
+        MedicationRecurrence fixed = MedicationRecurrence.forTiming(
+                timing(MedicineTiming.TimeOfDay.FIXED_TIME, LocalTime.of(11, 0), null), prescribed, 2);
+        assertEquals(List.of(prescribed.withHour(11).withMinute(0), prescribed.plusDays(1).withHour(11).withMinute(0)),
+                collect(fixed.iterator()));
+
+        assertNull(MedicationRecurrence.forTiming(timing(MedicineTiming.TimeOfDay.INTERVAL, null, null), prescribed, 5));
+        assertNull(MedicationRecurrence.forTiming(timing(MedicineTiming.TimeOfDay.FIXED_TIME, null, null), prescribed, 5));
+    }
+
+    @Test
+    void nextAfterSkipsMissedDosesAtOnce() {
+        MedicationRecurrence recurrence = new MedicationRecurrence(prescribed, Duration.ofHours(8), prescribed.plusDays(10));
+
+        assertEquals(prescribed, recurrence.nextAfter(prescribed.minusDays(1)));
+        assertEquals(prescribed.plusHours(8), recurrence.nextAfter(prescribed));
+        assertEquals(prescribed.plusDays(3).plusHours(8), recurrence.nextAfter(prescribed.plusDays(3).plusHours(1)));
+        assertNull(recurrence.nextAfter(prescribed.plusDays(10).minusHours(8)));
+
+        Iterator<LocalDateTime> after = recurrence.iteratorAfter(prescribed.plusDays(9));
+        assertEquals(List.of(prescribed.plusDays(9).plusHours(8), prescribed.plusDays(9).plusHours(16)), collect(after));
+
+        MedicationRecurrence once = new MedicationRecurrence(prescribed, null, null);
+        assertEquals(List.of(prescribed), collect(once.iterator()));
+        assertNull(once.nextAfter(prescribed));
+    }
+
+    @Test
+    void openEndedRulesAreOnlyComputedAsFarAsIterated() {
+        Iterator<LocalDateTime> doses = new MedicationRecurrence(prescribed, Duration.ofDays(1), null).iterator();
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(prescribed.plusDays(i), doses.next());
+        }
+        assertTrue(doses.hasNext());
+        assertThrows(IllegalArgumentException.class, () -> new MedicationRecurrence(prescribed, Duration.ZERO, null));
+    }
+
+    private static MedicineTiming timing(MedicineTiming.TimeOfDay timeOfDay, LocalTime specificTime, Integer intervalHours) {
+        MedicineTiming timing = new MedicineTiming();
+        timing.setTimeOfDay(timeOfDay);
+        timing.setSpecificTime(specificTime);
+        timing.setIntervalHours(intervalHours);
+        return timing;
+    }
+
+    private static List<LocalDateTime> collect(Iterator<LocalDateTime> iterator) {
+        List<LocalDateTime> all = new ArrayList<>();
+        iterator.forEachRemaining(all::add);
+        return all;
+    }
+}
@@ -0,0 +1,35 @@
+package com.prescription.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleTimeSlotsTest {
+
+    @Test
+    void roundTripsRangesAndPoints() {
+        int[][] slots = ScheduleTimeSlots.parse("14:00-15:30, 09:00-10:00,12:15");
+
+        assertArrayEquals(new int[]{540, 735, 840}, slots[0]);
+        assertArrayEquals(new int[]{600, 735, 930}, slots[1]);
+        assertEquals("09:00-10:00,12:15,14:00-15:30", ScheduleTimeSlots.format(slots[0], slots[1]));
+    }
+
+    @Test
+    void coversHalfOpenRangesAndExactPoints() {
+        int[][] slots = ScheduleTimeSlots.parse("09:00-10:00,12:15");
+
+        assertTrue(ScheduleTimeSlots.covers(slots[0], slots[1], 540));
+        assertTrue(ScheduleTimeSlots.covers(slots[0], slots[1], 599));
+        assertFalse(ScheduleTimeSlots.covers(slots[0], slots[1], 600));
+        assertTrue(ScheduleTimeSlots.covers(slots[0], slots[1], 735));
+        assertFalse(ScheduleTimeSlots.covers(slots[0], slots[1], 736));
+    }
+
+    @Test
+    void rejectsMalformedSlots() {
+        assertThrows(IllegalArgumentException.class, () -> ScheduleTimeSlots.parse("10:00-09:00"));
+        assertThrows(IllegalArgumentException.class, () -> ScheduleTimeSlots.parse("nine-ten"));
+        assertEquals(0, ScheduleTimeSlots.parse("")[0].length);
+    }
+}
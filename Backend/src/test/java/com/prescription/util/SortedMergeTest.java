@@ -0,0 +1,44 @@
+package com.prescription.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedMergeTest {
+
+    @Test
+    void mergesSortedListsKeepingListOrderForTies() {
+        List<String> merged = SortedMerge.merge(List.of(
+                        List.of("a1", "c1"),
+                        List.of(),
+                        List.of("a2", "b2", "d2")),
+                Comparator.comparing(s -> s.charAt(0)));
+
+        assertEquals(List.of("a1", "a2", "b2", "c1", "d2"), merged);
+        assertEquals(List.of(), SortedMerge.merge(List.of(), Comparator.<String>naturalOrder()));
+    }
+
+    @Test
+    void matchesSortingTheConcatenation() {
+        Random random = new Random(42);
+        List<List<Integer>> sources = new ArrayList<>();
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            List<Integer> source = new ArrayList<>();
+            for (int j = random.nextInt(50); j > 0; j--) {
+                source.add(random.nextInt(100));
+            }
+            source.sort(null);
+            sources.add(source);
+            all.addAll(source);
+        }
+        all.sort(null);
+
+        assertEquals(all, SortedMerge.merge(sources, Comparator.naturalOrder()));
+    }
+}
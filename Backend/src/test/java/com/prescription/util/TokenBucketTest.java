@@ -0,0 +1,35 @@
+package com.prescription.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsTheBurstThenRefillsAtTheRate() {
+        TokenBucket bucket = new TokenBucket(3, 2, 0);
+
+        assertTrue(bucket.tryTake(0));
+        assertTrue(bucket.tryTake(0));
+        assertTrue(bucket.tryTake(0));
+        assertFalse(bucket.tryTake(0));
+        assertEquals(SECOND / 2, bucket.nanosUntilToken(0));
+
+        assertFalse(bucket.tryTake(SECOND / 4));
+        assertTrue(bucket.tryTake(SECOND / 2));
+        assertFalse(bucket.isFull(SECOND));
+
+        // Refills up to the capacity, not beyond
+        assertTrue(bucket.isFull(10 * SECOND));
+        assertEquals(0, bucket.nanosUntilToken(10 * SECOND));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryTake(10 * SECOND));
+        }
+        assertFalse(bucket.tryTake(10 * SECOND));
+    }
+}
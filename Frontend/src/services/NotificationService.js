@@ -35,7 +35,12 @@ class NotificationService {
                         try {
                             const notification = JSON.parse(message.body);
                             // console.log('📢 Received notification:', notification);
-                            onNotification(notification);
+                            // Notifications arriving close together come as one BATCH frame
+                            if (notification.type === 'BATCH') {
+                                notification.notifications.forEach(onNotification);
+                            } else {
+                                onNotification(notification);
+                            }
                         } catch (error) {
                             console.error('Error parsing notification:', error);
                         }